@@ -0,0 +1,227 @@
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link StepEventSink} that takes the printing of the step information out of the simulation thread.
+ *
+ * The simulation thread only copies the state of the vehicle into a slot of a ring buffer, made of
+ * one primitive array per field, and moves on. A background writer thread takes the slots in
+ * batches, formats them exactly as {@link ElectricVehicle#getStepInfo(int)} does, and writes every
+ * batch to the stream at once. The ring has a single producer and a single consumer, so the two
+ * threads only share the two sequence counters and never take a lock.
+ *
+ * When the ring is full, the {@link OverflowPolicy} decides: with {@link OverflowPolicy#DROP} the
+ * event is discarded and counted, so the simulation never waits for the output; with
+ * {@link OverflowPolicy#BLOCK} the simulation waits for the writer to make room, so nothing is lost.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class AsyncStepLogger implements StepEventSink
+{
+    /** Default number of slots of the ring. */
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+    /** Maximum number of events written at once. */
+    private static final int BATCH = 512;
+    /** Time the writer sleeps when the ring is empty, and the simulation when it is full. */
+    private static final long PARK_NANOS = 50_000;
+
+    private PrintStream out;
+    private OverflowPolicy policy;
+    private int mask;
+
+    /** The slots of the ring, one array per field of the step information. */
+    private int[] step;
+    private String[] name;
+    private String[] plate;
+    private int[] batteryCapacity;
+    private int[] batteryLevel;
+    private int[] chargesCount;
+    private float[] chargestCost;
+    private int[] idleCount;
+    private long[] location;
+    private long[] rechargingLocation;
+    private long[] targetLocation;
+
+    /** Sequence of the next event to record, written only by the simulation thread. */
+    private AtomicLong head;
+    /** Sequence of the next event to write, written only by the writer thread. */
+    private AtomicLong tail;
+    /** Every event before this sequence has been written and flushed. */
+    private volatile long flushed;
+    private volatile boolean closed;
+    private volatile long dropped;
+    private Thread writer;
+
+    /**
+     * Constructor for objects of class AsyncStepLogger. The writer thread is started right away;
+     * it is a daemon thread, so it does not keep the program alive.
+     * @param out The stream the step information is written to. It is flushed but never closed.
+     * @param capacity The number of slots of the ring, rounded up to a power of 2. Must be > 0.
+     * @param policy What to do when the ring is full.
+     * @throws IllegalArgumentException If capacity is not positive.
+     */
+    public AsyncStepLogger(PrintStream out, int capacity, OverflowPolicy policy)
+    {
+        if (capacity <= 0){
+            throw new IllegalArgumentException("Non-positive capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(Math.min(capacity, 1 << 30));
+        if (size < capacity){
+            size <<= 1;
+        }
+        this.out = out;
+        this.policy = policy;
+        this.mask = size - 1;
+        step = new int[size];
+        name = new String[size];
+        plate = new String[size];
+        batteryCapacity = new int[size];
+        batteryLevel = new int[size];
+        chargesCount = new int[size];
+        chargestCost = new float[size];
+        idleCount = new int[size];
+        location = new long[size];
+        rechargingLocation = new long[size];
+        targetLocation = new long[size];
+        head = new AtomicLong();
+        tail = new AtomicLong();
+
+        writer = new Thread(this::write, "step-logger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return The number of slots of the ring.
+     */
+    public int getCapacity()
+    {
+        return mask + 1;
+    }
+
+    /**
+     * @return The policy applied when the ring is full.
+     */
+    public OverflowPolicy getPolicy()
+    {
+        return policy;
+    }
+
+    /**
+     * @return The number of events discarded because the ring was full.
+     */
+    public long getDropped()
+    {
+        return dropped;
+    }
+
+    /**
+     * Copies the state of the vehicle into the next slot of the ring.
+     * @throws IllegalStateException If the logger has been closed.
+     */
+    @Override
+    public void vehicleStep(int step, ElectricVehicle vehicle)
+    {
+        if (closed){
+            throw new IllegalStateException("Step logger closed");
+        }
+        long sequence = head.get();
+        if (sequence - tail.get() > mask){
+            if (policy == OverflowPolicy.DROP){
+                dropped++;
+                return;
+            }
+            while (sequence - tail.get() > mask){
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+
+        int i = (int) sequence & mask;
+        this.step[i] = step;
+        name[i] = vehicle.getName();
+        plate[i] = vehicle.getPlate();
+        batteryCapacity[i] = vehicle.getBatteryCapacity();
+        batteryLevel[i] = vehicle.getBatteryLevel();
+        chargesCount[i] = vehicle.getChargesCount();
+        chargestCost[i] = vehicle.getChargestCost();
+        idleCount[i] = vehicle.getIdleCount();
+        location[i] = vehicle.getLocation().getPacked();
+        rechargingLocation[i] = vehicle.hasRechargingLocation() ? vehicle.getRechargingLocation().getPacked() : Location.NO_LOCATION;
+        targetLocation[i] = vehicle.getTargetLocation().getPacked();
+        head.lazySet(sequence + 1);
+    }
+
+    /**
+     * Waits until the writer thread has written and flushed every event recorded so far.
+     */
+    @Override
+    public void flush()
+    {
+        long target = head.get();
+        while (flushed < target && writer.isAlive()){
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    /**
+     * Writes every event recorded so far and stops the writer thread.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (writer.isAlive()){
+            try{
+                writer.join();
+            }
+            catch (InterruptedException e){
+                interrupted = true;
+            }
+        }
+        if (interrupted){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The loop of the writer thread: writes the events in batches, and flushes the stream every
+     * time it catches up with the simulation.
+     */
+    private void write()
+    {
+        StringBuilder builder = new StringBuilder(BATCH * 128);
+        String lineSeparator = System.lineSeparator();
+        while (true){
+            long first = tail.get();
+            long last = Math.min(head.get(), first + BATCH);
+            if (first == last){
+                if (flushed != first){
+                    out.flush();
+                    flushed = first;
+                }
+                if (closed && head.get() == first){
+                    return;
+                }
+                LockSupport.parkNanos(PARK_NANOS);
+                continue;
+            }
+
+            builder.setLength(0);
+            for (long sequence = first; sequence < last; sequence++){
+                int i = (int) sequence & mask;
+                builder.append("Step: ").append(step[i]).append(" - ElectricVehicle: ");
+                ElectricVehicle.appendInfo(builder, name[i], plate[i], batteryCapacity[i], batteryLevel[i],
+                                           chargesCount[i], chargestCost[i], idleCount[i],
+                                           location[i], rechargingLocation[i], targetLocation[i]);
+                builder.append(lineSeparator);
+            }
+            out.print(builder);
+            tail.lazySet(last);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * The result of one benchmark of a {@link MicroBenchmark} run: the time and the memory allocated
+ * per operation, averaged over the measurement iterations.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class BenchmarkResult
+{
+    private String name;
+    private String params;
+    private int iterations;
+    private long operations;
+    private double nanosPerOp;
+    private double nanosPerOpError;
+    private double bytesPerOp;
+
+    /**
+     * Constructor for objects of class BenchmarkResult.
+     * @param name The name of the benchmark.
+     * @param params The parameters of the benchmark, as "name=value" pairs separated by commas.
+     * @param iterations The number of measurement iterations.
+     * @param operations The number of operations measured.
+     * @param nanosPerOp The mean time per operation, in nanoseconds.
+     * @param nanosPerOpError The half-width of the 99.9% confidence interval of the mean time.
+     * @param bytesPerOp The mean memory allocated per operation, in bytes.
+     */
+    public BenchmarkResult(String name, String params, int iterations, long operations,
+                           double nanosPerOp, double nanosPerOpError, double bytesPerOp)
+    {
+        this.name = name;
+        this.params = params;
+        this.iterations = iterations;
+        this.operations = operations;
+        this.nanosPerOp = nanosPerOp;
+        this.nanosPerOpError = nanosPerOpError;
+        this.bytesPerOp = bytesPerOp;
+    }
+
+    /**
+     * @return The name of the benchmark.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return The parameters of the benchmark, as "name=value" pairs separated by commas.
+     */
+    public String getParams()
+    {
+        return params;
+    }
+
+    /**
+     * @return The number of measurement iterations.
+     */
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    /**
+     * @return The number of operations measured.
+     */
+    public long getOperations()
+    {
+        return operations;
+    }
+
+    /**
+     * @return The mean time per operation, in nanoseconds.
+     */
+    public double getNanosPerOp()
+    {
+        return nanosPerOp;
+    }
+
+    /**
+     * @return The half-width of the 99.9% confidence interval of the mean time per operation.
+     */
+    public double getNanosPerOpError()
+    {
+        return nanosPerOpError;
+    }
+
+    /**
+     * @return The mean memory allocated per operation, in bytes.
+     */
+    public double getBytesPerOp()
+    {
+        return bytesPerOp;
+    }
+
+    /**
+     * @return The result as a row of the table printed by {@link MicroBenchmark}.
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%-48s %-56s %5d %14.3f +- %10.3f ns/op %14.1f B/op",
+                             name, params, iterations, nanosPerOp, nanosPerOpError, bytesPerOp);
+    }
+}
@@ -1,8 +1,9 @@
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 /**
  * Model a charger unit within a {@link ChargingStation}.
- * It tracks its charging capabilities, fee, and the electric vehicles it has recharged.
+ * It tracks its charging capabilities, fee, and the recharges it has done in a {@link RechargeLedger}.
  * * @author David J. Barnes and Michael Kölling
  * @author DP classes 
  * @version 2024.10.07
@@ -12,9 +13,11 @@ public class Charger
     private String id; //7 caracteres que contienen el id de la estación de carga en la que se encuentra seguido de '_' y dos dígitos
     private int chargingSpeed;
     private float chargingFee;
-    private List<ElectricVehicle> eVsRecharged;
+    private RechargeLedger ledger;
     private float amountCollected;
-    private boolean free;
+    private boolean free;               //only used while the charger does not belong to a station
+    private ChargingStation station;
+    private int slot;                   //position of the charger in its station
 
     /**
      * Constructor for objects of class Charger.
@@ -27,9 +30,11 @@ public class Charger
         this.id = id;
         chargingSpeed = speed;
         chargingFee = fee;
-        eVsRecharged = new ArrayList <ElectricVehicle> ();
+        ledger = new RechargeLedger();
         amountCollected = 0;
         free = true;
+        station = null;
+        slot = -1;
     }
     
     /**
@@ -37,19 +42,14 @@ public class Charger
      */
     public Charger (Charger otherCharger)
     {
-        this.id = id;
+        this.id = otherCharger.id;
         this.chargingSpeed = otherCharger.chargingSpeed;
         this.chargingFee = otherCharger.chargingFee;
-        this.eVsRecharged = new ArrayList <ElectricVehicle> ();
+        this.ledger = new RechargeLedger(otherCharger.ledger);
         this.amountCollected = otherCharger.amountCollected;
-        this.free = otherCharger.free;
-            
-        //Copy of every single vehicle in the new arraylist, not the reference.
-        
-        for (int i = 0; i < otherCharger.eVsRecharged.size(); i++){
-            ElectricVehicle vehicle = new ElectricVehicle (otherCharger.eVsRecharged.get(i));
-            this.eVsRecharged.add(vehicle);
-        }
+        this.free = otherCharger.getChargerFree();
+        this.station = null;
+        this.slot = -1;
     }
     
     
@@ -81,12 +81,34 @@ public class Charger
     }
     
     /**
-     * Get the current list of EVs recharged in this charger.
-     * @return the list of EVs recharged in this charger.
+     * Get the EVs recharged in this charger, found by their ids in the company of the station.
+     * The list is built on every call; {@link #getLedger()} gives the recharges without building anything.
+     * @return An unmodifiable list of the EVs recharged in this charger, one per recharge.
+     * Vehicles that are no longer in the company are left out.
      */
     public List<ElectricVehicle> getEVsRecharged()
     {
-        return eVsRecharged;
+        EVCompany company = station == null ? null : station.getCompany();
+        if (company == null){
+            return Collections.emptyList();
+        }
+        List<ElectricVehicle> vehicles = new ArrayList<ElectricVehicle> (ledger.size());
+        for (int i = 0; i < ledger.size(); i++){
+            ElectricVehicle vehicle = company.getVehicleById(ledger.getVehicleId(i));
+            if (vehicle != null){
+                vehicles.add(vehicle);
+            }
+        }
+        return Collections.unmodifiableList(vehicles);
+    }
+    
+    /**
+     * Get the recharges done by this charger.
+     * @return The ledger of the recharges of this charger.
+     */
+    public RechargeLedger getLedger()
+    {
+        return ledger;
     }
     
     /**
@@ -104,7 +126,10 @@ public class Charger
      */
     public boolean getChargerFree()
     {
-        return free;
+        if (station == null){
+            return free;
+        }
+        return station.isChargerFree(slot);
     }
     
     
@@ -137,12 +162,32 @@ public class Charger
     }
     
     /**
-     * Set the current list of EVs recharged by the charger.
-     * @param eVsRecharged. Must be a list of ElectricVehicle class
+     * Set the recharges done by the charger.
+     * @param ledger The ledger of the recharges. Must not be null.
+     */
+    public void setLedger(RechargeLedger ledger)
+    {
+        int recharges = ledger.size() - this.ledger.size();
+        this.ledger = ledger;
+        if (station != null){
+            station.chargerRecharged(recharges, 0);
+        }
+    }
+    
+    /**
+     * Set the EVs recharged by the charger, as one recharge each with step -1, 0 kWh and 0 fee.
+     * The counters of the station are updated too.
+     * @param eVsRecharged The vehicles recharged, which must belong to the company of the station.
+     * @deprecated The recharges are kept in a {@link RechargeLedger}; use {@link #setLedger(RechargeLedger)}.
      */
+    @Deprecated
     public void setEVsRecharged(List<ElectricVehicle> eVsRecharged)
     {
-        this.eVsRecharged = eVsRecharged;
+        RechargeLedger recharges = new RechargeLedger();
+        for (ElectricVehicle vehicle : eVsRecharged){
+            recharges.add(vehicle.getId(), -1, 0, 0f);
+        }
+        setLedger(recharges);
     }
     
     /**
@@ -151,7 +196,11 @@ public class Charger
      */
     public void setAmountCollected(float amountCollected)
     {
+        float collected = amountCollected - this.amountCollected;
         this.amountCollected = amountCollected;
+        if (station != null){
+            station.chargerRecharged(0, collected);
+        }
     }
     
     /**
@@ -160,9 +209,36 @@ public class Charger
      */
     public void setChargerFree(boolean free)
     {
-        this.free = free;
+        if (station == null){
+            this.free = free;
+        }
+        else{
+            station.setChargerFree(slot, free);
+        }
     }
     
+    /**
+     * Links the charger to the station it belongs to. From then on its occupation state is kept by the station.
+     * Used by {@link ChargingStation} every time its chargers are placed.
+     * @param station The station of the charger, or null to keep the occupation state in the charger itself.
+     * @param slot The position of the charger in the station.
+     */
+    void setStation(ChargingStation station, int slot)
+    {
+        this.free = getChargerFree();
+        this.station = station;
+        this.slot = slot;
+    }
+
+    /**
+     * @return The position of the charger in its station, or -1 if it does not belong to one.
+     * Used by {@link DecisionJournal} to record which charger a vehicle picked.
+     */
+    int getSlot()
+    {
+        return slot;
+    }
+
     
     /**
      * Returns a string representation of the charger, including its ID, speed, fee, and the number of EVs recharged.
@@ -173,15 +249,24 @@ public class Charger
     {
         StringBuilder builder = new StringBuilder();
         
-        builder.append (getId() + ", ");
-        builder.append (getChargingSpeed() + "kwh, ");
-        builder.append (getChargingFee() + "€, ");
-        builder.append (eVsRecharged.size() + ", ");
-        builder.append (getAmountCollected() + "€");
+        appendInfo(builder);
         
         return builder.toString();
     }
 
+    /**
+     * Appends the representation given by {@link #toString()}. Used by {@link ReportWriter}.
+     * @param builder Where the representation is appended.
+     */
+    void appendInfo(StringBuilder builder)
+    {
+        builder.append (getId()).append (", ");
+        builder.append (getChargingSpeed()).append ("kwh, ");
+        builder.append (getChargingFee()).append ("€, ");
+        builder.append (ledger.size()).append (", ");
+        builder.append (getAmountCollected()).append ("€");
+    }
+
     /**
      * Returns a complete string representation of the charger, including details of all {@link ElectricVehicle}s it has recharged.
      * @return A string containing complete information about the charger and its usage history.
@@ -190,51 +275,109 @@ public class Charger
     {
          StringBuilder builder = new StringBuilder();
         
-        builder.append (toString());
+        appendInfo(builder);
         builder.append('\n');
-        for(int i = 0; i < eVsRecharged.size(); i++){
-            builder.append (eVsRecharged.get(i).getInitialFinalInfo()); 
-            builder.append('\n');
+        EVCompany company = station == null ? null : station.getCompany();
+        for (int i = 0; i < ledger.size() && company != null; i++){
+            ElectricVehicle vehicle = company.getVehicleById(ledger.getVehicleId(i));
+            if (vehicle != null){
+                builder.append ("(ElectricVehicle: ");
+                vehicle.appendInfo(builder);
+                builder.append (')').append('\n');
+            }
         }
         
         return builder.toString();
     }
     
     /**
-     * Adds an {@link ElectricVehicle} to the list of vehicles that have been recharged by this charger.
+     * Records a recharge of an {@link ElectricVehicle} in the ledger of this charger.
+     * The counters of the station are updated too.
      * @param vehicle The electric vehicle that was recharged.
+     * @param step The step of the recharge.
+     * @param kws The kWh recharged.
+     * @param fee The fee charged.
      */
+    public void addEvRecharged(ElectricVehicle vehicle, int step, int kws, float fee){
+        ledger.add(vehicle.getId(), step, kws, fee);
+        if (station != null){
+            station.chargerRecharged(1, 0);
+        }
+    }
+    
+    /**
+     * Adds an {@link ElectricVehicle} to the vehicles recharged by this charger, as a recharge with
+     * step -1, 0 kWh and 0 fee. The counters of the station are updated too.
+     * @param vehicle The electric vehicle that was recharged.
+     * @deprecated Use {@link #addEvRecharged(ElectricVehicle, int, int, float)}, which records the recharge itself.
+     */
+    @Deprecated
     public void addEvRecharged(ElectricVehicle vehicle){
-        eVsRecharged.add(vehicle);
+        addEvRecharged(vehicle, -1, 0, 0f);
+    }
+    
+    /**
+     * Removes every recharge from the ledger of this charger, which keeps its capacity. The counters
+     * of the station are updated too. The amount collected is kept.
+     */
+    public void clearRecharges()
+    {
+        int recharges = ledger.size();
+        ledger.clear();
+        if (station != null){
+            station.chargerRecharged(-recharges, 0);
+        }
     }
     
     /**
      * @return The total number of {@link ElectricVehicle}s that have been recharged by this charger.
      */
     public int getNumerEVRecharged(){
-        return eVsRecharged.size();
+        return ledger.size();
     }
     
+    /**
+     * Adds money to the amount collected by the charger. The counters of the station are updated too.
+     * @param collected The money collected.
+     */
     public void refreshAmountCollected(float collected)
     {
         amountCollected += collected;
+        if (station != null){
+            station.chargerRecharged(0, collected);
+        }
     }
     
     
     /**
      * Simulates the charging process for an {@link ElectricVehicle}.
-     * Increases the amount collected and registers the vehicle as recharged.
+     * Increases the amount collected and records the recharge in the ledger, with step -1.
      * @param vehicle The vehicle to recharge.
      * @param kwsRecharging The amount of kWh to be recharged.
      * @return The cost of the recharge operation.
      */
     public float recharge(ElectricVehicle vehicle,int kwsRecharging){
+        return recharge(vehicle, kwsRecharging, -1);
+    }
+    
+    /**
+     * Simulates the charging process for an {@link ElectricVehicle}.
+     * Increases the amount collected and records the recharge in the ledger.
+     * During a flight recording the session is recorded as a {@link RechargeSessionEvent}.
+     * @param vehicle The vehicle to recharge.
+     * @param kwsRecharging The amount of kWh to be recharged.
+     * @param step The step of the recharge.
+     * @return The cost of the recharge operation.
+     */
+    public float recharge(ElectricVehicle vehicle, int kwsRecharging, int step){
         float fee = 0;
         if(kwsRecharging > 0){
+            RechargeSessionEvent event = RechargeSessionEvent.start();
             fee = kwsRecharging * chargingFee;
             refreshAmountCollected(fee);
-            addEvRecharged(vehicle);
+            addEvRecharged(vehicle, step, kwsRecharging, fee);
             vehicle.setBatteryLevel(vehicle.getBatteryCapacity());      //the vehicle is recharged to its max capacity
+            RechargeSessionEvent.finish(event, this, vehicle, kwsRecharging, fee);
         }
         return fee;
     }
@@ -0,0 +1,71 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder event for a vehicle that reaches its recharging station and finds every
+ * charger in use, so it stays idle for the step. The duration of the event is the time spent
+ * looking for a free charger. It is enabled by default with no threshold.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+@Name("ev.ChargerUnavailable")
+@Label("Charger Unavailable")
+@Category("EV Simulation")
+@Description("A vehicle found no free charger at its recharging station")
+@Threshold("0 ms")
+public class ChargerUnavailableEvent extends jdk.jfr.Event
+{
+    /** The type of the event, to check if it is enabled without creating one. */
+    public static final EventType TYPE = EventType.getEventType(ChargerUnavailableEvent.class);
+
+    @Label("Step")
+    public int step;
+
+    @Label("Plate")
+    public String plate;
+
+    @Label("Station")
+    public String station;
+
+    @Label("Chargers")
+    @Description("Number of chargers of the station, all of them in use")
+    public int chargers;
+
+    /**
+     * @return A new event, already begun, or null if no recording has the event enabled.
+     */
+    public static ChargerUnavailableEvent start()
+    {
+        if (!TYPE.isEnabled()){
+            return null;
+        }
+        ChargerUnavailableEvent event = new ChargerUnavailableEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends an event returned by {@link #start()} and commits it if it is over the threshold.
+     * @param event The event, or null.
+     * @param step The step of the simulation.
+     * @param vehicle The vehicle that found no free charger.
+     * @param station The station of the vehicle.
+     */
+    public static void finish(ChargerUnavailableEvent event, int step, ElectricVehicle vehicle, ChargingStation station)
+    {
+        if (event != null){
+            event.end();
+            if (event.shouldCommit()){
+                event.step = step;
+                event.plate = vehicle.getPlate();
+                event.station = station.getId();
+                event.chargers = station.getChargers().size();
+                event.commit();
+            }
+        }
+    }
+}
@@ -9,10 +9,24 @@ import java.lang.Math;
  */
 public class ChargingStation
 {
+    /** Order of the chargers of every station. */
+    private static final ComparatorChargersChargerSpeed CHARGER_ORDER = new ComparatorChargersChargerSpeed();
+    
     private String id;
     private String city;
     private Location location;
     private List <Charger> chargers; 
+    /** The company of the station, whose charger epoch tells when all the chargers were released. */
+    private EVCompany company;
+    /** Bit i is set while charger i of {@code chargers} is in use. */
+    private long[] busy;
+    /** Charger epoch for which {@code busy} is valid. Any other epoch means every charger is free. */
+    private int busyEpoch;
+    /** Running totals of the chargers, kept up to date by {@link #chargerRecharged(int, double)}. */
+    private int numRecharges;
+    private double revenue;
+    /** The vehicles waiting for a free charger, or null if none has ever waited. See {@link EVCompany#setQueuePolicy(QueuePolicy)}. */
+    private StationQueue queue;
     /**
      * Constructor for objects of class ChargingStation.
      * @param city The city where the station is located.
@@ -25,19 +39,27 @@ public class ChargingStation
        this.id = id;
        this.location = location;
        chargers = new ArrayList <Charger> ();
+       company = null;
+       busy = new long[0];
+       busyEpoch = 0;
+       numRecharges = 0;
+       revenue = 0;
+       queue = null;
     }
     
     
     /**
      * Copy constructor of ChargingStation
-     * 
+     * The copy has no waiting vehicles.
      */
     public ChargingStation (ChargingStation otherChargingStation)
     {
        this.city = otherChargingStation.city;
-       this.id = id;
-       this.location = new Location(otherChargingStation.location);
+       this.id = otherChargingStation.id;
+       this.location = otherChargingStation.location;      //locations are immutable, so they can be shared
        this.chargers = new ArrayList <Charger> ();
+       this.company = null;
+       this.queue = null;
        
        //Copy of every single charger, not its reference.
        
@@ -45,6 +67,7 @@ public class ChargingStation
            Charger charger = new Charger (otherChargingStation.chargers.get(i));
            this.chargers.add (charger);
        }
+       placeChargers();
     }
 
     /**
@@ -81,25 +104,103 @@ public class ChargingStation
     }
     
     /**
-     * Retrieves the first free {@link Charger} found at the station.
-     * @return A free {@link Charger}, or possibly throws an exception if none are found (depending on stream implementation details).
+     * Retrieves the first free {@link Charger} found at the station, in the order kept by {@link #addCharger(Charger)}.
+     * The occupation of the chargers is kept in a bitset, so this looks at one word for every 64 chargers.
+     * @return A free {@link Charger}, or null if none are found.
      *
      */
     public Charger getFreeCharger()
     {   
-        Charger current = null;
-        boolean found = false;
-        for (int i = 0; i < chargers.size()&&!found; i++){
-            current = chargers.get(i);
-            if (current.getChargerFree()){
-            found = true;
+        long start = Metrics.start();
+        syncBusy();
+        int size = chargers.size();
+        Charger found = null;
+        for (int word = 0; word < busy.length; word++){
+            long free = ~busy[word];
+            if (free != 0){
+                int slot = (word << 6) + Long.numberOfTrailingZeros(free);
+                found = slot < size ? chargers.get(slot) : null;
+                break;
             }
         }
-        
-        if (!found){
-            current = null;
+        if (found == null){
+            Metrics.count(MetricCounter.FAILED_FREE_CHARGER_LOOKUPS);
         }
-        return current;
+        Metrics.record(MetricPhase.FREE_CHARGER, start);
+        return found;
+    }
+    
+    /**
+     * @param slot The position of a charger in the station.
+     * @return Whether or not the charger is free.
+     */
+    public boolean isChargerFree(int slot)
+    {
+        syncBusy();
+        return (busy[slot >>> 6] & (1L << slot)) == 0;
+    }
+    
+    /**
+     * Set the occupation state of a charger.
+     * @param slot The position of the charger in the station.
+     * @param free True to set it free and false to set it in use.
+     */
+    public void setChargerFree(int slot, boolean free)
+    {
+        syncBusy();
+        if (free){
+            busy[slot >>> 6] &= ~(1L << slot);
+        }
+        else{
+            busy[slot >>> 6] |= 1L << slot;
+        }
+    }
+    
+    /**
+     * Sets every charger of the station free.
+     */
+    public void releaseAllChargers()
+    {
+        syncBusy();
+        Arrays.fill(busy, 0L);
+    }
+    
+    /**
+     * @return The vehicles waiting for a free charger at the station and the statistics of the waits,
+     * or null if no vehicle has ever waited at the station.
+     */
+    public StationQueue getQueue()
+    {
+        return queue;
+    }
+    
+    /**
+     * Set the queue of the station. Used by {@link EVCompany} when a vehicle has to wait at it for the first time.
+     * @param queue The new queue.
+     */
+    void setQueue(StationQueue queue)
+    {
+        this.queue = queue;
+    }
+    
+    /**
+     * @return The company of the station, or null if it does not belong to one.
+     */
+    public EVCompany getCompany()
+    {
+        return company;
+    }
+    
+    /**
+     * Set the company of the station. The chargers keep their occupation state.
+     * Used by {@link EVCompany} when the station is added to it.
+     * @param company The company of the station.
+     */
+    public void setCompany(EVCompany company)
+    {
+        unplaceChargers();
+        this.company = company;
+        placeChargers();
     }
     
     
@@ -111,6 +212,9 @@ public class ChargingStation
     public void setLocation(Location location)
     {
         this.location = location;
+        if (company != null){
+            company.stationsChanged();
+        }
     }
 
     /**
@@ -141,32 +245,74 @@ public class ChargingStation
     {
         StringBuilder builder = new StringBuilder();
         
+        appendInfo(builder);
+        
+        return builder.toString();
+    }
+
+    /**
+     * Appends the representation given by {@link #toString()}. Used by {@link ReportWriter}.
+     * @param builder Where the representation is appended.
+     */
+    void appendInfo(StringBuilder builder)
+    {
         builder.append (getId());
         builder.append ('\n');
         builder.append (getCity());
         builder.append ('\n');
         builder.append (getNumerEVRecharged());
         builder.append ('\n');
-        builder.append (getLocation());
-        
-        return builder.toString();
+        builder.append (getLocation().getX()).append ('-').append (getLocation().getY());
     }
     
     /**
-     * Calculates the total number of {@link ElectricVehicle}s recharged across all {@link Charger}s at this station.
+     * Gets the total number of {@link ElectricVehicle}s recharged across all {@link Charger}s at this station.
+     * It is a running total, so it takes constant time.
      * @return The total number of unique recharges.
      */
     public int getNumerEVRecharged()
     {
-        int numero = 0;
-        for (Charger c : this.chargers){
-            numero += c.getNumerEVRecharged();
+        return numRecharges;
+    }
+    
+    /**
+     * Gets the total amount of money collected by all the {@link Charger}s at this station.
+     * It is a running total, so it takes constant time.
+     * @return The money collected by the station.
+     */
+    public double getRevenue()
+    {
+        return revenue;
+    }
+    
+    /**
+     * Gets the chargers of the station that have collected the most money.
+     * @param n The maximum number of chargers returned.
+     * @return A new list with at most n chargers, ordered by {@link ComparatorChargerAmountCollected}.
+     */
+    public List<Charger> getTopRevenueChargers(int n)
+    {
+        return TopK.select(chargers, n, new ComparatorChargerAmountCollected());
+    }
+    
+    /**
+     * Updates the running totals of the station and its company when one of its chargers recharges.
+     * Called by {@link Charger} every time its recharges or its amount collected change.
+     * @param recharges The number of new recharges.
+     * @param collected The new money collected.
+     */
+    void chargerRecharged(int recharges, double collected)
+    {
+        numRecharges += recharges;
+        revenue += collected;
+        if (company != null){
+            company.stationRecharged(recharges, collected);
         }
-        return numero;
     }
     
     /**
      * Adds a new {@link Charger} to the station.
+     * Chargers must be added with this method, so that the station knows their positions.
      * @param charger The new charger unit.
      */
     public void addCharger(Charger charger)
@@ -174,7 +320,7 @@ public class ChargingStation
        int i = 0;
        boolean found = false;
        Charger current;
-       ComparatorChargersChargerSpeed cmp = new ComparatorChargersChargerSpeed ();
+       ComparatorChargersChargerSpeed cmp = CHARGER_ORDER;
        while ( i < chargers.size()&&!found){
            current = chargers.get(i);
            if (cmp.compare (charger,current) > 0){     
@@ -184,10 +330,79 @@ public class ChargingStation
                i++;
            }
        }
+       unplaceChargers();
        chargers.add(i,charger);
+       placeChargers();
+    }
+    
+    /**
+     * Unlinks every charger from the station. Each one keeps its occupation state by itself
+     * until {@link #placeChargers()} is called.
+     */
+    private void unplaceChargers()
+    {
+        for (int i = 0; i < chargers.size(); i++){
+            chargers.get(i).setStation(null, -1);
+        }
+        chargerRecharged(-numRecharges, -revenue);
+    }
+    
+    /**
+     * Links every charger with its position in the station and rebuilds the bitset from their occupation state.
+     */
+    private void placeChargers()
+    {
+        int size = chargers.size();
+        busy = new long[(size + 63) >>> 6];
+        busyEpoch = currentEpoch();
+        int recharges = 0;
+        double collected = 0;
+        for (int i = 0; i < size; i++){
+            Charger charger = chargers.get(i);
+            if (!charger.getChargerFree()){
+                busy[i >>> 6] |= 1L << i;
+            }
+            charger.setStation(this, i);
+            recharges += charger.getNumerEVRecharged();
+            collected += charger.getAmountCollected();
+        }
+        chargerRecharged(recharges, collected);
+    }
+    
+    /**
+     * Clears the bitset if the company has released all its chargers since it was last used.
+     */
+    private void syncBusy()
+    {
+        int epoch = currentEpoch();
+        if (busyEpoch != epoch){
+            Arrays.fill(busy, 0L);
+            busyEpoch = epoch;
+        }
+    }
+    
+    /**
+     * @return The charger epoch of the company, or 0 if the station does not belong to one.
+     */
+    private int currentEpoch()
+    {
+        return company == null ? 0 : company.getChargerEpoch();
     }
     
     
+    /**
+     * Adds many new {@link Charger}s to the station at once.
+     * They end up in the same order as if they were added one by one with {@link #addCharger(Charger)},
+     * but the chargers are sorted only once.
+     * @param newChargers The new charger units.
+     */
+    public void addChargers(Collection<Charger> newChargers)
+    {
+       unplaceChargers();
+       SortedBulkLoader.addAll(chargers, newChargers, CHARGER_ORDER);
+       placeChargers();
+    }
+    
     public String showFinalInfoChargers () 
     {
         StringBuilder builder = new StringBuilder();
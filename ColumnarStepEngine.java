@@ -0,0 +1,83 @@
+import java.util.List;
+
+/**
+ * Runs the steps of an {@link EVDemo} over a {@link FleetStore}, so that route planning and the
+ * movement of the fleet are done by the column kernels instead of vehicle by vehicle.
+ * The vehicle objects are only brought up to date when one of them has to recharge, when the
+ * step information is recorded, and at the end of the run. The store is kept from one run to the
+ * next, and only built again when the fleet or the stations change; at the start of every run it
+ * takes the state of the vehicles again, since they may have been changed in between.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class ColumnarStepEngine
+{
+    /** The demo whose steps are run. */
+    private EVDemo demo;
+    /** The vehicles of the demo, in the order in which they act. */
+    private List<ElectricVehicle> vehicles;
+    /** The company of the demo. */
+    private EVCompany company;
+    /** Where the step information of the vehicles goes, or null if it is not recorded. */
+    private StepEventSink sink;
+    /** The columns of the last run, or null before the first one. */
+    private FleetStore store;
+
+    /**
+     * Constructor for objects of class ColumnarStepEngine. From now on the company cannot have a
+     * {@link DecisionJournal}, since the kernels of the {@link FleetStore} do not report their decisions,
+     * or a {@link QueuePolicy}, since they do not know about waiting vehicles.
+     * @param demo The demo whose steps are run.
+     * @param vehicles The vehicles of the demo, in the order in which they act.
+     * @param company The company of the demo.
+     * @param sink Where the step information of the vehicles goes, or null if it is not recorded.
+     * @throws UnsupportedOperationException If the company has a journal or a queue policy.
+     */
+    public ColumnarStepEngine(EVDemo demo, List<ElectricVehicle> vehicles, EVCompany company, StepEventSink sink)
+    {
+        company.setColumnar();
+        this.demo = demo;
+        this.vehicles = vehicles;
+        this.company = company;
+        this.sink = sink;
+    }
+
+    /**
+     * Run the steps [fromStep, toStep) of the simulation for every vehicle.
+     * @param fromStep The first step to run.
+     * @param toStep The step after the last one to run.
+     */
+    public void run(int fromStep, int toStep)
+    {
+        if (store == null || !store.matches(vehicles, company)){
+            store = new FleetStore(vehicles, company);
+        }
+        else{
+            store.captureAll();
+        }
+        int size = store.size();
+
+        for (int step = fromStep; step < toStep; step++){
+            store.planRoutes(0, size);
+            if (sink != null){
+                for (int i = 0; i < size; i++){
+                    store.publish(i);
+                    long start = Metrics.start();
+                    sink.vehicleStep(step, store.getVehicle(i));
+                    Metrics.record(MetricPhase.LOGGING, start);
+                }
+            }
+            Metrics.count(MetricCounter.IDLE_INCREMENTS, store.move(0, size, step));
+            for (int i = 0; i < size; i++){
+                if (store.isPendingRecharge(i)){
+                    store.publish(i);
+                    demo.resetAllChargersInCompany();
+                    store.getVehicle(i).recharge(step);
+                    store.capture(i);
+                }
+            }
+        }
+
+        store.publishAll();
+    }
+}
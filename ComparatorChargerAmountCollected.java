@@ -0,0 +1,35 @@
+import java.util.*; 
+
+/**
+ * Compares two {@link Charger} objects based on their **AmountCollected** float in **descending** order.
+ * If theres a tie, it will order by Id (String) in ascending order.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class ComparatorChargerAmountCollected implements Comparator<Charger>
+{
+    /** Tie-breaker, shared so that comparing does not create objects. */
+    private static final ComparatorChargerId BY_ID = new ComparatorChargerId();
+    
+    /**
+     * Compares its two {@link Charger} arguments for order.
+     * @param c1 The first charger to be compared.
+     * @param c2 The second charger to be compared.
+     * @return A negative integer if c1 has collected more money or the same amount but has a smaller ID,
+     * zero if both are equal, or a positive integer otherwise.
+     */
+    public int compare(Charger c1, Charger c2)
+    {
+        if (c1.getAmountCollected() == c2.getAmountCollected()){
+            return BY_ID.compare(c1,c2);
+        }
+        else{
+            if (c1.getAmountCollected() < c2.getAmountCollected()){
+                return 1;
+            }
+            else{
+                return -1;
+            }
+        }
+    }
+}
@@ -8,6 +8,8 @@ import java.util.*;
  */
 public class ComparatorChargersChargerPrice implements Comparator<Charger>
 {
+    private static final ComparatorChargerId BY_ID = new ComparatorChargerId();
+    
     /**
      * Compares its two {@link Charger} arguments for order.
      * The comparison is based on the lexicographical order of their IDs.
@@ -19,7 +21,7 @@ public class ComparatorChargersChargerPrice implements Comparator<Charger>
     public int compare(Charger c1, Charger c2)
     {
         if (c1.getChargingFee()==c2.getChargingFee()){
-            return new ComparatorChargerId().compare (c1,c2);
+            return BY_ID.compare (c1,c2);
         }
         else{
             if (c1.getChargingFee () > c2.getChargingFee()){
@@ -8,6 +8,8 @@ import java.util.*;
  */
 public class ComparatorChargersChargerSpeed implements Comparator<Charger>
 {
+    private static final ComparatorChargersChargerPrice BY_PRICE = new ComparatorChargersChargerPrice();
+    
     /**
      * Compares its two {@link Charger} arguments for order.
      * The comparison is based on the lexicographical order of their IDs.
@@ -19,7 +21,7 @@ public class ComparatorChargersChargerSpeed implements Comparator<Charger>
     public int compare(Charger c1, Charger c2)
     {
         if (c1.getChargingSpeed() == c2.getChargingSpeed()){
-            return new ComparatorChargersChargerPrice().compare(c1,c2);
+            return BY_PRICE.compare(c1,c2);
         }
         else{
             if (c1.getChargingSpeed() < c2.getChargingSpeed()){
@@ -8,6 +8,8 @@ import java.util.Comparator;
  */
 public class ComparatorChargingStationNumberEvCharged implements Comparator <ChargingStation>
 {
+    private static final ComparatorChargingStationId BY_ID = new ComparatorChargingStationId();
+    
     // instance variables - replace the example below with your own
     /**
      * Constructor for objects of class ComparatorChargingStationNumberEvCharged
@@ -15,7 +17,7 @@ public class ComparatorChargingStationNumberEvCharged implements Comparator <Cha
     public int compare (ChargingStation st1, ChargingStation st2)
     {
         if (st1.getNumerEVRecharged() == st2.getNumerEVRecharged())
-            return new ComparatorChargingStationId().compare(st1,st2);
+            return BY_ID.compare(st1,st2);
         else{
             if (st1.getNumerEVRecharged() < st2.getNumerEVRecharged())
                 return 1;
@@ -10,6 +10,8 @@ import java.util.*;
  */
 public class ComparatorChargingStationNumberRecharged implements Comparator<ChargingStation>
 {
+    private static final ComparatorChargingStationId BY_ID = new ComparatorChargingStationId();
+    
     /**
      * Compares its two {@link ChargingStation} arguments for order.
      * * @param st1 The first charging station to be compared.
@@ -22,6 +24,6 @@ public class ComparatorChargingStationNumberRecharged implements Comparator<Char
             return -1;
         else if (st1.getNumerEVRecharged() < st2.getNumerEVRecharged())
             return 1;
-        else return (new ComparatorChargingStationId().compare(st1,st2));
+        else return (BY_ID.compare(st1,st2));
     } 
 }
\ No newline at end of file
@@ -8,13 +8,15 @@ import java.util.Comparator;
  */
 public class ComparatorVehicleArrivingStep implements Comparator <ElectricVehicle>
 {
+    private static final ComparatorVehiclePlate BY_PLATE = new ComparatorVehiclePlate();
+    
     /**
      * Constructor for objects of class ComparatorVehicleArrivingStep
      */
     public int compare (ElectricVehicle v1, ElectricVehicle v2)
     {
         if (v1.getArrivingStep() == v2.getArrivingStep())
-            return new ComparatorVehiclePlate().compare (v1,v2);
+            return BY_PLATE.compare (v1,v2);
         else{
             if (v1.getArrivingStep() > v2.getArrivingStep())
                 return 1;
@@ -0,0 +1,39 @@
+import java.io.PrintStream;
+
+/**
+ * A {@link StepEventSink} that prints the step information of every vehicle right away,
+ * as {@link ElectricVehicle#getStepInfo(int)}, on the calling thread.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class ConsoleStepSink implements StepEventSink
+{
+    private PrintStream out;
+
+    /**
+     * Constructor for objects of class ConsoleStepSink.
+     * @param out The stream the step information is printed to.
+     */
+    public ConsoleStepSink(PrintStream out)
+    {
+        this.out = out;
+    }
+
+    @Override
+    public void vehicleStep(int step, ElectricVehicle vehicle)
+    {
+        out.println(vehicle.getStepInfo(step));
+    }
+
+    @Override
+    public void flush()
+    {
+        out.flush();
+    }
+
+    @Override
+    public void close()
+    {
+        out.flush();
+    }
+}
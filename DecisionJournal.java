@@ -0,0 +1,707 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An append-only journal of the decisions taken by the vehicles of a company during a run: the
+ * routes calculated, the chargers picked, the runs of idle steps and the arrivals (see
+ * {@link DecisionType}). A journal is attached to an {@link EVCompany} and works in one of the
+ * modes of {@link JournalMode}:
+ * <ul>
+ * <li>{@link JournalMode#RECORD}: the decisions are appended to a file.</li>
+ * <li>{@link JournalMode#VERIFY}: the decisions are compared with the ones of a recorded file, to
+ * check that a new run is equivalent to the recorded one.</li>
+ * <li>{@link JournalMode#REPLAY}: the stations and the chargers are taken from a recorded file
+ * instead of being searched, so the state of the run is rebuilt without the planning work, and
+ * the rest of the decisions are verified.</li>
+ * </ul>
+ *
+ * Every decision is a record of three longs: the vehicle id and the number of the decision for that
+ * vehicle, the step and the type, and a payload (the packed location of the station, the position of
+ * the charger in its station, or the length of an idle run). Since every record says which decision
+ * of which vehicle it is, the records do not have to be written in order: every thread fills a batch
+ * of its own and, when the batch is full, reserves room at the end of the file with an atomic add and
+ * copies the batch into the memory-mapped pages. Nothing is locked on the way, except to map a new
+ * segment of the file every few tens of megabytes. The idle steps of a vehicle are kept as runs, so a
+ * vehicle waiting for many steps writes one record. A vehicle that has arrived stays idle for good, so
+ * its run is not counted step by step: its length is taken from the idle count of the vehicle when the
+ * run ends.
+ *
+ * The engines tell the journal the current step with {@link #setStep(int)}. The journal is fed by the
+ * methods of {@link ElectricVehicle}, so it works with every engine except the
+ * {@link ColumnarStepEngine}, whose kernels do not call them, and which a company with a journal
+ * cannot have; the journals of the other engines are the same for the same run. {@link #flush()} and
+ * {@link #close()} must be called between steps.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class DecisionJournal
+{
+    /** First int of every journal file. */
+    private static final int MAGIC = 0x45564A52;
+    /** Version of the format. */
+    private static final int FORMAT = 1;
+    /** Number of longs of a record. */
+    private static final int RECORD_LONGS = 3;
+    /** Number of bytes of a record. */
+    private static final int RECORD_BYTES = 8 * RECORD_LONGS;
+    /** Number of bytes of the header, a multiple of the size of a record so no record is split between segments. */
+    private static final int HEADER_BYTES = 2 * RECORD_BYTES;
+    /** Position in the header of the number of records. */
+    private static final int COUNT_OFFSET = 16;
+    /** Number of bytes of a mapped segment of the file, a multiple of the size of a record. */
+    private static final int SEGMENT_BYTES = RECORD_BYTES << 21;
+    /** Maximum number of segments of a file. */
+    private static final int MAX_SEGMENTS = 1 << 12;
+    /** Number of records of the batch of every thread. */
+    private static final int BATCH = 256;
+    /** Payload of a route with no station and of a charger pick that found none. */
+    private static final long NONE = -1L;
+
+    private JournalMode mode;
+    private EVCompany company;
+    private Path file;
+    /** The current step, set by the engines between steps. */
+    private int step;
+
+    /** Number of decisions of every vehicle so far, by id. */
+    private int[] sequence;
+    /** Idle run of every vehicle not written yet, by id: its first step and its length. */
+    private int[] idleStart;
+    private int[] idleLength;
+    /** Every vehicle that has arrived, by id, or null, and its idle count when its idle run started. */
+    private ElectricVehicle[] arrived;
+    private int[] arrivedIdleCount;
+
+    /** Fields of the {@link JournalMode#RECORD} mode. */
+    private FileChannel channel;
+    private AtomicReferenceArray<MappedByteBuffer> segments;
+    /** Number of bytes of records reserved so far. */
+    private AtomicLong tail;
+    private ThreadLocal<Batch> batches;
+    private Queue<Batch> allBatches;
+
+    /** Fields of the {@link JournalMode#VERIFY} and {@link JournalMode#REPLAY} modes. */
+    private long[] expected;
+    private int[] expectedStart;
+    private int[] expectedCount;
+    private AtomicLong mismatches;
+    private AtomicReference<String> firstMismatch;
+    private AtomicLong replayed;
+
+    /**
+     * Constructor for objects of class DecisionJournal. Use {@link #record(Path, EVCompany)},
+     * {@link #verify(Path, EVCompany)} or {@link #replay(Path, EVCompany)}.
+     */
+    private DecisionJournal(JournalMode mode, EVCompany company, Path file)
+    {
+        this.mode = mode;
+        this.company = company;
+        this.file = file;
+        this.sequence = new int[0];
+        this.idleStart = new int[0];
+        this.idleLength = new int[0];
+        this.arrived = new ElectricVehicle[0];
+        this.arrivedIdleCount = new int[0];
+        this.mismatches = new AtomicLong();
+        this.firstMismatch = new AtomicReference<String>();
+        this.replayed = new AtomicLong();
+        ensureCapacity();
+    }
+
+    /**
+     * Creates a journal that records the decisions of the vehicles of a company, and attaches it to the company.
+     * @param file The path of the journal file, which is created or overwritten.
+     * @param company The company.
+     * @return The journal.
+     * @throws IOException If the file cannot be created.
+     * @throws UnsupportedOperationException If a {@link ColumnarStepEngine} runs the steps of the company.
+     */
+    public static DecisionJournal record(Path file, EVCompany company) throws IOException
+    {
+        checkEngine(company);
+        DecisionJournal journal = new DecisionJournal(JournalMode.RECORD, company, file);
+        journal.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                           StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        journal.segments = new AtomicReferenceArray<MappedByteBuffer>(MAX_SEGMENTS);
+        journal.tail = new AtomicLong();
+        journal.allBatches = new ConcurrentLinkedQueue<Batch>();
+        journal.batches = ThreadLocal.withInitial(() -> journal.newBatch());
+        MappedByteBuffer header = journal.segment(0);
+        header.putInt(0, MAGIC);
+        header.putInt(4, FORMAT);
+        header.putInt(8, RECORD_BYTES);
+        header.putLong(COUNT_OFFSET, 0);
+        company.setJournal(journal);
+        return journal;
+    }
+
+    /**
+     * Creates a journal that compares the decisions of the vehicles of a company with the ones of a
+     * recorded file, and attaches it to the company.
+     * @param file The path of a journal file written in {@link JournalMode#RECORD} mode.
+     * @param company The company, in the state in which the recorded run started.
+     * @return The journal.
+     * @throws IOException If the file cannot be read or is not a journal.
+     * @throws UnsupportedOperationException If a {@link ColumnarStepEngine} runs the steps of the company.
+     */
+    public static DecisionJournal verify(Path file, EVCompany company) throws IOException
+    {
+        checkEngine(company);
+        DecisionJournal journal = new DecisionJournal(JournalMode.VERIFY, company, file);
+        journal.load();
+        company.setJournal(journal);
+        return journal;
+    }
+
+    /**
+     * Creates a journal that gives the vehicles of a company the stations and the chargers of a recorded
+     * file, and verifies the rest of their decisions, and attaches it to the company.
+     * @param file The path of a journal file written in {@link JournalMode#RECORD} mode.
+     * @param company The company, in the state in which the recorded run started.
+     * @return The journal.
+     * @throws IOException If the file cannot be read or is not a journal.
+     * @throws UnsupportedOperationException If a {@link ColumnarStepEngine} runs the steps of the company.
+     */
+    public static DecisionJournal replay(Path file, EVCompany company) throws IOException
+    {
+        checkEngine(company);
+        DecisionJournal journal = new DecisionJournal(JournalMode.REPLAY, company, file);
+        journal.load();
+        company.setJournal(journal);
+        return journal;
+    }
+
+    /**
+     * @return The mode of the journal.
+     */
+    public JournalMode getMode()
+    {
+        return mode;
+    }
+
+    /**
+     * @return Whether or not the stations and the chargers are taken from the journal.
+     */
+    public boolean isReplaying()
+    {
+        return mode == JournalMode.REPLAY;
+    }
+
+    /**
+     * @return The number of records written so far, or the number of records of the file read.
+     */
+    public long getRecords()
+    {
+        return mode == JournalMode.RECORD ? tail.get() / RECORD_BYTES : expected.length / RECORD_LONGS;
+    }
+
+    /**
+     * @return The number of decisions that did not match the file read, including the ones missing
+     * in the run or in the file. Always 0 in {@link JournalMode#RECORD} mode.
+     */
+    public long getMismatches()
+    {
+        return mismatches.get();
+    }
+
+    /**
+     * @return A description of the first decision that did not match the file read, or null if there is none.
+     */
+    public String getFirstMismatch()
+    {
+        return firstMismatch.get();
+    }
+
+    /**
+     * @return The number of stations and chargers taken from the file in {@link JournalMode#REPLAY} mode.
+     */
+    public long getReplayed()
+    {
+        return replayed.get();
+    }
+
+    /**
+     * Sets the current step. Called by the engines before the vehicles act, never during a parallel phase.
+     * @param step The current step of the simulation.
+     */
+    public void setStep(int step)
+    {
+        this.step = step;
+        if (company.getVehicleIdLimit() > sequence.length){
+            ensureCapacity();
+        }
+        if (mode == JournalMode.RECORD){
+            segments.get(0).putLong(COUNT_OFFSET, tail.get() / RECORD_BYTES);
+        }
+    }
+
+    /**
+     * Records the result of {@link ElectricVehicle#calculateRoute()}.
+     * @param vehicle The vehicle.
+     * @param station The {@link Location} of the station chosen to recharge, or null.
+     */
+    public void route(ElectricVehicle vehicle, Location station)
+    {
+        decision(vehicle, DecisionType.ROUTE, station == null ? NONE : station.getPacked());
+    }
+
+    /**
+     * Records the charger picked by {@link ElectricVehicle#recharge(int)}.
+     * @param vehicle The vehicle.
+     * @param charger The charger picked, or null if every charger was in use.
+     */
+    public void charger(ElectricVehicle vehicle, Charger charger)
+    {
+        decision(vehicle, DecisionType.CHARGER, charger == null ? NONE : charger.getSlot());
+    }
+
+    /**
+     * Records the arrival of a vehicle at its target location on the current step, and opens the
+     * idle run of the vehicle from the next step on.
+     * @param vehicle The vehicle.
+     */
+    public void arrival(ElectricVehicle vehicle)
+    {
+        decision(vehicle, DecisionType.ARRIVAL, 0);
+        int id = vehicle.getId();
+        if (id >= 0 && id < sequence.length){
+            arrived[id] = vehicle;
+            idleStart[id] = step + 1;
+            arrivedIdleCount[id] = vehicle.getIdleCount();
+        }
+    }
+
+    /**
+     * Records that a vehicle stays idle on the current step. Nothing is done for a vehicle that has
+     * arrived, since its idle run is open until it ends.
+     * @param vehicle The vehicle.
+     */
+    public void idle(ElectricVehicle vehicle)
+    {
+        idle(vehicle, step, 1);
+    }
+
+    /**
+     * Records that a vehicle has stayed idle on the steps just before the current one, skipped with
+     * {@link ElectricVehicle#skipSteps(int)}.
+     * @param vehicle The vehicle.
+     * @param steps The number of steps.
+     */
+    public void idleSkipped(ElectricVehicle vehicle, int steps)
+    {
+        idle(vehicle, step - steps, steps);
+    }
+
+    /**
+     * Gets the station recorded for the route of a vehicle in {@link JournalMode#REPLAY} mode. If the
+     * next decision of the vehicle in the file is not a route of the current step, the station is
+     * searched as usual and the difference is counted when the route is recorded.
+     * @param vehicle The vehicle.
+     * @return The {@link Location} of the station, or null if no station was chosen.
+     */
+    public Location replayRoute(ElectricVehicle vehicle)
+    {
+        int record = nextExpected(vehicle, DecisionType.ROUTE);
+        if (record < 0){
+            return vehicle.calculateRechargingPosition();
+        }
+        replayed.incrementAndGet();
+        long station = expected[record + 2];
+        return station == NONE ? null : Location.of(station);
+    }
+
+    /**
+     * Gets the charger recorded for a recharge of a vehicle in {@link JournalMode#REPLAY} mode. If the
+     * next decision of the vehicle in the file is not a charger pick of the current step, a free charger
+     * is searched as usual and the difference is counted when the pick is recorded.
+     * @param vehicle The vehicle.
+     * @param station The station where the vehicle recharges.
+     * @return The charger, or null if every charger was in use.
+     */
+    public Charger replayCharger(ElectricVehicle vehicle, ChargingStation station)
+    {
+        int record = nextExpected(vehicle, DecisionType.CHARGER);
+        long slot = record < 0 ? 0 : expected[record + 2];
+        if (record < 0 || slot >= station.getChargers().size()){
+            return station.getFreeCharger();
+        }
+        replayed.incrementAndGet();
+        return slot == NONE ? null : station.getChargers().get((int) slot);
+    }
+
+    /**
+     * Writes every decision recorded so far, except the idle runs that have not ended yet, and updates
+     * the number of records of the file. It must be called between steps.
+     */
+    public void flush()
+    {
+        if (mode == JournalMode.RECORD){
+            for (Batch batch : allBatches){
+                writeBatch(batch);
+            }
+            segments.get(0).putLong(COUNT_OFFSET, tail.get() / RECORD_BYTES);
+        }
+    }
+
+    /**
+     * Ends the idle runs, writes every decision and detaches the journal from its company. In
+     * {@link JournalMode#VERIFY} and {@link JournalMode#REPLAY} mode the decisions of the file that the
+     * run has not taken are counted as mismatches. It must be called between steps.
+     * @throws IOException If the file cannot be written.
+     */
+    public void close() throws IOException
+    {
+        for (int id = 0; id < idleLength.length; id++){
+            endIdleRun(id);
+        }
+        if (company.getJournal() == this){
+            company.setJournal(null);
+        }
+        if (mode == JournalMode.RECORD){
+            flush();
+            for (int i = 0; i < MAX_SEGMENTS && segments.get(i) != null; i++){
+                segments.get(i).force();
+                segments.set(i, null);
+            }
+            try{
+                channel.truncate(HEADER_BYTES + tail.get());
+            }
+            catch (IOException e){
+                //some platforms do not shrink files that are still mapped: the records are counted in the header anyway
+            }
+            channel.close();
+        }
+        else{
+            for (int id = 0; id < sequence.length && id < expectedCount.length; id++){
+                for (int missing = sequence[id]; missing < expectedCount[id]; missing++){
+                    mismatch(id, missing, expectedStart[id] + missing * RECORD_LONGS, -1, 0, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return A string with the mode, the file and the counters of the journal.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Journal ");
+        builder.append(mode.getName());
+        builder.append(' ');
+        builder.append(file);
+        builder.append(": ");
+        builder.append(getRecords());
+        builder.append(" records");
+        if (mode != JournalMode.RECORD){
+            builder.append(", ");
+            builder.append(getMismatches());
+            builder.append(" mismatches");
+        }
+        if (mode == JournalMode.REPLAY){
+            builder.append(", ");
+            builder.append(getReplayed());
+            builder.append(" replayed");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Records a decision that is not an idle step, after ending the idle run of the vehicle.
+     */
+    private void decision(ElectricVehicle vehicle, DecisionType type, long payload)
+    {
+        int id = vehicle.getId();
+        if (id >= 0 && id < sequence.length){
+            endIdleRun(id);
+            emit(id, step, type, payload);
+        }
+    }
+
+    /**
+     * Adds some idle steps to the idle run of a vehicle, or starts a new run if they do not follow it.
+     */
+    private void idle(ElectricVehicle vehicle, int first, int steps)
+    {
+        int id = vehicle.getId();
+        if (id >= 0 && id < sequence.length && steps > 0 && arrived[id] == null){
+            if (idleLength[id] > 0 && idleStart[id] + idleLength[id] == first){
+                idleLength[id] += steps;
+            }
+            else{
+                endIdleRun(id);
+                idleStart[id] = first;
+                idleLength[id] = steps;
+            }
+        }
+    }
+
+    /**
+     * Records the idle run of a vehicle, if it has one. The run of a vehicle that has arrived has the
+     * steps it has been idle since the run started, and a new run is opened from the current step.
+     */
+    private void endIdleRun(int id)
+    {
+        if (arrived[id] != null){
+            int idleCount = arrived[id].getIdleCount();
+            if (idleCount > arrivedIdleCount[id]){
+                emit(id, idleStart[id], DecisionType.IDLE, idleCount - arrivedIdleCount[id]);
+            }
+            idleStart[id] = step;
+            arrivedIdleCount[id] = idleCount;
+        }
+        else if (idleLength[id] > 0){
+            emit(id, idleStart[id], DecisionType.IDLE, idleLength[id]);
+            idleLength[id] = 0;
+        }
+    }
+
+    /**
+     * Writes a decision, or compares it with the file, as the mode says.
+     */
+    private void emit(int id, int decisionStep, DecisionType type, long payload)
+    {
+        int number = sequence[id]++;
+        long first = ((long) id << 32) | (number & 0xFFFFFFFFL);
+        long second = ((long) decisionStep << 32) | type.ordinal();
+        if (mode == JournalMode.RECORD){
+            Batch batch = batches.get();
+            batch.records[batch.size++] = first;
+            batch.records[batch.size++] = second;
+            batch.records[batch.size++] = payload;
+            if (batch.size == batch.records.length){
+                writeBatch(batch);
+            }
+        }
+        else{
+            int record = expectedRecord(id, number);
+            if (record < 0 || expected[record + 1] != second || expected[record + 2] != payload){
+                mismatch(id, number, record, decisionStep, type.ordinal(), payload);
+            }
+        }
+    }
+
+    /**
+     * @return The position in {@code expected} of the next decision of a vehicle if it is of the given type
+     * and of the current step, or -1.
+     */
+    private int nextExpected(ElectricVehicle vehicle, DecisionType type)
+    {
+        int id = vehicle.getId();
+        if (id < 0 || id >= sequence.length){
+            return -1;
+        }
+        endIdleRun(id);
+        int record = expectedRecord(id, sequence[id]);
+        if (record < 0 || expected[record + 1] != (((long) step << 32) | type.ordinal())){
+            return -1;
+        }
+        return record;
+    }
+
+    /**
+     * @return The position in {@code expected} of a decision of a vehicle, or -1 if the file does not have it.
+     */
+    private int expectedRecord(int id, int number)
+    {
+        if (id >= expectedCount.length || number >= expectedCount[id]){
+            return -1;
+        }
+        return expectedStart[id] + number * RECORD_LONGS;
+    }
+
+    /**
+     * Counts a mismatch, and describes it if it is the first one.
+     * @param record The position in {@code expected} of the decision of the file, or -1 if there is none.
+     * @param type The type of the decision of the run, or -1 if there is none.
+     */
+    private void mismatch(int id, int number, int record, int decisionStep, int type, long payload)
+    {
+        mismatches.incrementAndGet();
+        if (firstMismatch.get() == null){
+            String found = type < 0 ? "nothing" : describe(decisionStep, type, payload);
+            String wanted = record < 0 ? "nothing"
+                            : describe((int) (expected[record + 1] >>> 32), (int) expected[record + 1], expected[record + 2]);
+            firstMismatch.compareAndSet(null, "Vehicle " + id + ", decision " + number + ": expected " + wanted + ", found " + found);
+        }
+    }
+
+    private static String describe(int decisionStep, int type, long payload)
+    {
+        DecisionType decision = DecisionType.values()[type];
+        String value;
+        if (decision == DecisionType.ROUTE){
+            value = payload == NONE ? "no station" : "station " + Location.of(payload);
+        }
+        else if (decision == DecisionType.CHARGER){
+            value = payload == NONE ? "no charger" : "charger " + payload;
+        }
+        else if (decision == DecisionType.IDLE){
+            value = payload + " steps";
+        }
+        else{
+            value = "target";
+        }
+        return decision.getName() + " at step " + decisionStep + " (" + value + ")";
+    }
+
+    /**
+     * Grows the per-vehicle arrays to the ids of the company.
+     */
+    private void ensureCapacity()
+    {
+        int capacity = company.getVehicleIdLimit();
+        if (capacity > sequence.length){
+            sequence = Arrays.copyOf(sequence, capacity);
+            idleStart = Arrays.copyOf(idleStart, capacity);
+            idleLength = Arrays.copyOf(idleLength, capacity);
+            arrived = Arrays.copyOf(arrived, capacity);
+            arrivedIdleCount = Arrays.copyOf(arrivedIdleCount, capacity);
+        }
+    }
+
+    /**
+     * @throws UnsupportedOperationException If a {@link ColumnarStepEngine} runs the steps of the company.
+     */
+    private static void checkEngine(EVCompany company)
+    {
+        if (company.isColumnar()){
+            throw new UnsupportedOperationException("The columnar engine cannot record a decision journal");
+        }
+    }
+
+    /**
+     * Reads the records of the file and sorts them by vehicle and decision number.
+     */
+    private void load() throws IOException
+    {
+        try (FileChannel input = FileChannel.open(file, StandardOpenOption.READ)){
+            long size = input.size();
+            if (size < HEADER_BYTES){
+                throw new IOException("Not a journal: " + file);
+            }
+            MappedByteBuffer header = input.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT || header.getInt(8) != RECORD_BYTES){
+                throw new IOException("Not a journal: " + file);
+            }
+            long count = header.getLong(COUNT_OFFSET);
+            if (count < 0 || count > (size - HEADER_BYTES) / RECORD_BYTES || count > Integer.MAX_VALUE / RECORD_LONGS){
+                throw new IOException("Corrupt journal: " + file);
+            }
+
+            long[] records = new long[(int) count * RECORD_LONGS];
+            int next = 0;
+            for (long position = HEADER_BYTES; next < records.length; position += SEGMENT_BYTES){
+                MappedByteBuffer segment = input.map(FileChannel.MapMode.READ_ONLY, position,
+                                                     Math.min(SEGMENT_BYTES, (long) (records.length - next) * 8));
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+                segment.asLongBuffer().get(records, next, segment.capacity() / 8);
+                next += segment.capacity() / 8;
+            }
+
+            int maxId = -1;
+            for (int i = 0; i < records.length; i += RECORD_LONGS){
+                maxId = Math.max(maxId, (int) (records[i] >>> 32));
+            }
+            expectedCount = new int[maxId + 1];
+            for (int i = 0; i < records.length; i += RECORD_LONGS){
+                int id = (int) (records[i] >>> 32);
+                if (id < 0){
+                    throw new IOException("Corrupt journal, negative vehicle id: " + file);
+                }
+                expectedCount[id]++;
+            }
+            expectedStart = new int[maxId + 1];
+            for (int id = 1; id <= maxId; id++){
+                expectedStart[id] = expectedStart[id - 1] + expectedCount[id - 1] * RECORD_LONGS;
+            }
+            expected = new long[records.length];
+            for (int i = 0; i < records.length; i += RECORD_LONGS){
+                int id = (int) (records[i] >>> 32);
+                int number = (int) records[i];
+                if (number < 0 || number >= expectedCount[id]){
+                    throw new IOException("Corrupt journal, decision " + number + " of vehicle " + id + ": " + file);
+                }
+                System.arraycopy(records, i, expected, expectedStart[id] + number * RECORD_LONGS, RECORD_LONGS);
+            }
+        }
+    }
+
+    /**
+     * @return A new batch for the calling thread, registered so {@link #flush()} finds it.
+     */
+    private Batch newBatch()
+    {
+        Batch batch = new Batch();
+        allBatches.add(batch);
+        return batch;
+    }
+
+    /**
+     * Reserves room at the end of the file for the records of a batch and copies them there.
+     */
+    private void writeBatch(Batch batch)
+    {
+        if (batch.size == 0){
+            return;
+        }
+        long position = HEADER_BYTES + tail.getAndAdd((long) batch.size * 8);
+        for (int i = 0; i < batch.size; i += RECORD_LONGS, position += RECORD_BYTES){
+            MappedByteBuffer segment = segment((int) (position / SEGMENT_BYTES));
+            int offset = (int) (position % SEGMENT_BYTES);
+            segment.putLong(offset, batch.records[i]);
+            segment.putLong(offset + 8, batch.records[i + 1]);
+            segment.putLong(offset + 16, batch.records[i + 2]);
+        }
+        batch.size = 0;
+    }
+
+    /**
+     * @return The mapped segment of the file with the given number, mapping it if it is the first time.
+     * @throws IllegalStateException If the journal is full or the segment cannot be mapped.
+     */
+    private MappedByteBuffer segment(int number)
+    {
+        MappedByteBuffer segment = segments.get(number);
+        if (segment == null){
+            synchronized (segments){
+                segment = segments.get(number);
+                if (segment == null){
+                    if (number >= MAX_SEGMENTS){
+                        throw new IllegalStateException("Journal full: " + file);
+                    }
+                    try{
+                        segment = channel.map(FileChannel.MapMode.READ_WRITE, (long) number * SEGMENT_BYTES, SEGMENT_BYTES);
+                    }
+                    catch (IOException e){
+                        throw new IllegalStateException("Cannot map the journal " + file, e);
+                    }
+                    segment.order(ByteOrder.LITTLE_ENDIAN);
+                    segments.set(number, segment);
+                }
+            }
+        }
+        return segment;
+    }
+
+    /**
+     * The records written by one thread and not copied to the file yet.
+     */
+    private static class Batch
+    {
+        private long[] records = new long[BATCH * RECORD_LONGS];
+        private int size;
+    }
+}
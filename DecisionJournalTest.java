@@ -0,0 +1,158 @@
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that a run recorded with a {@link DecisionJournal} is verified and replayed by the same run.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class DecisionJournalTest
+{
+    private static final int STEPS = 120;
+
+    private EVCompany recorded;
+    private Path file;
+
+    /**
+     * Default constructor for test class DecisionJournalTest.
+     */
+    public DecisionJournalTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture: a generated city where the vehicles have to recharge, run with a
+     * journal recording its decisions.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        file = Files.createTempFile("journal", ".bin");
+        recorded = generate();
+        DecisionJournal journal = DecisionJournal.record(file, recorded);
+        new EVDemo(recorded, recorded.getVehicles(), null).runSteps(0, STEPS);
+        journal.close();
+        assertTrue(journal.getRecords() > 0);
+        assertNull(recorded.getJournal());
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Test that the same run has the same decisions.
+     */
+    @Test
+    public void testVerifySameRun() throws IOException
+    {
+        EVCompany company = generate();
+        DecisionJournal journal = DecisionJournal.verify(file, company);
+        new EVDemo(company, company.getVehicles(), null).runSteps(0, STEPS);
+        journal.close();
+
+        assertEquals(journal.getFirstMismatch(), 0, journal.getMismatches());
+    }
+
+    /**
+     * Test that a shorter run is reported, since the decisions of the last steps are missing.
+     */
+    @Test
+    public void testVerifyShorterRun() throws IOException
+    {
+        EVCompany company = generate();
+        DecisionJournal journal = DecisionJournal.verify(file, company);
+        new EVDemo(company, company.getVehicles(), null).runSteps(0, STEPS / 2);
+        journal.close();
+
+        assertTrue(journal.getMismatches() > 0);
+        assertNotNull(journal.getFirstMismatch());
+    }
+
+    /**
+     * Test that the replayed run ends as the recorded one, with the stations and chargers taken from the journal.
+     */
+    @Test
+    public void testReplayRebuildsState() throws IOException
+    {
+        EVCompany company = generate();
+        DecisionJournal journal = DecisionJournal.replay(file, company);
+        new EVDemo(company, company.getVehicles(), null).runSteps(0, STEPS);
+        journal.close();
+
+        assertEquals(journal.getFirstMismatch(), 0, journal.getMismatches());
+        assertTrue(journal.getReplayed() > 0);
+        assertEquals(company.getTotalRecharges(), recorded.getTotalRecharges());
+        for (int i = 0; i < company.getVehicles().size(); i++){
+            assertEquals(recorded.getVehicles().get(i).toString(), company.getVehicles().get(i).toString());
+        }
+    }
+
+    /**
+     * Test that the event-driven engine, which skips the idle steps of the vehicles, takes the same decisions.
+     */
+    @Test
+    public void testVerifyEventDrivenRun() throws IOException
+    {
+        EVCompany company = generate();
+        DecisionJournal journal = DecisionJournal.verify(file, company);
+        new EventDrivenEngine(new EVDemo(company, company.getVehicles(), null), company.getVehicles()).run(0, STEPS);
+        journal.close();
+
+        assertEquals(journal.getFirstMismatch(), 0, journal.getMismatches());
+    }
+
+    /**
+     * Test that a company cannot have both a journal and the columnar engine, whichever comes first.
+     */
+    @Test
+    public void testColumnarEngineIsRejected() throws IOException
+    {
+        EVCompany journaled = generate();
+        DecisionJournal journal = DecisionJournal.verify(file, journaled);
+        try{
+            new ColumnarStepEngine(new EVDemo(journaled, journaled.getVehicles(), null), journaled.getVehicles(), journaled, null);
+            fail("A columnar engine was created for a company with a journal");
+        }
+        catch (UnsupportedOperationException e){
+            //expected
+        }
+        journal.close();
+
+        EVCompany columnar = generate();
+        new ColumnarStepEngine(new EVDemo(columnar, columnar.getVehicles(), null), columnar.getVehicles(), columnar, null);
+        try{
+            DecisionJournal.verify(file, columnar);
+            fail("A journal was attached to a company run by a columnar engine");
+        }
+        catch (UnsupportedOperationException e){
+            //expected
+        }
+        assertNull(columnar.getJournal());
+    }
+
+    /**
+     * @return A new copy of the generated city of the test.
+     */
+    private static EVCompany generate()
+    {
+        ScenarioGenerator generator = new ScenarioGenerator(11, 60, 60);
+        generator.setNumVehicles(300);
+        generator.setNumStations(6);
+        generator.setNumChargersPerStation(2);
+        generator.setBatteryCapacityRange(60, 200);
+        return generator.generate("Journal test");
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Enumeration that defines the decisions of the vehicles kept by a {@link DecisionJournal}.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public enum DecisionType
+{
+    /** The result of {@link ElectricVehicle#calculateRoute()}: the station chosen to recharge, if any. */
+    ROUTE ("ROUTE"),
+    /** The charger picked by {@link ElectricVehicle#recharge(int)}, or none if every charger was in use. */
+    CHARGER ("CHARGER"),
+    /** A run of consecutive steps on which the vehicle stayed idle. */
+    IDLE ("IDLE"),
+    /** The arrival of the vehicle at its target location. */
+    ARRIVAL ("ARRIVAL");
+
+    /** Descriptive name of the decision. */
+    private String name;
+
+    /**
+     * Constructor for the decision types.
+     * @param name Descriptive name.
+     */
+    DecisionType(String name){
+        this.name = name;
+    }
+
+    /**
+     * @return The descriptive name of the decision.
+     */
+    public String getName(){
+        return name;
+    }
+}
@@ -8,9 +8,54 @@ import java.util.*;
  */
 public class EVCompany  
 {
+    /** Maximum number of entries of the route plan cache of every company. */
+    public static final int ROUTE_CACHE_CAPACITY = 1 << 16;
+    /** Order of the vehicles and of the stations of every company. */
+    private static final ComparatorVehiclePlate VEHICLE_ORDER = new ComparatorVehiclePlate();
+    private static final ComparatorChargingStationId STATION_ORDER = new ComparatorChargingStationId();
+    
     private String name;
     private List<ElectricVehicle> subscribedVehicles;
     private List<ChargingStation> stations;
+    /** Read-only views of the vehicles and the stations, handed out by the getters. */
+    private List<ElectricVehicle> vehiclesView;
+    private List<ChargingStation> stationsView;
+    /** Changes every time the set of stations may have changed. */
+    private int stationsVersion;
+    /** Spatial index of the stations, rebuilt when {@code stationsVersion} changes. */
+    private volatile StationIndex stationIndex;
+    /** Value of {@code stationsVersion} when {@code stationIndex} was built. */
+    private int stationIndexVersion;
+    /** Cache of the recharging stations chosen by the vehicles of the company. */
+    private RoutePlanCache routePlanCache;
+    /** Journal of the decisions of the vehicles, or null if they are not journaled. */
+    private DecisionJournal journal;
+    /** Order of the station queues, or null if the vehicles that find no free charger try again on the next step. */
+    private QueuePolicy queuePolicy;
+    /** Whether or not a {@link ColumnarStepEngine} runs the steps of the company. */
+    private boolean columnar;
+    /** Stations whose queue is not empty, in the order in which their first vehicle arrived. */
+    private List<ChargingStation> waitingStations;
+    /** Changes every time all the chargers of the company are released. */
+    private int chargerEpoch;
+    /** Changes every time the set of vehicles may have changed. */
+    private int vehiclesVersion;
+    /** Id given to the next vehicle added without one, greater than the id of every vehicle added so far. */
+    private int nextVehicleId;
+    /** Stations by id and by location, valid while {@code stationKeysVersion} equals {@code stationsVersion}. */
+    private Map<String, ChargingStation> stationsById;
+    private Map<Location, ChargingStation> stationsByLocation;
+    private int stationKeysVersion;
+    /** Vehicles ordered by plate, valid while {@code platesVersion} equals {@code vehiclesVersion}. */
+    private TreeMap<String, ElectricVehicle> vehiclesByPlate;
+    private int platesVersion;
+    /** Vehicles by id, valid while {@code idsVersion} equals {@code vehiclesVersion}. */
+    private ElectricVehicle[] vehiclesById;
+    private int idsVersion;
+    /** Running totals of the stations, valid while {@code totalsVersion} equals {@code stationsVersion}. */
+    private long totalRecharges;
+    private double totalRevenue;
+    private int totalsVersion;
 
     /**
      * Constructor for objects of class EVCompany.
@@ -21,22 +66,49 @@ public class EVCompany
         this.name = name;
         subscribedVehicles = new ArrayList<ElectricVehicle> ();
         stations = new ArrayList<ChargingStation> ();
+        vehiclesView = Collections.unmodifiableList(subscribedVehicles);
+        stationsView = Collections.unmodifiableList(stations);
+        routePlanCache = new RoutePlanCache(this, ROUTE_CACHE_CAPACITY);
+        stationsById = new HashMap<String, ChargingStation> ();
+        stationsByLocation = new HashMap<Location, ChargingStation> ();
+        vehiclesByPlate = new TreeMap<String, ElectricVehicle> ();
+        vehiclesById = new ElectricVehicle[0];
+        queuePolicy = null;
+        waitingStations = new ArrayList<ChargingStation> ();
     }
     
     
     /**
      * Copy constructor of EVCompany
+     * The vehicles and the stations are copied too, see {@link #snapshotVehicles()} and {@link #snapshotCityStations()}.
+     * The queue policy is kept, but no vehicle of the copy is waiting in a station queue.
      */
     public EVCompany (EVCompany otherCompany)
     {
         this.name = otherCompany.name;
         this.subscribedVehicles = new ArrayList<ElectricVehicle> ();
         this.stations = new ArrayList<ChargingStation> ();
+        this.vehiclesView = Collections.unmodifiableList(subscribedVehicles);
+        this.stationsView = Collections.unmodifiableList(stations);
+        this.routePlanCache = new RoutePlanCache(this, otherCompany.routePlanCache.getCapacity());
+        this.stationsById = new HashMap<String, ChargingStation> ();
+        this.stationsByLocation = new HashMap<Location, ChargingStation> ();
+        this.vehiclesByPlate = new TreeMap<String, ElectricVehicle> ();
+        this.vehiclesById = new ElectricVehicle[0];
+        this.stationKeysVersion = -1;
+        this.platesVersion = -1;
+        this.idsVersion = -1;
+        this.totalsVersion = -1;
+        this.nextVehicleId = otherCompany.nextVehicleId;
+        this.queuePolicy = otherCompany.queuePolicy;
+        this.waitingStations = new ArrayList<ChargingStation> ();
         for (ElectricVehicle ev : otherCompany.subscribedVehicles){
             this.subscribedVehicles.add( new ElectricVehicle (ev));
         }
         for (ChargingStation st : otherCompany.stations){
-            this.stations.add(new ChargingStation (st));
+            ChargingStation station = new ChargingStation (st);
+            station.setCompany(this);
+            this.stations.add(station);
         }
     }
 
@@ -50,9 +122,17 @@ public class EVCompany
     
     
     /**
-     * @return An unmodifiable list of all {@link ElectricVehicle}s.
+     * @return An unmodifiable list of all {@link ElectricVehicle}s. It is a view, so it always shows the current vehicles.
      */
     public List<ElectricVehicle> getVehicles() 
+    {
+       return vehiclesView;
+    }
+    
+    /**
+     * @return A new list with a copy of every {@link ElectricVehicle}, detached from the ones of the company.
+     */
+    public List<ElectricVehicle> snapshotVehicles() 
     {
        List<ElectricVehicle> copy = new ArrayList<>();
        for (ElectricVehicle ev : subscribedVehicles) {
@@ -64,33 +144,38 @@ public class EVCompany
     /**
      * 
      * @return the reference of the list of vehicles, this is used in order to erase them from the company mainly.
+     * As the caller may change the list, the structures built from it are rebuilt the next time they are needed.
      */
     
     public List <ElectricVehicle> getModifiableVehicles() 
     {
+        vehiclesVersion++;
         return subscribedVehicles;
     }
     
     /**
      * @ returns the reference of the list of ChargingStations, this can be used to erase them from the company, or to just modify it.
-     * 
+     * As the caller may change the list, the structures built from it are rebuilt the next time they are needed.
      */
     public List <ChargingStation> getModifiableChargingStations ()
     {
+        stationsVersion++;
         return stations;
     }
   
     /**
      * Adds an {@link ElectricVehicle} to the company's fleet.
+     * The vehicle gets the next id, see {@link ElectricVehicle#getId()}, unless it already has one.
      * @param vehicle The electric vehicle to add.
      * It will be added in ascending order by their plates.
      */
     public void addElectricVehicle(ElectricVehicle vehicle)
     {       
+       assignId(vehicle);
        int i = 0;
        boolean found = false;
        ElectricVehicle current;
-       ComparatorVehiclePlate cmp = new ComparatorVehiclePlate ();
+       ComparatorVehiclePlate cmp = VEHICLE_ORDER;
        while ( i < subscribedVehicles.size()&&!found){
            current = subscribedVehicles.get(i);
            if (cmp.compare (vehicle,current) > 0){     
@@ -101,9 +186,53 @@ public class EVCompany
            }
        }
        subscribedVehicles.add(i,vehicle);
+       boolean indexed = platesVersion == vehiclesVersion && !vehiclesByPlate.containsKey(vehicle.getPlate());
+       vehiclesVersion++;
+       if (indexed){
+           vehiclesByPlate.put(vehicle.getPlate(), vehicle);
+           platesVersion = vehiclesVersion;
+       }
     }
 
     
+    /**
+     * Adds many {@link ElectricVehicle}s to the company's fleet at once.
+     * They end up in the same order as if they were added one by one with {@link #addElectricVehicle(ElectricVehicle)},
+     * but the fleet is sorted only once. The vehicles without an id get the next ones in the order of the collection.
+     * @param vehicles The electric vehicles to add.
+     */
+    public void addElectricVehicles(Collection<ElectricVehicle> vehicles)
+    {
+       for (ElectricVehicle vehicle : vehicles){
+           assignId(vehicle);
+       }
+       SortedBulkLoader.addAll(subscribedVehicles, vehicles, VEHICLE_ORDER);
+       vehiclesVersion++;
+    }
+    
+    /**
+     * Gives a vehicle the next id if it has none, and makes sure the next id is greater than its id otherwise.
+     * @param vehicle A vehicle being added to the company.
+     */
+    private void assignId(ElectricVehicle vehicle)
+    {
+       if (vehicle.getId() < 0){
+           vehicle.setId(nextVehicleId++);
+       }
+       else{
+           nextVehicleId = Math.max(nextVehicleId, vehicle.getId() + 1);
+       }
+    }
+    
+    /**
+     * @return A number greater than the id of every vehicle added to the company, to size arrays indexed by id.
+     */
+    public int getVehicleIdLimit()
+    {
+       updateIds();
+       return nextVehicleId;
+    }
+    
     /**
      * Adds a {@link ChargingStation} to the company's network.
      * @param station The charging station to add.
@@ -114,7 +243,7 @@ public class EVCompany
        int i = 0;
        boolean found = false;
        ChargingStation current;
-       ComparatorChargingStationId cmp = new ComparatorChargingStationId();
+       ComparatorChargingStationId cmp = STATION_ORDER;
        while ( i < stations.size()&&!found){
            current = stations.get(i);
            if (cmp.compare (station,current) > 0){     
@@ -125,54 +254,466 @@ public class EVCompany
            }
        }
        stations.add(i,station);
+       station.setCompany(this);
+       boolean indexed = stationKeysVersion == stationsVersion && !stationsById.containsKey(station.getId())
+                         && !stationsByLocation.containsKey(station.getLocation());
+       stationsVersion++;
+       if (indexed){
+           stationsById.put(station.getId(), station);
+           stationsByLocation.put(station.getLocation(), station);
+           stationKeysVersion = stationsVersion;
+       }
     }
     
     
     /**
-     * Retrieves a {@link ChargingStation} by its unique ID.
+     * Adds many {@link ChargingStation}s to the company's network at once.
+     * They end up in the same order as if they were added one by one with {@link #addChargingStation(ChargingStation)},
+     * but the network is sorted only once.
+     * @param newStations The charging stations to add.
+     */
+    public void addChargingStations(Collection<ChargingStation> newStations)
+    {
+       SortedBulkLoader.addAll(stations, newStations, STATION_ORDER);
+       for (ChargingStation station : newStations){
+           station.setCompany(this);
+       }
+       stationsVersion++;
+    }
+    
+    /**
+     * Retrieves a {@link ChargingStation} by its unique ID, using a hash index.
+     * If several stations share the ID, the first one of the list is returned.
      * @param id The ID of the station to find.
      * @return The {@link ChargingStation} with the matching ID, or {@code null} if not found.
      */
     public ChargingStation getChargingStation(String id)
     {
-        for(int i=0;i<stations.size();i++){
-            if(stations.get(i).getId().equals(id)){
-                return stations.get(i);
-            }
-        }
-        return null;
+        updateStationKeys();
+        return stationsById.get(id);
     }
 
     /**
-     * Retrieves a {@link ChargingStation} by its {@link Location}.
+     * Retrieves a {@link ChargingStation} by its {@link Location}, using a hash index.
+     * If several stations share the location, the first one of the list is returned.
      * @param location The {@link Location} of the station to find.
      * @return The {@link ChargingStation} at the matching location, or {@code null} if not found.
      */
     public ChargingStation getChargingStation(Location location)
     {
-       for (int i = 0; i < stations.size(); i++) {
-       if (stations.get(i).getLocation().equals(location)) {
-           return stations.get(i); 
-          }
-       }
-       return null;
+       updateStationKeys();
+       return stationsByLocation.get(location);
+    }
+    
+    /**
+     * Retrieves an {@link ElectricVehicle} by its plate, using an ordered index.
+     * If several vehicles share the plate, the first one of the list is returned.
+     * @param plate The plate of the vehicle to find.
+     * @return The {@link ElectricVehicle} with the matching plate, or {@code null} if not found.
+     */
+    public ElectricVehicle getVehicle(String plate)
+    {
+       updatePlates();
+       return vehiclesByPlate.get(plate);
+    }
+    
+    /**
+     * Retrieves an {@link ElectricVehicle} by its id, as recorded by the {@link RechargeLedger} of the chargers.
+     * @param id The id of the vehicle to find.
+     * @return The {@link ElectricVehicle} with the id, or {@code null} if not found.
+     */
+    public ElectricVehicle getVehicleById(int id)
+    {
+       updateIds();
+       return id >= 0 && id < vehiclesById.length ? vehiclesById[id] : null;
+    }
+    
+    /**
+     * Retrieves the {@link ElectricVehicle}s whose plates are in a range, in ascending order of plate.
+     * @param fromPlate The first plate of the range (included).
+     * @param toPlate The last plate of the range (excluded).
+     * @return An unmodifiable view of the vehicles in the range. It is valid until the vehicles change.
+     */
+    public Collection<ElectricVehicle> getVehiclesByPlate(String fromPlate, String toPlate)
+    {
+       updatePlates();
+       return Collections.unmodifiableCollection(vehiclesByPlate.subMap(fromPlate, true, toPlate, false).values());
+    }
+    
+    /**
+     * Tells the company that one of its stations has changed (for instance, it has been moved),
+     * so that everything built from the stations is rebuilt.
+     */
+    public void stationsChanged()
+    {
+        stationsVersion++;
+    }
+    
+    /**
+     * Tells the company that one of its vehicles has changed (for instance, its plate),
+     * so that everything built from the vehicles is rebuilt.
+     */
+    public void vehiclesChanged()
+    {
+        vehiclesVersion++;
+    }
+    
+    /**
+     * Updates the running totals of the company when one of its stations recharges.
+     * Called by {@link ChargingStation} every time the recharges of its chargers change.
+     * @param recharges The number of new recharges.
+     * @param collected The new money collected.
+     */
+    void stationRecharged(int recharges, double collected)
+    {
+        totalRecharges += recharges;
+        totalRevenue += collected;
+    }
+    
+    /**
+     * @return The total number of recharges done in all the stations of the company.
+     */
+    public long getTotalRecharges()
+    {
+        updateTotals();
+        return totalRecharges;
+    }
+    
+    /**
+     * @return The total amount of money collected by all the stations of the company.
+     */
+    public double getTotalRevenue()
+    {
+        updateTotals();
+        return totalRevenue;
+    }
+    
+    /**
+     * Gets the stations with the most recharges without sorting all of them.
+     * @param n The maximum number of stations returned.
+     * @return A new list with at most n stations, ordered by {@link ComparatorChargingStationNumberRecharged}.
+     */
+    public List<ChargingStation> getBusiestStations(int n)
+    {
+        return TopK.select(stations, n, new ComparatorChargingStationNumberRecharged());
+    }
+    
+    /**
+     * Gets the chargers of all the stations that have collected the most money, without sorting all of them.
+     * @param n The maximum number of chargers returned.
+     * @return A new list with at most n chargers, ordered by {@link ComparatorChargerAmountCollected}.
+     */
+    public List<Charger> getTopRevenueChargers(int n)
+    {
+        TopK<Charger> top = new TopK<Charger>(n, new ComparatorChargerAmountCollected());
+        for (ChargingStation station : stations){
+            for (Charger charger : station.getChargers()){
+                top.offer(charger);
+            }
+        }
+        return top.toList();
+    }
+    
+    /**
+     * Adds up the totals of the stations again if the stations have changed.
+     */
+    private void updateTotals()
+    {
+        if (totalsVersion != stationsVersion){
+            totalRecharges = 0;
+            totalRevenue = 0;
+            for (ChargingStation station : stations){
+                totalRecharges += station.getNumerEVRecharged();
+                totalRevenue += station.getRevenue();
+            }
+            totalsVersion = stationsVersion;
+        }
+    }
+    
+    /**
+     * Rebuilds the indexes of the stations by id and by location if the stations have changed.
+     */
+    private void updateStationKeys()
+    {
+        if (stationKeysVersion != stationsVersion){
+            stationsById.clear();
+            stationsByLocation.clear();
+            for (ChargingStation station : stations){
+                stationsById.putIfAbsent(station.getId(), station);
+                stationsByLocation.putIfAbsent(station.getLocation(), station);
+            }
+            stationKeysVersion = stationsVersion;
+        }
+    }
+    
+    /**
+     * Rebuilds the index of the vehicles by plate if the vehicles have changed.
+     */
+    private void updatePlates()
+    {
+        if (platesVersion != vehiclesVersion){
+            vehiclesByPlate.clear();
+            for (ElectricVehicle vehicle : subscribedVehicles){
+                vehiclesByPlate.putIfAbsent(vehicle.getPlate(), vehicle);
+            }
+            platesVersion = vehiclesVersion;
+        }
+    }
+    
+    /**
+     * Rebuilds the index of the vehicles by id if the vehicles have changed.
+     * The vehicles added through {@link #getModifiableVehicles()} get their ids here.
+     */
+    private void updateIds()
+    {
+        if (idsVersion != vehiclesVersion){
+            for (ElectricVehicle vehicle : subscribedVehicles){
+                assignId(vehicle);
+            }
+            if (vehiclesById.length < nextVehicleId){
+                vehiclesById = new ElectricVehicle[nextVehicleId];
+            }
+            else{
+                Arrays.fill(vehiclesById, null);
+            }
+            for (ElectricVehicle vehicle : subscribedVehicles){
+                vehiclesById[vehicle.getId()] = vehicle;
+            }
+            idsVersion = vehiclesVersion;
+        }
     }
 
     
     /**
-     * @return An unmodifiable list of all managed {@link ChargingStation}s.
+     * @return An unmodifiable list of all managed {@link ChargingStation}s. It is a view, so it always shows the current stations.
      */
     public List<ChargingStation> getCityStations()
     {
-      
+       return stationsView;
+    }
+    
+    /**
+     * @return A new list with a copy of every managed {@link ChargingStation}, detached from the ones of the company.
+     */
+    public List<ChargingStation> snapshotCityStations()
+    {
        List<ChargingStation> copy = new ArrayList<>();
        for (ChargingStation cs : stations) {
         copy.add(new ChargingStation(cs)); 
        }
        return copy;
+    }
+    
+    
+    /**
+     * Sets every charger of every station of the company free. It takes constant time: the stations
+     * notice the new epoch the next time one of their chargers is asked for.
+     */
+    public void releaseAllChargers()
+    {
+        chargerEpoch++;
+    }
+    
+    /**
+     * @return The current charger epoch. It changes every time all the chargers are released.
+     */
+    public int getChargerEpoch()
+    {
+        return chargerEpoch;
+    }
+    
+    /**
+     * Gets the version of the set of stations. It changes every time the stations may have changed,
+     * so the vehicles know when their routes have to be calculated again.
+     * @return The current version of the stations.
+     */
+    public int getStationsVersion()
+    {
+        return stationsVersion;
+    }
     
+    /**
+     * Gets the spatial index of the managed {@link ChargingStation}s, used to find the best station
+     * to recharge on the way to a target. The index is rebuilt if the stations have changed.
+     * @return The {@link StationIndex} of the stations of the company.
+     */
+    public StationIndex getStationIndex()
+    {
+        StationIndex index = stationIndex;
+        if (index == null || stationIndexVersion != stationsVersion){
+            synchronized (this){
+                index = stationIndex;
+                if (index == null || stationIndexVersion != stationsVersion){
+                    stationIndexVersion = stationsVersion;
+                    index = new StationIndex(stations);
+                    stationIndex = index;
+                }
+            }
+        }
+        return index;
     }
     
+    /**
+     * Gets the cache of the recharging stations chosen by the vehicles of the company.
+     * It is emptied automatically when the stations change.
+     * @return The {@link RoutePlanCache} of the company.
+     */
+    public RoutePlanCache getRoutePlanCache()
+    {
+        return routePlanCache;
+    }
+
+    /**
+     * @return The {@link DecisionJournal} the vehicles of the company report their decisions to, or null.
+     */
+    public DecisionJournal getJournal()
+    {
+        return journal;
+    }
+
+    /**
+     * Sets the journal the vehicles of the company report their decisions to. It is not copied with the company.
+     * Used by {@link DecisionJournal} when it is created and closed.
+     * @param journal The journal, or null to stop journaling.
+     * @throws UnsupportedOperationException If the journal is not null and a {@link ColumnarStepEngine} runs the steps.
+     */
+    void setJournal(DecisionJournal journal)
+    {
+        if (journal != null && columnar){
+            throw new UnsupportedOperationException("The columnar engine cannot record a decision journal");
+        }
+        this.journal = journal;
+    }
+
+    /**
+     * @return Whether or not a {@link ColumnarStepEngine} runs the steps of the company.
+     */
+    boolean isColumnar()
+    {
+        return columnar;
+    }
+
+    /**
+     * Marks the company as run by a {@link ColumnarStepEngine}. Its kernels neither report the decisions of
+     * the vehicles nor know about waiting vehicles, so from then on the company cannot have a
+     * {@link DecisionJournal} or a {@link QueuePolicy}. Used by the engine when it is created.
+     * @throws UnsupportedOperationException If the company already has a journal or a queue policy.
+     */
+    void setColumnar()
+    {
+        if (journal != null){
+            throw new UnsupportedOperationException("The columnar engine cannot record a decision journal");
+        }
+        if (queuePolicy != null){
+            throw new UnsupportedOperationException("The columnar engine cannot run station queues");
+        }
+        columnar = true;
+    }
+
+    /**
+     * @return The order in which the vehicles waiting at a station get its chargers, or null if the
+     * vehicles do not wait in queues.
+     */
+    public QueuePolicy getQueuePolicy()
+    {
+        return queuePolicy;
+    }
+
+    /**
+     * Makes the vehicles that find every charger of a station in use wait in the {@link StationQueue}
+     * of the station, instead of trying again on every step. The chargers then stay in use until
+     * {@link #admitWaitingVehicles(int)} is called at the start of the next step, which gives the freed
+     * chargers to the waiting vehicles in the order of the policy. Since a charger is in use for one
+     * step whatever the vehicle recharges, the policy changes who waits, not how many are admitted.
+     * @param queuePolicy The order of the queues, or null to stop queueing.
+     * @throws IllegalStateException If there are vehicles waiting.
+     * @throws UnsupportedOperationException If the policy is not null and a {@link ColumnarStepEngine} runs the steps.
+     */
+    public void setQueuePolicy(QueuePolicy queuePolicy)
+    {
+        if (!waitingStations.isEmpty()){
+            throw new IllegalStateException("The queue policy cannot change while vehicles wait");
+        }
+        if (queuePolicy != null && columnar){
+            throw new UnsupportedOperationException("The columnar engine cannot run station queues");
+        }
+        this.queuePolicy = queuePolicy;
+    }
+
+    /**
+     * Adds a vehicle that has found every charger in use to the queue of the station. Used by {@link ElectricVehicle#recharge(int)}.
+     * @param station The station.
+     * @param vehicle The vehicle, which is at the station.
+     * @param step The current step of the simulation.
+     */
+    void enqueue(ChargingStation station, ElectricVehicle vehicle, int step)
+    {
+        StationQueue queue = station.getQueue();
+        if (queue == null){
+            queue = new StationQueue(queuePolicy);
+            station.setQueue(queue);
+        }
+        else if (queue.isEmpty() && queue.getPolicy() != queuePolicy){
+            queue.setPolicy(queuePolicy);
+        }
+        if (queue.isEmpty()){
+            waitingStations.add(station);
+        }
+        queue.add(vehicle, step);
+        Metrics.count(MetricCounter.QUEUED_VEHICLES);
+    }
+
+    /**
+     * Gives the free chargers of every station to the vehicles waiting in its queue, in the order of
+     * the {@link QueuePolicy}. Every admitted vehicle recharges right away, so its charger is in use
+     * for the rest of the step. It takes O(log n) for every admitted vehicle, and only the stations
+     * with waiting vehicles are visited.
+     * Called at the start of every step, once the chargers have been released.
+     * @param step The current step of the simulation.
+     */
+    public void admitWaitingVehicles(int step)
+    {
+        int kept = 0;
+        for (int i = 0; i < waitingStations.size(); i++){
+            ChargingStation station = waitingStations.get(i);
+            StationQueue queue = station.getQueue();
+            queue.recordLength();
+            Charger charger;
+            while (!queue.isEmpty() && (charger = station.getFreeCharger()) != null){
+                queue.poll(step).admit(charger, step);
+                Metrics.count(MetricCounter.ADMITTED_VEHICLES);
+            }
+            if (!queue.isEmpty()){
+                waitingStations.set(kept++, station);
+            }
+        }
+        for (int i = waitingStations.size() - 1; i >= kept; i--){
+            waitingStations.remove(i);
+        }
+    }
+
+    /**
+     * @return The number of vehicles waiting in the station queues.
+     */
+    public int getNumberOfWaitingVehicles()
+    {
+        int waiting = 0;
+        for (int i = 0; i < waitingStations.size(); i++){
+            waiting += waitingStations.get(i).getQueue().size();
+        }
+        return waiting;
+    }
+
+    /**
+     * Takes every waiting vehicle out of its station queue without recharging it. The statistics of the queues are kept.
+     */
+    public void clearQueues()
+    {
+        for (ChargingStation station : waitingStations){
+            station.getQueue().clear();
+        }
+        waitingStations.clear();
+    }
     
     /**
      * @return The total number of managed {@link ChargingStation}s.
@@ -186,8 +727,11 @@ public class EVCompany
      */
     public void reset(){
         name = null;
+        clearQueues();
         subscribedVehicles.clear();
         stations.clear();
+        stationsVersion++;
+        vehiclesVersion++;
     }
     
 }
\ No newline at end of file
@@ -1,3 +1,6 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
 /**
  * Provides a simple demonstration and simulation environment for the 
@@ -40,6 +43,29 @@ public class EVDemo
     /** Constant for selecting the demo scenario, using the {@link DemoType} enumeration. */
     private static final DemoType DEMO=DemoType.ADVANCED;
     
+    /** Constant for selecting the engine that runs the steps, using the {@link EngineType} enumeration. */
+    private static final EngineType ENGINE=EngineType.SERIAL;
+    
+    /** Whether the step information is written by an {@link AsyncStepLogger} or printed right away. */
+    private static final boolean ASYNC_STEP_LOG = true;
+    
+    /** Constant for selecting what the {@link AsyncStepLogger} does when it is full, using the {@link OverflowPolicy} enumeration. */
+    private static final OverflowPolicy STEP_LOG_POLICY = OverflowPolicy.BLOCK;
+    
+    /** Where the step information of the vehicles goes, or null if it is not recorded. */
+    private StepEventSink stepSink;
+    
+    /** Whether the step sink was created by the demo, which then closes it in {@link #close()}. */
+    private boolean ownsStepSink;
+    
+    /** The engine used when {@code ENGINE} is {@link EngineType#PARALLEL}. */
+    private ParallelStepEngine parallelEngine;
+    
+    /** The engine used when {@code ENGINE} is {@link EngineType#EVENT_DRIVEN}. */
+    private EventDrivenEngine eventEngine;
+    
+    /** The engine used when {@code ENGINE} is {@link EngineType#COLUMNAR}. */
+    private ColumnarStepEngine columnarEngine;
     
     
     /**
@@ -52,35 +78,160 @@ public class EVDemo
         company = new EVCompany ("EVCharging Cáceres");
         vehicles = new ArrayList <ElectricVehicle> ();
         stations = new ArrayList <ChargingStation> ();
+        if (ASYNC_STEP_LOG){
+            stepSink = new AsyncStepLogger(System.out, AsyncStepLogger.DEFAULT_CAPACITY, STEP_LOG_POLICY);
+        }
+        else{
+            stepSink = new ConsoleStepSink(System.out);
+        }
+        ownsStepSink = true;
+        createEngines();
+    }
+    
+    /**
+     * Constructor for objects of class EVDemo that steps an existing company instead of a demo scenario.
+     * Only {@link #step(int)} works on the given vehicles: {@link #run()} and {@link #reset()} always
+     * build the {@code DEMO} scenario.
+     * @param company The company of the vehicles and the stations.
+     * @param vehicles The vehicles to step, in the order in which they act.
+     * @param stepSink Where the step information of the vehicles goes, or null if it is not recorded.
+     */
+    public EVDemo(EVCompany company, List<ElectricVehicle> vehicles, StepEventSink stepSink)
+    {
+        this.company = company;
+        this.vehicles = new ArrayList <ElectricVehicle> (vehicles);
+        this.stations = new ArrayList <ChargingStation> (company.getCityStations());
+        this.stepSink = stepSink;
+        this.ownsStepSink = false;
+        createEngines();
+    }
+    
+    /**
+     * Creates the engine selected by {@code ENGINE}, if it is not the serial one.
+     */
+    private void createEngines()
+    {
+        if (ENGINE == EngineType.PARALLEL){
+            parallelEngine = new ParallelStepEngine(this, vehicles, stepSink, Runtime.getRuntime().availableProcessors());
+        }
+        if (ENGINE == EngineType.EVENT_DRIVEN){
+            eventEngine = new EventDrivenEngine(this, vehicles);
+        }
+        if (ENGINE == EngineType.COLUMNAR){
+            columnarEngine = new ColumnarStepEngine(this, vehicles, company, stepSink);
+        }
     }
 
     /**
      * Run the demo for a fixed number of steps (50 steps).
-     * In each step, all vehicles perform their action.
+     * In each step, all vehicles perform their action. With the {@link EngineType#EVENT_DRIVEN}
+     * and {@link EngineType#COLUMNAR} engines the whole run is handed to the engine.
      */
     public void run()
     {        
         reset();
-        
-        for(int step = 0; step < MAXSTEPS; step++) {
-            step(step);
+        runSteps(0, MAXSTEPS);
+    }
+
+    /**
+     * Run the steps [fromStep, toStep) of the simulation on the current state of the demo, for
+     * example to resume a run restored from a {@link SimulationCheckpoint}. With the
+     * {@link EngineType#EVENT_DRIVEN} and {@link EngineType#COLUMNAR} engines the steps are handed
+     * to the engine all at once.
+     * @param fromStep The first step to run.
+     * @param toStep The step after the last one to run.
+     */
+    public void runSteps(int fromStep, int toStep)
+    {
+        if (ENGINE == EngineType.EVENT_DRIVEN){
+            eventEngine.run(fromStep, toStep);
+        }
+        else if (ENGINE == EngineType.COLUMNAR){
+            columnarEngine.run(fromStep, toStep);
+        }
+        else{
+            for(int step = fromStep; step < toStep; step++) {
+                step(step);
+            }
         }
+        flushStepLog();
+    }
 
+    /**
+     * Releases the threads of the demo: the writer thread of the {@link AsyncStepLogger} created by
+     * the demo, after writing everything it has recorded, and the pool of the {@link ParallelStepEngine}.
+     * A step sink given to the constructor is left open, since it belongs to the caller.
+     * The demo cannot be run afterwards.
+     */
+    public void close()
+    {
+        if (ownsStepSink){
+            stepSink.close();
+        }
+        else{
+            flushStepLog();
+        }
+        if (parallelEngine != null){
+            parallelEngine.shutdown();
+        }
+    }
+
+    /**
+     * Saves the state of the simulation to a file, to resume it later: read the file with
+     * {@link SimulationCheckpoint#read(Path)}, build a demo with its company and fleet, and run
+     * its steps from {@link SimulationCheckpoint#getStep()}. It must be called between two steps.
+     * @param file The path of the file.
+     * @param nextStep The next step to run.
+     * @throws IOException If the file cannot be written.
+     */
+    public void checkpoint(Path file, int nextStep) throws IOException
+    {
+        flushStepLog();
+        new SimulationCheckpoint(company, vehicles, nextStep).write(file);
     }
 
     /**
      * Run the demo for one step by requesting all vehicles to act.
+     * With the {@link EngineType#PARALLEL} engine the step is run by the {@link ParallelStepEngine},
+     * with the {@link EngineType#EVENT_DRIVEN} engine by the {@link EventDrivenEngine}, and with
+     * the {@link EngineType#COLUMNAR} engine by the {@link ColumnarStepEngine}.
+     * The step information goes to the {@link StepEventSink} of the demo, so with {@code ASYNC_STEP_LOG}
+     * it may be written after this method returns.
+     * The time of the step is recorded by {@link Metrics} as {@link MetricPhase#STEP} and,
+     * during a flight recording, as a {@link StepEvent}.
      * @param step The current step number of the simulation.
      */
     public void step(int step)
     {
-        configureRoutes();
-        for (ElectricVehicle vehicle : vehicles){
-            resetAllChargersInCompany();
-            System.out.println(vehicle.getStepInfo(step));
-            vehicle.act(step);
+        if (ENGINE == EngineType.PARALLEL){
+            parallelEngine.step(step);      //it records the time of the step itself
+            return;
         }
-        
+        long start = Metrics.start();
+        StepEvent event = StepEvent.start(step);
+        if (ENGINE == EngineType.EVENT_DRIVEN){
+            eventEngine.run(step, step + 1);
+        }
+        else if (ENGINE == EngineType.COLUMNAR){
+            columnarEngine.run(step, step + 1);
+        }
+        else{
+            setJournalStep(step);
+            admitWaitingVehicles(step);
+            configureRoutes();
+            for (int i = 0; i < vehicles.size(); i++){
+                ElectricVehicle vehicle = vehicles.get(i);
+                releaseChargers();
+                if (stepSink != null){
+                    long logStart = Metrics.start();
+                    stepSink.vehicleStep(step, vehicle);
+                    Metrics.record(MetricPhase.LOGGING, logStart);
+                }
+                vehicle.act(step);
+            }
+        }
+        Metrics.record(MetricPhase.STEP, start);
+        StepEvent.finish(event, ENGINE, vehicles.size());
     }
 
     /**
@@ -90,9 +241,11 @@ public class EVDemo
      */
     public void reset()
     {
+        flushStepLog();
         vehicles.clear();
         stations.clear();
         
+        company.clearQueues();
         company.getModifiableVehicles().clear();        
         company.getModifiableChargingStations().clear();
 
@@ -120,8 +273,8 @@ public class EVDemo
         for (int i=0;i < DEMO.getNumVehiclesToCreate();i++){
             ElectricVehicle ev = new ElectricVehicle(company, locations[i],targetLocations[i],("EV"+i),(i+"CCC"),(i+1)*15);
             vehicles.add(ev);
-            company.addElectricVehicle(ev);  // in the company, they will be added in order by their Plates
         }
+        company.addElectricVehicles(vehicles);  // in the company, they will be added in order by their Plates
     }
     
 
@@ -135,8 +288,8 @@ public class EVDemo
         for (int i=0;i<DEMO.getNumStationsToCreate();i++){
             ChargingStation cStation = new ChargingStation("Cáceres","CC0" + i,locations[i]);
             stations.add(cStation);
-            company.addChargingStation(cStation); //in the company, they will be added in order by their Ids
         }
+        company.addChargingStations(stations); //in the company, they will be added in order by their Ids
     }
 
     /**
@@ -147,10 +300,12 @@ public class EVDemo
         // TODO: Complete the code here
         
         for (ChargingStation station : stations){
+            List <Charger> chargers = new ArrayList <Charger> ();
             for (int i=0;i<DEMO.getNumChargersToCreate();i++){
                 Charger current = new Charger(station.getId() + "_00" + i,((i+1)*20),((i+1)*0.20f));
-                station.addCharger(current);
+                chargers.add(current);
             }
+            station.addChargers(chargers);
         }    
     }
     
@@ -158,11 +313,12 @@ public class EVDemo
      /**
       * Instructs each {@link ElectricVehicle} to calculate its initial route.
       * This determines if an intermediate recharging stop is necessary.
+      * Only the vehicles whose route may have changed calculate it again, see {@link ElectricVehicle#isRouteDirty()}.
       */
      private void configureRoutes() {
          
-         for (ElectricVehicle vehicle : vehicles){
-             vehicle.calculateRoute();
+         for (int i = 0; i < vehicles.size(); i++){      //indexed, so the step path does not create iterators
+             vehicles.get(i).calculateRouteIfDirty();
          }
          
      }
@@ -172,92 +328,104 @@ public class EVDemo
      * the details of all {@link ElectricVehicle}s and {@link ChargingStation}s.
      */
     private void showInitialInfo() {
-        System.out.println("( "+company.getName()+" )");
-        System.out.println("(-------------------)");
-        System.out.println("( Electric Vehicles )");
-        System.out.println("(-------------------)");
-        System.out.println('\n');
-        
-        List <ElectricVehicle> vehicles = company.getVehicles();
-        for (ElectricVehicle vehicle : vehicles){
-            System.out.println(vehicle.getInitialFinalInfo());
-        }
-
-        System.out.println("(-------------------)");
-        System.out.println("( Charging Stations )");
-        System.out.println("(-------------------)");
-        System.out.println('\n');
-       
-        List <ChargingStation> cStations = company.getCityStations();  
-        
-        for (ChargingStation station : cStations){
-            System.out.println(station.getCompleteInfo());
-        }
-        
-        System.out.println("(------------------)");
-        System.out.println("( Simulation start )");
-        System.out.println("(------------------)");
-        System.out.println('\n');
+        writeReport(false);
     }
 
     /**
      * Displays the final information after the simulation has run.
-     * Vehicles are sorted by arrival step using {@link ComparatorEVArrivingStep}.
-     * Stations are sorted by the number of recharges using {@link ComparatorChargingStationNumerRecharged}.
+     * Vehicles are sorted by arrival step using {@link ComparatorVehicleArrivingStep}.
+     * Stations are sorted by the number of recharges using {@link ComparatorChargingStationNumberEvCharged}.
      */
     private void showFinalInfo() {
- 
-        System.out.println("(-------------------)");
-        System.out.println("( Final information )");        
-        System.out.println("(-------------------)");
-        
-        List <ElectricVehicle> vehicles = company.getVehicles();
-        Collections.sort (vehicles, new ComparatorVehicleArrivingStep());
+        writeReport(true);
+    }
 
-        System.out.println("(-------------------)");
-        System.out.println("( Electric Vehicles )");
-        System.out.println("(-------------------)");
-        
-        for (ElectricVehicle vehicle : vehicles){
-            System.out.println(vehicle.getInitialFinalInfo());
+    /**
+     * Streams the initial or the final report to the standard output with a {@link ReportWriter}.
+     */
+    private void writeReport(boolean finalReport) {
+        ReportWriter writer = new ReportWriter(System.out, ReportFormat.TEXT);
+        try{
+            if (finalReport){
+                writer.writeFinalReport(company);
+            }
+            else{
+                writer.writeInitialReport(company);
+            }
+            writer.flush();
         }
-        
-        List <ChargingStation> cStations = company.getCityStations(); 
-        Collections.sort (cStations, new ComparatorChargingStationNumberEvCharged());
-
-        System.out.println("(-------------------)");
-        System.out.println("( Charging Stations )");
-        System.out.println("(-------------------)");
-        
-        for (ChargingStation station : cStations){
-            System.out.println(station.getCompleteInfo());
+        catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Waits until all the step information recorded so far has been written.
+     */
+    private void flushStepLog()
+    {
+        if (stepSink != null){
+            stepSink.flush();
         }
-       
-        
-
     }
     
     /**
      * @sets to true the "free" param in every charger in the company.
-     * 
+     * It takes constant time, see {@link EVCompany#releaseAllChargers()}.
      */
     public void resetAllChargersInCompany ()
     {
-        for (int i = 0; i < company.getModifiableChargingStations().size(); i++){
-            ChargingStation station = company.getCityStations().get(i);
-            for (int j = 0; j < station.getChargers().size(); j++){
-                Charger current = station.getChargers().get(j);
-                current.setChargerFree(true);
-            }
+        long start = Metrics.start();
+        company.releaseAllChargers();
+        Metrics.record(MetricPhase.CHARGER_RESET, start);
+    }
+
+    /**
+     * Frees the chargers before a vehicle acts, unless the company has a {@link QueuePolicy}: then the
+     * chargers stay in use until the next step, when {@link #admitWaitingVehicles(int)} frees them.
+     * Used by the engines before every vehicle that may recharge.
+     */
+    void releaseChargers()
+    {
+        if (company.getQueuePolicy() == null){
+            resetAllChargersInCompany();
+        }
+    }
+
+    /**
+     * If the company has a {@link QueuePolicy}, frees all the chargers and gives them to the vehicles
+     * waiting in the station queues, see {@link EVCompany#admitWaitingVehicles(int)}.
+     * Used by the engines at the start of every step, before any vehicle acts.
+     * @param step The current step of the simulation.
+     */
+    void admitWaitingVehicles(int step)
+    {
+        if (company.getQueuePolicy() != null){
+            resetAllChargersInCompany();
+            company.admitWaitingVehicles(step);
+        }
+    }
+
+    /**
+     * Tells the {@link DecisionJournal} of the company, if it has one, the step the vehicles are about to act on.
+     * Used by the engines between steps.
+     * @param step The current step of the simulation.
+     */
+    void setJournalStep(int step)
+    {
+        DecisionJournal journal = company.getJournal();
+        if (journal != null){
+            journal.setStep(step);
         }
     }
     
     /**
      * The main entry point for running the EVDemo simulation.
-     * Creates an instance of {@code EVDemo} and starts the simulation.
+     * Creates an instance of {@code EVDemo}, runs the simulation and closes the demo.
      */
     public static void main() {
         EVDemo demo = new EVDemo();
         demo.run();
+        demo.close();
     }
 }
@@ -10,6 +10,8 @@ import java.util.ArrayList;
  */
 public class ElectricVehicle 
 {
+    /** Number given by the company when the vehicle is added to it, or -1 before that. */
+    private int id;
     private String plate;
     private String name;
     private EVCompany company;
@@ -23,6 +25,16 @@ public class ElectricVehicle
     private int kwsCharged;
     private int chargesCount;
     private float chargestCost;
+    /** Whether or not something the route depends on has changed since it was calculated. */
+    private boolean routeDirty;
+    /** Version of the stations of the company when the route was calculated. */
+    private int routeStationsVersion;
+    /** Whether or not the route has to be calculated again after the next move, see {@link #calculateRoute()}. */
+    private boolean replanAfterMove;
+    /** The station in whose queue the vehicle is waiting for a charger, or null. */
+    private ChargingStation waitingStation;
+    /** Position of the vehicle in the heap of the {@link StationQueue} it waits in, or -1. */
+    private int queueIndex;
 
     /**
      * Constructor of class ElectricVehicle.
@@ -36,6 +48,7 @@ public class ElectricVehicle
      */
     public ElectricVehicle(EVCompany company, Location location, Location targetLocation, String name, String plate, int batteryCapacity)
     {
+       this.id = -1;
        this.company=company;
        this.location=location;
        this.targetLocation=targetLocation;
@@ -49,20 +62,24 @@ public class ElectricVehicle
        chargesCount=0;
        chargestCost=0;
        arrivingStep = -1;
+       routeDirty = true;
+       waitingStation = null;
+       queueIndex = -1;
     }
     
     
     /**
      * 
      * Copy constructor of Vehicle.
-     * 
+     * The copy belongs to the same company, which is not copied, and is not waiting in any station queue.
      */
     public ElectricVehicle ( ElectricVehicle otherVehicle) 
     {
-       this.company= new EVCompany (otherVehicle.company);
-       this.location= new Location (otherVehicle.location);
-       this.targetLocation= new Location (otherVehicle.targetLocation);
-       this.rechargingLocation = new Location (otherVehicle.getLocation());
+       this.id = otherVehicle.id;
+       this.company= otherVehicle.company;
+       this.location= otherVehicle.location;                   //locations are immutable, so they can be shared
+       this.targetLocation= otherVehicle.targetLocation;
+       this.rechargingLocation = otherVehicle.rechargingLocation;
        this.name=otherVehicle.name;
        this.plate=otherVehicle.plate;
        this.batteryCapacity=otherVehicle.batteryCapacity;
@@ -72,10 +89,66 @@ public class ElectricVehicle
        this.chargesCount=otherVehicle.chargesCount;
        this.chargestCost=otherVehicle.chargestCost;
        this.arrivingStep = otherVehicle.arrivingStep;
+       this.routeDirty = true;
+       this.waitingStation = null;
+       this.queueIndex = -1;
     }
     
     
 
+    /**
+     * Gets the id of the vehicle. The ids are given by the company, in the order in which the vehicles
+     * are added to it, starting from 0, so they can be used to index arrays. A copy of a vehicle keeps its id.
+     * @return The id of the vehicle, or -1 if it has not been added to a company.
+     */
+    public int getId()
+    {
+        return id;
+    }
+    
+    /**
+     * Set the id of the vehicle. Used by {@link EVCompany} when the vehicle is added to it, and by
+     * {@link SimulationCheckpoint} to give a restored vehicle its old id.
+     * @param id The id of the vehicle.
+     */
+    void setId(int id)
+    {
+        this.id = id;
+    }
+    
+    /**
+     * @return The station in whose {@link StationQueue} the vehicle is waiting for a charger, or null if it is not waiting.
+     */
+    public ChargingStation getWaitingStation()
+    {
+        return waitingStation;
+    }
+    
+    /**
+     * @return Whether or not the vehicle is waiting in a {@link StationQueue} for a charger.
+     */
+    public boolean isWaiting()
+    {
+        return waitingStation != null;
+    }
+    
+    /**
+     * @return The position of the vehicle in the heap of the {@link StationQueue} it waits in, or -1.
+     */
+    int getQueueIndex()
+    {
+        return queueIndex;
+    }
+    
+    /**
+     * Set the position of the vehicle in the heap of a queue. Used by {@link StationQueue} as the vehicle moves in it.
+     * @param queueIndex The position, or -1 when the vehicle leaves the queue.
+     */
+    void setQueueIndex(int queueIndex)
+    {
+        this.queueIndex = queueIndex;
+    }
+    
     /**
      * 
      * @return the number of plate from the vehicle.
@@ -180,6 +253,7 @@ public class ElectricVehicle
     public void setLocation(Location location)
     {
        this.location=location;
+       routeDirty = true;
     }
     
     /**
@@ -190,6 +264,7 @@ public class ElectricVehicle
     public void setTargetLocation(Location location)
     {
         targetLocation=location;
+        routeDirty = true;
     }
     
     /**
@@ -220,6 +295,9 @@ public class ElectricVehicle
     public void setPlate (String plate)
     {
         this.plate=plate;
+        if (company != null){
+            company.vehiclesChanged();
+        }
     }
     
     /**
@@ -270,6 +348,7 @@ public class ElectricVehicle
     public void setBatteryLevel (int batteryLevel)
     {
         this.batteryLevel=batteryLevel;
+        routeDirty = true;
     }
     
     /**
@@ -294,6 +373,15 @@ public class ElectricVehicle
         return rechargingLocation;
     }
     
+    /**
+     * Set the temporary recharging location.
+     * @param rechargingLocation The {@link Location} of the next {@link ChargingStation} to visit, or null if no recharge is planned.
+     */
+    public void setRechargingLocation(Location rechargingLocation)
+    {
+        this.rechargingLocation = rechargingLocation;
+    }
+    
     
     /**
      * Get the simulation step when the vehicle arrived at its final target location.
@@ -305,19 +393,100 @@ public class ElectricVehicle
         return arrivingStep;
     }
     
+    /**
+     * Set the simulation step when the vehicle arrived at its final target location.
+     * @param arrivingStep The arriving step, or -1 if the vehicle has not arrived yet.
+     */
+    public void setArrivingStep(int arrivingStep)
+    {
+        this.arrivingStep = arrivingStep;
+    }
+    
     
     /**
      * Calculates the optimal route for the vehicle. 
      * If it has battery to reach the target, {rechargingLocation} is null. If not, it saves the new recharging location in {rechargingLocation}
+     * During a flight recording the calculation may be recorded as a {@link RoutePlanningEvent}.
+     * If the company has a {@link DecisionJournal} the result is recorded, and when the journal is
+     * replayed the recharging location is taken from it instead of being searched.
+     * A station at the location of the vehicle cannot be its recharging location, but it can be once
+     * the vehicle leaves, so a route with a recharging location is calculated again after the next move.
      */
     public void calculateRoute()
     {   
+        long start = Metrics.start();
+        RoutePlanningEvent event = RoutePlanningEvent.start();
+        DecisionJournal journal = company.getJournal();
         if (enoughBattery(distanceToTheTargetLocation())){
             rechargingLocation = null;
         }
+        else if (journal != null && journal.isReplaying()){
+            rechargingLocation = journal.replayRoute(this);
+        }
         else{
             rechargingLocation = calculateRechargingPosition();
         }
+        if (journal != null){
+            journal.route(this, rechargingLocation);
+        }
+        routeDirty = false;
+        routeStationsVersion = company.getStationsVersion();
+        replanAfterMove = rechargingLocation != null;
+        Metrics.record(MetricPhase.ROUTE, start);
+        RoutePlanningEvent.finish(event, this);
+    }
+    
+    /**
+     * Calculates the route of the vehicle only if it may have changed since the last time, see {@link #isRouteDirty()}.
+     */
+    public void calculateRouteIfDirty()
+    {
+        if (isRouteDirty()){
+            calculateRoute();
+        }
+    }
+    
+    /**
+     * Checks if the route has to be calculated again. That happens when the battery level, the location
+     * or the target are set, when a recharge fails, when a move does not drain the battery, after the first
+     * move of a route with a recharging location, and when the stations of the company change. Otherwise a
+     * vehicle that just moves towards its destination keeps its route.
+     * @return Whether or not something the route depends on has changed since it was calculated.
+     */
+    public boolean isRouteDirty()
+    {
+        return routeDirty || routeStationsVersion != company.getStationsVersion();
+    }
+    
+    /**
+     * Sets whether or not the route has to be calculated again, as it was when the vehicle was saved.
+     * Used by {@link SimulationCheckpoint} once the vehicle is in its company, so a route that was up to
+     * date when it was saved is not calculated again when the simulation is resumed.
+     * @param dirty Whether or not the route has to be calculated again.
+     * @param afterMove Whether or not the route has to be calculated again after the next move.
+     */
+    void restoreRoute(boolean dirty, boolean afterMove)
+    {
+        routeDirty = dirty;
+        routeStationsVersion = company.getStationsVersion();
+        replanAfterMove = afterMove;
+    }
+    
+    /**
+     * @return Whether or not the route has to be calculated again after the next move, see {@link #calculateRoute()}.
+     * Used by {@link SimulationCheckpoint}.
+     */
+    boolean isReplanAfterMove()
+    {
+        return replanAfterMove;
+    }
+    
+    /**
+     * Marks the route to be calculated again on the next {@link #calculateRouteIfDirty()}.
+     */
+    public void markRouteDirty()
+    {
+        routeDirty = true;
     }
     
     /**
@@ -356,32 +525,12 @@ public class ElectricVehicle
      * Determines the optimal intermediate {@link ChargingStation} to visit for recharging
      * if the vehicle cannot reach the final target directly.
      * Returns the location to the best chargingStation based on efficiency. (distance = min(distanceToStation + distanceToTargetFromStation) of all stations in the company)
+     * The search is done on the {@link StationIndex} of the company; if several stations tie, the first one of the company wins.
+     * The answers are kept in the {@link RoutePlanCache} of the company.
      */
     public Location calculateRechargingPosition()
     {   
-        Location optimalLocation = null;
-        Location chargerLocation;
-        List <ChargingStation> stations = company.getCityStations();
-        int distanceLocationToCharger;
-        int distanceChargerToTarget;
-        int optimalDistance = Integer.MAX_VALUE;
-       
-        if (stations.size()>0){
-                for (ChargingStation station : stations){
-                
-                chargerLocation= station.getLocation();
-                distanceLocationToCharger = location.distance(chargerLocation);
-                distanceChargerToTarget = chargerLocation.distance(targetLocation);
-                
-                if ((distanceLocationToCharger + distanceChargerToTarget < optimalDistance) && enoughBattery(distanceLocationToCharger) && distanceLocationToCharger != 0 ){
-                    
-                    optimalDistance = distanceLocationToCharger + distanceChargerToTarget;
-                    optimalLocation = chargerLocation;
-                    
-                }
-            }
-        }
-        return optimalLocation;
+        return company.getRoutePlanCache().findBestDetour(location, targetLocation, batteryLevel / 5);
     }
     
      /**
@@ -398,6 +547,11 @@ public class ElectricVehicle
     public void incrementIdleCount()
     {
         idleCount++;
+        Metrics.count(MetricCounter.IDLE_INCREMENTS);
+        DecisionJournal journal = company.getJournal();
+        if (journal != null){
+            journal.idle(this);
+        }
     }
     
     /**
@@ -421,26 +575,76 @@ public class ElectricVehicle
      /**
       * Simulates the recharging process when the vehicle arrives at a {@code rechargingLocation}.
       * The battery is charged to full capacity, the cost is calculated, and the location is deleted from routeLocations.
+      * If every charger is in use the vehicle stays idle, which a flight recording shows as a {@link ChargerUnavailableEvent}:
+      * it tries again on the next step or, if the company has a {@link QueuePolicy}, it waits in the queue of the station
+      * until {@link EVCompany#admitWaitingVehicles(int)} gives it a charger.
       */
     public void recharge(int step)
     {
+        long start = Metrics.start();
+        ChargerUnavailableEvent event = ChargerUnavailableEvent.start();
         //We have to search the station where it is going to get charged
         ChargingStation cStation = company.getChargingStation (location);
-        Charger charger = cStation.getFreeCharger();
+        DecisionJournal journal = company.getJournal();
+        Charger charger = journal != null && journal.isReplaying() ? journal.replayCharger(this, cStation) : cStation.getFreeCharger();
+        if (journal != null){
+            journal.charger(this, charger);
+        }
         if (charger != null){
-            int batteryRecharged = batteryCapacity - batteryLevel;
-            float cost = charger.recharge( this, batteryRecharged );
-            incrementCharges();
-            incrementChargesCost(cost);
-            calculateRoute();
-            charger.setChargerFree(false); //while its recharging, it would be being used
-            StringBuilder builder = new StringBuilder(); //COMPLETAR TODO
+            rechargeAt(charger, step);
         }
         else{
+            ChargerUnavailableEvent.finish(event, step, this, cStation);
             incrementIdleCount();
+            if (company.getQueuePolicy() != null){
+                waitingStation = cStation;
+                company.enqueue(cStation, this, step);
+            }
+            else{
+                markRouteDirty();
+            }
         }
+        Metrics.record(MetricPhase.RECHARGE, start);
     } 
     
+    /**
+     * Gives the vehicle, which is waiting in a {@link StationQueue}, the charger that has just been freed for it.
+     * Used by {@link EVCompany#admitWaitingVehicles(int)}.
+     * @param charger A free charger of the station where the vehicle waits.
+     * @param step The current step of the simulation.
+     */
+    void admit(Charger charger, int step)
+    {
+        waitingStation = null;
+        DecisionJournal journal = company.getJournal();
+        if (journal != null){
+            journal.charger(this, charger);
+        }
+        rechargeAt(charger, step);
+    }
+    
+    /**
+     * Takes the vehicle out of its {@link StationQueue} without recharging. Used by {@link StationQueue#clear()}.
+     */
+    void leaveQueue()
+    {
+        waitingStation = null;
+    }
+    
+    /**
+     * Recharges the battery to full capacity in a charger, which is in use until the chargers are released.
+     */
+    private void rechargeAt(Charger charger, int step)
+    {
+        int batteryRecharged = batteryCapacity - batteryLevel;
+        float cost = charger.recharge( this, batteryRecharged, step );
+        incrementCharges();
+        incrementChargesCost(cost);
+        calculateRoute();
+        charger.setChargerFree(false); //while its recharging, it would be being used
+        Metrics.count(MetricCounter.RECHARGES);
+    }
+    
     /**
      * Increments the count of recharges performed by this vehicle.
      */
@@ -465,7 +669,32 @@ public class ElectricVehicle
       */
      public void act(int step)
     {
-        if (arrivingStep != -1){            //If it has reached its target, we get into the if
+        if (advance(step)){
+            recharge(step);
+        }
+    }
+
+     /**
+      * Carries out the part of a step that only touches this vehicle: it moves one step towards
+      * the target (recharging or final) or stays idle. The recharge itself is left to the caller,
+      * because it is the only part of a step that touches shared {@link Charger}s.
+      * @param step The current step of the simulation.
+      * @return {@code true} if the vehicle has just reached its recharging location and has to recharge.
+      */
+     public boolean advance(int step)
+    {
+        long start = Metrics.start();
+        boolean arrived = moveOneStep(step);
+        Metrics.record(MetricPhase.MOVE, start);
+        return arrived;
+    }
+
+     /**
+      * The body of {@link #advance(int)}.
+      */
+     private boolean moveOneStep(int step)
+    {
+        if (arrivingStep != -1 || waitingStation != null){            //If it has reached its target or waits for a charger, we get into the if
             incrementIdleCount();
         }
         else{
@@ -476,31 +705,102 @@ public class ElectricVehicle
                 if (hasRechargingLocation()){        //if we get in here, it can reach a chargingLocation and has to
                     location = location.nextLocation(rechargingLocation);
                     reduceBatteryLevel();
-                    if (location.equals(rechargingLocation)){
-                        recharge(step);
+                    if (replanAfterMove){
+                        markRouteDirty();
                     }
+                    return location.equals(rechargingLocation);
                 }
-                else{       //if we are here, the vehicle can reach the target location and has to 
+                else{       //if we are here, the vehicle can reach the target location and has to
                     location = location.nextLocation(targetLocation);
                     reduceBatteryLevel();
                     if (location.equals(targetLocation)){
                         arrivingStep = step;
+                        DecisionJournal journal = company.getJournal();
+                        if (journal != null){
+                            journal.arrival(this);
+                        }
                     }
                 }
             }
         }
+        return false;
+    }
+
+     /**
+      * Checks if the vehicle will stay idle on every coming step: it has already arrived, or it cannot
+      * reach its target and there is no station it can reach either.
+      * @return Whether or not this vehicle will never move again.
+      */
+     public boolean isIdleForever()
+    {
+        return arrivingStep != -1 || (!enoughBattery(distanceToTheTargetLocation()) && rechargingLocation == null);
+    }
+
+     /**
+      * Gets the number of steps after the current one that can be skipped with {@link #skipSteps(int)}:
+      * steps on which the vehicle stays idle, or moves in a straight line towards its destination
+      * without reaching it, draining the whole movement cost and so keeping the same route. A vehicle whose
+      * route has to be calculated again, now or after its next move, has no quiet steps, so the route is
+      * calculated on the same step as in the serial run. Neither has a vehicle waiting in a {@link StationQueue},
+      * since it may be admitted on any step.
+      * @return The number of steps that can be skipped, or {@link Integer#MAX_VALUE} if the vehicle
+      * will stay idle forever.
+      */
+     public int getQuietSteps()
+    {
+        if (isRouteDirty() || replanAfterMove || isWaiting()){
+            return 0;
+        }
+        if (isIdleForever()){
+            return Integer.MAX_VALUE;
+        }
+        Location destination = hasRechargingLocation() ? rechargingLocation : targetLocation;
+        int distance = location.distance(destination);
+        if (distance == 0 || batteryLevel - 5 * (distance - 1) <= 0){
+            return 0;
+        }
+        return distance - 1;
+    }
+
+     /**
+      * Applies in closed form the given number of steps, which must not be more than
+      * {@link #getQuietSteps()}: the idle count is increased, or the vehicle is moved towards its
+      * destination and its battery is reduced by the cost of every movement.
+      * @param steps The number of steps to skip. Must be >= 0.
+      */
+     public void skipSteps(int steps)
+    {
+        if (steps > 0){
+            if (isIdleForever()){
+                idleCount += steps;
+                Metrics.count(MetricCounter.IDLE_INCREMENTS, steps);
+                DecisionJournal journal = company.getJournal();
+                if (journal != null){
+                    journal.idleSkipped(this, steps);
+                }
+            }
+            else{
+                Location destination = hasRechargingLocation() ? rechargingLocation : targetLocation;
+                location = location.nextLocation(destination, steps);
+                batteryLevel -= 5 * steps;
+            }
+        }
     }
 
      
     
     /**
      * Reduces the battery level by the cost of one movement step (defined in {@link EVCompany#MOVINGCOST}).
-     * Ensures the battery level does not go below zero.
+     * Ensures the battery level does not go below zero. If the battery is not reduced, the vehicle gets closer
+     * to its stations without losing reach, so its route is marked to be calculated again.
      */
     public void reduceBatteryLevel(){
         if (this.batteryLevel - 5 > 0){
             this.batteryLevel = this.batteryLevel - 5;
         }
+        else{
+            markRouteDirty();
+        }
     }
 
     
@@ -512,23 +812,64 @@ public class ElectricVehicle
     public String toString(){
         StringBuilder builder = new StringBuilder ();
         
-        builder.append (name);
-        builder.append(",");
+        appendInfo(builder);
+        
+        return builder.toString ();
+    }
+    
+    /**
+     * Appends the representation given by {@link #toString()}. Used by {@link ReportWriter}.
+     * @param builder Where the representation is appended.
+     */
+    void appendInfo(StringBuilder builder)
+    {
+        appendInfo(builder, name, plate, batteryCapacity, batteryLevel, chargesCount, chargestCost, idleCount,
+                   location.getPacked(), hasRechargingLocation() ? rechargingLocation.getPacked() : Location.NO_LOCATION,
+                   targetLocation.getPacked());
+    }
+    
+    /**
+     * Appends the representation given by {@link #toString()} of a vehicle with the given state.
+     * Used by the vehicle itself and by the step sinks that keep the state of the vehicles without
+     * keeping the vehicles, like {@link AsyncStepLogger}.
+     * @param builder Where the representation is appended.
+     * @param location The packed current location, see {@link Location#pack(int, int)}.
+     * @param rechargingLocation The packed recharging location, or {@link Location#NO_LOCATION}.
+     * @param targetLocation The packed target location.
+     */
+    static void appendInfo(StringBuilder builder, String name, String plate, int batteryCapacity, int batteryLevel,
+                           int chargesCount, float chargestCost, int idleCount,
+                           long location, long rechargingLocation, long targetLocation)
+    {
+        builder.append(name);
+        builder.append(',');
         builder.append(plate);
-        builder.append(",");
-        builder.append(batteryCapacity + "kwh");
-        builder.append(",");
-        builder.append(batteryLevel + "kwh");
-        builder.append(",");
+        builder.append(',');
+        builder.append(batteryCapacity).append("kwh");
+        builder.append(',');
+        builder.append(batteryLevel).append("kwh");
+        builder.append(',');
         builder.append(chargesCount);
-        builder.append(",");
-        builder.append(chargestCost + "€");
-        builder.append(",");
+        builder.append(',');
+        builder.append(chargestCost).append('€');
+        builder.append(',');
         builder.append(idleCount);
-        builder.append(",");
-        builder.append(getStringRoute());
-        
-        return builder.toString ();
+        builder.append(',');
+        appendLocation(builder, location);
+        if (rechargingLocation != Location.NO_LOCATION){
+            builder.append(", ");
+            appendLocation(builder, rechargingLocation);
+        }
+        builder.append(", ");
+        appendLocation(builder, targetLocation);
+    }
+    
+    /**
+     * Appends a packed location as {@link Location#toString()} does.
+     */
+    private static void appendLocation(StringBuilder builder, long location)
+    {
+        builder.append(Location.packedX(location)).append('-').append(Location.packedY(location));
     }
 
     /**
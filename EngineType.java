@@ -0,0 +1,35 @@
+/**
+ * Enumeration that defines the engines that can run the steps of the simulation.
+ * Every engine produces exactly the same results; they only differ in how the work is done.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public enum EngineType
+{
+    /** Every vehicle acts in turn on the calling thread. */
+    SERIAL ("SERIAL ENGINE"),
+    /** The fleet is split across a fork-join pool, see {@link ParallelStepEngine}. */
+    PARALLEL ("PARALLEL ENGINE"),
+    /** The steps are skipped from event to event, see {@link EventDrivenEngine}. */
+    EVENT_DRIVEN ("EVENT DRIVEN ENGINE"),
+    /** The fleet is kept in primitive columns, see {@link ColumnarStepEngine}. */
+    COLUMNAR ("COLUMNAR ENGINE");
+
+    /** Descriptive name of the engine. */
+    private String name;
+
+    /**
+     * Constructor for the engine types.
+     * @param name Descriptive name.
+     */
+    EngineType(String name){
+        this.name = name;
+    }
+
+    /**
+     * @return The descriptive name of the engine.
+     */
+    public String getName(){
+        return name;
+    }
+}
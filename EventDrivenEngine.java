@@ -0,0 +1,155 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the steps of an {@link EVDemo} jumping from event to event instead of making every vehicle
+ * act on every step. The events of a vehicle are the steps on which something meaningful can
+ * happen to it: the arrival at its recharging location or at its target location, or a new try
+ * to get a free {@link Charger}. Between two events a vehicle is either idle or moving in a
+ * straight line, so those steps are applied in closed form with {@link ElectricVehicle#skipSteps(int)}.
+ *
+ * The pending events are kept in a priority queue ordered by step and then by position in the
+ * fleet, so the vehicles that meet at the same step act in the same order as in the serial run
+ * and the results are exactly the same. The chargers are released before every vehicle acts, as
+ * the serial run does, so a vehicle that finds no free charger simply tries again on the next step.
+ * With station queues the waiting vehicles are admitted before the first event of every step; since
+ * they act on every step while they wait, no step with waiting vehicles is ever skipped.
+ * No step information is printed, since most of the vehicles are not visited on most of the steps.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class EventDrivenEngine
+{
+    /** The demo whose steps are run. */
+    private EVDemo demo;
+    /** The vehicles of the demo, in the order in which they act. */
+    private List<ElectricVehicle> vehicles;
+    /** First step not yet applied to every vehicle. */
+    private int[] nextStep;
+    /** Binary min-heap of events, each one packed as (step << 32) | position in the fleet. */
+    private long[] events;
+    /** Number of events in the heap. */
+    private int size;
+    /** Number of events processed since the engine was created. */
+    private long processedEvents;
+
+    /**
+     * Constructor for objects of class EventDrivenEngine.
+     * @param demo The demo whose steps are run.
+     * @param vehicles The vehicles of the demo, in the order in which they act.
+     */
+    public EventDrivenEngine(EVDemo demo, List<ElectricVehicle> vehicles)
+    {
+        this.demo = demo;
+        this.vehicles = vehicles;
+        this.nextStep = new int[0];
+        this.events = new long[0];
+        this.size = 0;
+        this.processedEvents = 0;
+    }
+
+    /**
+     * @return The number of events processed since the engine was created.
+     */
+    public long getProcessedEvents()
+    {
+        return processedEvents;
+    }
+
+    /**
+     * Run the steps [fromStep, toStep) of the simulation for every vehicle.
+     * @param fromStep The first step to run.
+     * @param toStep The step after the last one to run.
+     */
+    public void run(int fromStep, int toStep)
+    {
+        int fleetSize = vehicles.size();
+        if (nextStep.length < fleetSize){
+            nextStep = new int[fleetSize];
+            events = new long[fleetSize];
+        }
+        Arrays.fill(nextStep, 0, fleetSize, fromStep);
+        size = 0;
+        int admittedStep = fromStep - 1;
+        for (int i = 0; i < fleetSize && fromStep < toStep; i++){
+            push(fromStep, i);
+        }
+
+        while (size > 0){
+            long event = pop();
+            int step = (int) (event >>> 32);
+            int i = (int) event;
+            ElectricVehicle vehicle = vehicles.get(i);
+
+            demo.setJournalStep(step);
+            if (step != admittedStep){
+                demo.admitWaitingVehicles(step);
+                admittedStep = step;
+            }
+            vehicle.skipSteps(step - nextStep[i]);
+            demo.releaseChargers();
+            vehicle.calculateRouteIfDirty();
+            vehicle.act(step);
+            nextStep[i] = step + 1;
+            processedEvents++;
+
+            long next = (long) step + 1 + vehicle.getQuietSteps();
+            if (next < toStep){
+                push((int) next, i);
+            }
+        }
+
+        demo.setJournalStep(toStep);
+        for (int i = 0; i < fleetSize; i++){
+            if (nextStep[i] < toStep){
+                vehicles.get(i).skipSteps(toStep - nextStep[i]);
+                nextStep[i] = toStep;
+            }
+        }
+    }
+
+    /**
+     * Adds an event to the heap.
+     * @param step The step of the event.
+     * @param vehicle The position in the fleet of the vehicle.
+     */
+    private void push(int step, int vehicle)
+    {
+        long event = ((long) step << 32) | vehicle;
+        int i = size++;
+        while (i > 0){
+            int parent = (i - 1) >>> 1;
+            if (events[parent] <= event){
+                break;
+            }
+            events[i] = events[parent];
+            i = parent;
+        }
+        events[i] = event;
+    }
+
+    /**
+     * Removes the first event from the heap.
+     * @return The first event, packed as (step << 32) | position in the fleet.
+     */
+    private long pop()
+    {
+        long first = events[0];
+        long last = events[--size];
+        int i = 0;
+        int child = 1;
+        while (child < size){
+            if (child + 1 < size && events[child + 1] < events[child]){
+                child++;
+            }
+            if (last <= events[child]){
+                break;
+            }
+            events[i] = events[child];
+            i = child;
+            child = 2 * i + 1;
+        }
+        events[i] = last;
+        return first;
+    }
+}
@@ -0,0 +1,269 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the state that the move-and-drain hot path of the simulation needs in primitive
+ * columns, one entry per vehicle. Row i of every column belongs to the i-th vehicle of the fleet
+ * given to the constructor, which is the vehicle id used by the store.
+ *
+ * The {@link ElectricVehicle} objects stay as the facade seen by the rest of the program:
+ * {@link #capture(int)} copies the state of a vehicle into its row and {@link #publish(int)}
+ * copies it back, so the objects are only touched when a vehicle recharges, when its information
+ * is printed, and at the end of a run.
+ *
+ * The kernels {@link #planRoutes(int, int)} and {@link #move(int, int, int)} do the same work
+ * as {@link ElectricVehicle#calculateRoute()} and {@link ElectricVehicle#advance(int)} over a
+ * range of rows. The movement loop only reads and writes the columns and is written with
+ * conditional expressions instead of branches, so the JIT can keep it in straight-line code.
+ * The planning loop asks the {@link StationIndex} of the company for the recharging stations.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class FleetStore
+{
+    /** Value of the recharging station column when no recharge is planned. */
+    public static final int NO_STATION = -1;
+
+    private ElectricVehicle[] vehicles;
+    private int size;
+
+    private int[] x;
+    private int[] y;
+    private int[] targetX;
+    private int[] targetY;
+    private int[] rechargeX;
+    private int[] rechargeY;
+    private int[] rechargeStation;
+    private int[] batteryLevel;
+    private int[] idleCount;
+    private int[] arrivingStep;
+    private boolean[] pendingRecharge;
+
+    private Location[] stationLocations;
+    private int[] stationX;
+    private int[] stationY;
+    private Map<Location, Integer> stationByLocation;
+    private StationIndex stationIndex;
+
+    /**
+     * Constructor for objects of class FleetStore. The state of every vehicle is captured.
+     * @param fleet The vehicles of the store. Vehicle i of the list gets row i.
+     * @param company The company whose stations are used to plan the routes.
+     */
+    public FleetStore(List<ElectricVehicle> fleet, EVCompany company)
+    {
+        size = fleet.size();
+        vehicles = fleet.toArray(new ElectricVehicle[size]);
+        x = new int[size];
+        y = new int[size];
+        targetX = new int[size];
+        targetY = new int[size];
+        rechargeX = new int[size];
+        rechargeY = new int[size];
+        rechargeStation = new int[size];
+        batteryLevel = new int[size];
+        idleCount = new int[size];
+        arrivingStep = new int[size];
+        pendingRecharge = new boolean[size];
+
+        List<ChargingStation> stations = company.getCityStations();
+        stationIndex = company.getStationIndex();
+        int numStations = stations.size();
+        stationLocations = new Location[numStations];
+        stationX = new int[numStations];
+        stationY = new int[numStations];
+        stationByLocation = new HashMap<Location, Integer>();
+        for (int j = 0; j < numStations; j++){
+            Location location = stations.get(j).getLocation();
+            stationLocations[j] = location;
+            stationX[j] = location.getX();
+            stationY[j] = location.getY();
+            if (!stationByLocation.containsKey(location)){
+                stationByLocation.put(location, j);
+            }
+        }
+
+        captureAll();
+    }
+
+    /**
+     * @return The number of vehicles in the store.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param i The id of a vehicle.
+     * @return The vehicle of the given row.
+     */
+    public ElectricVehicle getVehicle(int i)
+    {
+        return vehicles[i];
+    }
+
+    /**
+     * @param i The id of a vehicle.
+     * @return Whether or not the vehicle reached its recharging location in the last {@link #move(int, int, int)}.
+     */
+    public boolean isPendingRecharge(int i)
+    {
+        return pendingRecharge[i];
+    }
+
+    /**
+     * Copies the state of a vehicle object into its row.
+     * @param i The id of the vehicle.
+     */
+    public void capture(int i)
+    {
+        ElectricVehicle vehicle = vehicles[i];
+        x[i] = vehicle.getLocation().getX();
+        y[i] = vehicle.getLocation().getY();
+        targetX[i] = vehicle.getTargetLocation().getX();
+        targetY[i] = vehicle.getTargetLocation().getY();
+        Integer station = vehicle.hasRechargingLocation() ? stationByLocation.get(vehicle.getRechargingLocation()) : null;
+        setRechargeStation(i, station == null ? NO_STATION : station);
+        batteryLevel[i] = vehicle.getBatteryLevel();
+        idleCount[i] = vehicle.getIdleCount();
+        arrivingStep[i] = vehicle.getArrivingStep();
+        pendingRecharge[i] = false;
+    }
+
+    /**
+     * Copies the row of a vehicle back into the vehicle object.
+     * @param i The id of the vehicle.
+     */
+    public void publish(int i)
+    {
+        ElectricVehicle vehicle = vehicles[i];
+        Location location = vehicle.getLocation();
+        if (location.getX() != x[i] || location.getY() != y[i]){
+            vehicle.setLocation(Location.of(x[i], y[i]));
+        }
+        vehicle.setRechargingLocation(rechargeStation[i] == NO_STATION ? null : stationLocations[rechargeStation[i]]);
+        vehicle.setBatteryLevel(batteryLevel[i]);
+        vehicle.setIdleCount(idleCount[i]);
+        vehicle.setArrivingStep(arrivingStep[i]);
+    }
+
+    /**
+     * Copies the state of every vehicle object into its row.
+     */
+    public void captureAll()
+    {
+        for (int i = 0; i < size; i++){
+            capture(i);
+        }
+    }
+
+    /**
+     * @param fleet The vehicles of a run.
+     * @param company The company whose stations are used to plan the routes.
+     * @return Whether or not the store can be used for the run: it has the same vehicles in the same
+     * order, and the stations of the company have not changed since it was built.
+     */
+    public boolean matches(List<ElectricVehicle> fleet, EVCompany company)
+    {
+        if (fleet.size() != size || company.getStationIndex() != stationIndex){
+            return false;
+        }
+        for (int i = 0; i < size; i++){
+            if (fleet.get(i) != vehicles[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies every row back into its vehicle object.
+     */
+    public void publishAll()
+    {
+        for (int i = 0; i < size; i++){
+            publish(i);
+        }
+    }
+
+    /**
+     * Calculates the route of the vehicles [from, to), as {@link ElectricVehicle#calculateRoute()} does.
+     * @param from The first vehicle id.
+     * @param to The vehicle id after the last one.
+     */
+    public void planRoutes(int from, int to)
+    {
+        for (int i = from; i < to; i++){
+            int px = x[i];
+            int py = y[i];
+            int tx = targetX[i];
+            int ty = targetY[i];
+            int battery = batteryLevel[i];
+            int best = NO_STATION;
+            if (battery < 5 * distance(px, py, tx, ty)){
+                best = stationIndex.findBestDetour(px, py, tx, ty, battery / 5);
+            }
+            setRechargeStation(i, best);
+        }
+    }
+
+    /**
+     * Moves the vehicles [from, to) one step or leaves them idle, as {@link ElectricVehicle#advance(int)}
+     * does. The vehicles that reach their recharging location are marked as pending, see
+     * {@link #isPendingRecharge(int)}; the recharge itself is left to the caller.
+     * @param from The first vehicle id.
+     * @param to The vehicle id after the last one.
+     * @param step The current step of the simulation.
+     * @return The number of vehicles left idle, for {@link MetricCounter#IDLE_INCREMENTS}.
+     */
+    public int move(int from, int to, int step)
+    {
+        int idle = 0;
+        for (int i = from; i < to; i++){
+            int px = x[i];
+            int py = y[i];
+            int battery = batteryLevel[i];
+            boolean toStation = rechargeX[i] >= 0;
+            int destinationX = toStation ? rechargeX[i] : targetX[i];
+            int destinationY = toStation ? rechargeY[i] : targetY[i];
+            boolean moves = arrivingStep[i] == -1
+                            && (toStation || battery >= 5 * distance(px, py, targetX[i], targetY[i]));
+            int moved = moves ? 1 : 0;
+
+            px += moved * Integer.signum(destinationX - px);
+            py += moved * Integer.signum(destinationY - py);
+            boolean there = moves && px == destinationX && py == destinationY;
+
+            x[i] = px;
+            y[i] = py;
+            batteryLevel[i] = moves && battery > 5 ? battery - 5 : battery;
+            idleCount[i] += 1 - moved;
+            idle += 1 - moved;
+            arrivingStep[i] = there && !toStation ? step : arrivingStep[i];
+            pendingRecharge[i] = there && toStation;
+        }
+        return idle;
+    }
+
+    /**
+     * Sets the recharging station of a vehicle and its coordinates.
+     * @param i The id of the vehicle.
+     * @param station The position of the station in the company, or {@link #NO_STATION}.
+     */
+    private void setRechargeStation(int i, int station)
+    {
+        rechargeStation[i] = station;
+        rechargeX[i] = station == NO_STATION ? -1 : stationX[station];
+        rechargeY[i] = station == NO_STATION ? -1 : stationY[station];
+    }
+
+    /**
+     * The Chebyshev distance between two points, as {@link Location#distance(Location)}.
+     */
+    private static int distance(int x1, int y1, int x2, int y2)
+    {
+        return Math.max(Math.abs(x2 - x1), Math.abs(y2 - y1));
+    }
+}
@@ -0,0 +1,376 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Micro-benchmarks of the hot paths of the simulation, run with {@link MicroBenchmark}:
+ * <ul>
+ * <li>{@link Location#distance(Location)} and {@link Location#nextLocation(Location)}.</li>
+ * <li>{@link ElectricVehicle#calculateRechargingPosition()}, through the route cache, and the
+ * uncached search on the {@link StationIndex}.</li>
+ * <li>{@link ChargingStation#getFreeCharger()} and {@link ChargingStation#addCharger(Charger)}.</li>
+ * <li>{@link EVCompany#getCityStations()} and {@link EVCompany#addElectricVehicle(ElectricVehicle)}.</li>
+ * <li>The comparator chains used to sort chargers, vehicles and stations.</li>
+ * <li>A full {@link EVDemo#step(int)} without step information, over the first
+ * {@value #STEPS_PER_SCENARIO} steps of a new scenario, since later on most vehicles have arrived
+ * and a step does little.</li>
+ * </ul>
+ * The scenarios are built by a {@link ScenarioGenerator} with a fixed seed, so two runs measure the
+ * same work. The sizes are parameters given on the command line as {@code name=v1,v2,...}:
+ * {@code vehicles}, {@code stations}, {@code chargers} and {@code grid} (the side of the city), plus
+ * {@code warmup}, {@code iterations} and {@code millis} for the harness, and {@code filter} to run
+ * only the benchmarks whose name contains the given text. Every combination of sizes is run.
+ *
+ * Every benchmark, with every combination of sizes, is run in {@code forks} new JVMs (1 by default)
+ * with {@link MicroBenchmark#fork(Class, List)}, so that none is compiled with the profile of the
+ * others. Each fork is this class run with {@code forks=0}, which runs the benchmarks in the same
+ * JVM, and with {@code benchmark} set to the name of the only benchmark to run.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class HotPathBenchmarks
+{
+    private static final long SEED = 20251020L;
+    /** Number of steps of {@link EVDemo#step(int)} measured on a scenario before a new one is built. */
+    private static final int STEPS_PER_SCENARIO = 100;
+
+    private MicroBenchmark harness;
+    private String filter;
+    /** Name of the only benchmark to run, or empty to run every one that passes the filter. */
+    private String benchmark;
+    /** Number of JVMs forked for every benchmark, or 0 to run the benchmarks in this one. */
+    private int forks;
+    /** Parameters of the harness passed on to the forked JVMs. */
+    private List<String> harnessArgs;
+
+    /** State of the benchmark being run, built by its set-up. */
+    private Location[] locations;
+    private ElectricVehicle[] vehicles;
+    private StationIndex index;
+    private ChargingStation station;
+    private Charger[] chargers;
+    private EVCompany company;
+    private EVDemo demo;
+    private int next;
+
+    /**
+     * Constructor for objects of class HotPathBenchmarks, that runs the benchmarks in this JVM.
+     * @param harness The harness that runs the benchmarks.
+     * @param filter Only the benchmarks whose name contains this text are run; empty to run all of them.
+     */
+    public HotPathBenchmarks(MicroBenchmark harness, String filter)
+    {
+        this(harness, filter, "", 0, new ArrayList<String>());
+    }
+
+    /**
+     * Constructor for objects of class HotPathBenchmarks.
+     * @param harness The harness that runs the benchmarks in this JVM.
+     * @param filter Only the benchmarks whose name contains this text are run; empty to run all of them.
+     * @param benchmark The name of the only benchmark to run; empty to run every one that passes the filter.
+     * @param forks The number of JVMs forked for every benchmark, or 0 to run them in this JVM with the harness.
+     * @param harnessArgs The parameters of the harness, as {@code name=value}, passed on to the forked JVMs.
+     * @throws IllegalArgumentException If forks is negative.
+     */
+    public HotPathBenchmarks(MicroBenchmark harness, String filter, String benchmark, int forks, List<String> harnessArgs)
+    {
+        if (forks < 0){
+            throw new IllegalArgumentException("Negative number of forks: " + forks);
+        }
+        this.harness = harness;
+        this.filter = filter;
+        this.benchmark = benchmark;
+        this.forks = forks;
+        this.harnessArgs = new ArrayList<String>(harnessArgs);
+    }
+
+    /**
+     * Runs the benchmarks for every combination of the sizes given on the command line.
+     * @param args Parameters as {@code name=v1,v2,...}, see the description of the class.
+     */
+    public static void main(String[] args)
+    {
+        int[] vehicleSizes = intParam(args, "vehicles", "1000,10000");
+        int[] stationSizes = intParam(args, "stations", "100,1000");
+        int[] chargerSizes = intParam(args, "chargers", "4,16");
+        int grid = intParam(args, "grid", "1000")[0];
+        List<String> harnessArgs = new ArrayList<String>();
+        harnessArgs.add("warmup=" + intParam(args, "warmup", "5")[0]);
+        harnessArgs.add("iterations=" + intParam(args, "iterations", "5")[0]);
+        harnessArgs.add("millis=" + intParam(args, "millis", "1000")[0]);
+        MicroBenchmark harness = new MicroBenchmark(intParam(args, "warmup", "5")[0],
+                                                    intParam(args, "iterations", "5")[0],
+                                                    intParam(args, "millis", "1000")[0]);
+        String benchmark = stringParam(args, "benchmark", "");
+        HotPathBenchmarks benchmarks = new HotPathBenchmarks(harness, stringParam(args, "filter", ""), benchmark,
+                                                             intParam(args, "forks", "1")[0], harnessArgs);
+
+        if (benchmark.isEmpty()){
+            System.out.println(MicroBenchmark.getHeader());
+        }
+        benchmarks.runLocation(grid);
+        for (int numChargers : chargerSizes){
+            benchmarks.runStation(numChargers);
+        }
+        for (int numVehicles : vehicleSizes){
+            benchmarks.runFleet(grid, numVehicles);
+            for (int numStations : stationSizes){
+                benchmarks.runRouting(grid, numVehicles, numStations);
+                for (int numChargers : chargerSizes){
+                    benchmarks.runCompany(grid, numVehicles, numStations, numChargers);
+                }
+            }
+        }
+    }
+
+    /**
+     * Benchmarks of {@link Location}.
+     */
+    public void runLocation(int grid)
+    {
+        String params = "grid=" + grid;
+        if (selected("Location.distance")){
+            measure("Location.distance", params, () -> locations = randomLocations(grid, 1 << 12), () -> {
+                int i = next++ & (locations.length - 1);
+                return locations[i].distance(locations[(i + 1) & (locations.length - 1)]);
+            });
+        }
+        if (selected("Location.nextLocation")){
+            measure("Location.nextLocation", params, () -> locations = randomLocations(grid, 1 << 12), () -> {
+                int i = next++ & (locations.length - 1);
+                return locations[i].nextLocation(locations[(i + 1) & (locations.length - 1)]).getPacked();
+            });
+        }
+    }
+
+    /**
+     * Benchmarks of {@link ChargingStation} with the given number of chargers.
+     */
+    public void runStation(int numChargers)
+    {
+        String params = "chargers=" + numChargers;
+        if (selected("ChargingStation.getFreeCharger")){
+            measure("ChargingStation.getFreeCharger", params, () -> {
+                createStation(numChargers);
+                for (int i = 0; i < numChargers - 1; i++){
+                    station.getChargers().get(i).setChargerFree(false);
+                }
+            }, () -> station.getFreeCharger().getChargingSpeed());
+        }
+        if (selected("ChargingStation.addCharger")){
+            measure("ChargingStation.addCharger", params, () -> createStation(numChargers), () -> {
+                ChargingStation added = new ChargingStation("Cáceres", "ST0", Location.of(0, 0));
+                for (Charger charger : chargers){
+                    added.addCharger(charger);
+                }
+                return added.getChargers().size();
+            });
+        }
+        if (selected("ChargingStation.addChargers")){
+            measure("ChargingStation.addChargers", params, () -> createStation(numChargers), () -> {
+                ChargingStation added = new ChargingStation("Cáceres", "ST0", Location.of(0, 0));
+                added.addChargers(Arrays.asList(chargers));
+                return added.getChargers().size();
+            });
+        }
+    }
+
+    /**
+     * Benchmarks of the registration of a fleet and of the vehicle comparators.
+     */
+    public void runFleet(int grid, int numVehicles)
+    {
+        String params = "grid=" + grid + ",vehicles=" + numVehicles;
+        if (selected("EVCompany.addElectricVehicle")){
+            measure("EVCompany.addElectricVehicle", params, () -> createCompany(grid, numVehicles, 0, 0), () -> {
+                EVCompany added = new EVCompany("Benchmark");
+                for (ElectricVehicle vehicle : vehicles){
+                    added.addElectricVehicle(vehicle);
+                }
+                return added.getVehicles().size();
+            });
+        }
+        if (selected("EVCompany.addElectricVehicles")){
+            measure("EVCompany.addElectricVehicles", params, () -> createCompany(grid, numVehicles, 0, 0), () -> {
+                EVCompany added = new EVCompany("Benchmark");
+                added.addElectricVehicles(Arrays.asList(vehicles));
+                return added.getVehicles().size();
+            });
+        }
+        if (selected("ComparatorVehicleArrivingStep.sort")){
+            measure("ComparatorVehicleArrivingStep.sort", params, () -> createCompany(grid, numVehicles, 0, 0), () -> {
+                ElectricVehicle[] sorted = vehicles.clone();
+                Arrays.sort(sorted, new ComparatorVehicleArrivingStep());
+                return sorted[0].getArrivingStep();
+            });
+        }
+    }
+
+    /**
+     * Benchmarks of the search of recharging stations.
+     */
+    public void runRouting(int grid, int numVehicles, int numStations)
+    {
+        String params = "grid=" + grid + ",vehicles=" + numVehicles + ",stations=" + numStations;
+        if (selected("ElectricVehicle.calculateRechargingPosition")){
+            measure("ElectricVehicle.calculateRechargingPosition", params, () -> createCompany(grid, numVehicles, numStations, 1), () -> {
+                Location found = vehicles[next++ % vehicles.length].calculateRechargingPosition();
+                return found == null ? 0 : found.getPacked();
+            });
+        }
+        if (selected("StationIndex.findBestDetour")){
+            measure("StationIndex.findBestDetour", params, () -> {
+                createCompany(grid, numVehicles, numStations, 1);
+                index = company.getStationIndex();
+            }, () -> {
+                ElectricVehicle vehicle = vehicles[next++ % vehicles.length];
+                Location found = index.findBestDetour(vehicle.getLocation(), vehicle.getTargetLocation(), vehicle.getBatteryLevel() / 5);
+                return found == null ? 0 : found.getPacked();
+            });
+        }
+    }
+
+    /**
+     * Benchmarks of a whole company: its getters, the station and charger comparators and a full step.
+     */
+    public void runCompany(int grid, int numVehicles, int numStations, int numChargers)
+    {
+        String params = "grid=" + grid + ",vehicles=" + numVehicles + ",stations=" + numStations + ",chargers=" + numChargers;
+        if (selected("EVCompany.getCityStations")){
+            measure("EVCompany.getCityStations", params, () -> createCompany(grid, numVehicles, numStations, numChargers),
+                        () -> company.getCityStations().size());
+        }
+        if (selected("ComparatorChargersChargerSpeed.sort")){
+            measure("ComparatorChargersChargerSpeed.sort", params, () -> {
+                createCompany(grid, numVehicles, numStations, numChargers);
+                List<Charger> all = new ArrayList<Charger>();
+                for (ChargingStation current : company.getCityStations()){
+                    all.addAll(current.getChargers());
+                }
+                chargers = all.toArray(new Charger[0]);
+            }, () -> {
+                Charger[] sorted = chargers.clone();
+                Arrays.sort(sorted, new ComparatorChargersChargerSpeed());
+                return sorted[0].getChargingSpeed();
+            });
+        }
+        if (selected("ComparatorChargingStationNumberRecharged.sort")){
+            measure("ComparatorChargingStationNumberRecharged.sort", params, () -> createCompany(grid, numVehicles, numStations, numChargers), () -> {
+                ChargingStation[] sorted = company.getCityStations().toArray(new ChargingStation[0]);
+                Arrays.sort(sorted, new ComparatorChargingStationNumberRecharged());
+                return sorted.length;
+            });
+        }
+        if (selected("EVDemo.step")){
+            measure("EVDemo.step", params, () -> {
+                createCompany(grid, numVehicles, numStations, numChargers);
+                demo = new EVDemo(company, company.getVehicles(), null);
+            }, STEPS_PER_SCENARIO, () -> {
+                demo.step(next++);
+                return next;
+            });
+        }
+    }
+
+    /**
+     * Runs a benchmark with the harness, or in {@code forks} new JVMs one after the other.
+     * @see MicroBenchmark#run(String, String, Runnable, long, LongSupplier)
+     */
+    private void measure(String name, String params, Runnable setUp, long operationsPerSetUp, LongSupplier operation)
+    {
+        if (forks == 0){
+            harness.run(name, params, setUp, operationsPerSetUp, operation);
+            return;
+        }
+        List<String> args = new ArrayList<String>(harnessArgs);
+        args.addAll(Arrays.asList(params.split(",")));
+        args.add("benchmark=" + name);
+        args.add("forks=0");
+        try{
+            for (int fork = 0; fork < forks; fork++){
+                MicroBenchmark.fork(HotPathBenchmarks.class, args);
+            }
+        }
+        catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void measure(String name, String params, Runnable setUp, LongSupplier operation)
+    {
+        measure(name, params, setUp, 0, operation);
+    }
+
+    /**
+     * Builds a new scenario in {@code company} and {@code vehicles}.
+     */
+    private void createCompany(int grid, int numVehicles, int numStations, int numChargers)
+    {
+        ScenarioGenerator generator = new ScenarioGenerator(SEED, grid, grid);
+        generator.setNumVehicles(numVehicles);
+        generator.setNumStations(numStations);
+        generator.setNumChargersPerStation(numChargers);
+        company = generator.generate("Benchmark");
+        vehicles = company.getVehicles().toArray(new ElectricVehicle[0]);
+        next = 0;
+    }
+
+    /**
+     * Builds a new station with the given number of chargers in {@code station}, and a copy of its
+     * chargers, detached, in {@code chargers}.
+     */
+    private void createStation(int numChargers)
+    {
+        SplittableRandom random = new SplittableRandom(SEED);
+        station = new ChargingStation("Cáceres", "ST0", Location.of(0, 0));
+        chargers = new Charger[numChargers];
+        for (int i = 0; i < numChargers; i++){
+            chargers[i] = new Charger("ST0_" + i, 20 * (1 + random.nextInt(8)), 0.05f * (1 + random.nextInt(8)));
+        }
+        station.addChargers(Arrays.asList(chargers));
+        for (int i = 0; i < numChargers; i++){
+            chargers[i] = new Charger(chargers[i]);
+        }
+        next = 0;
+    }
+
+    private Location[] randomLocations(int grid, int size)
+    {
+        SplittableRandom random = new SplittableRandom(SEED);
+        Location[] result = new Location[size];
+        for (int i = 0; i < size; i++){
+            result[i] = Location.of(random.nextInt(grid), random.nextInt(grid));
+        }
+        next = 0;
+        return result;
+    }
+
+    private boolean selected(String name)
+    {
+        return name.contains(filter) && (benchmark.isEmpty() || benchmark.equals(name));
+    }
+
+    private static int[] intParam(String[] args, String name, String defaultValue)
+    {
+        String[] values = stringParam(args, name, defaultValue).split(",");
+        int[] result = new int[values.length];
+        for (int i = 0; i < values.length; i++){
+            result[i] = Integer.parseInt(values[i].trim());
+        }
+        return result;
+    }
+
+    private static String stringParam(String[] args, String name, String defaultValue)
+    {
+        for (String arg : args){
+            if (arg.startsWith(name + "=")){
+                return arg.substring(name.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+}
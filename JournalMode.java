@@ -0,0 +1,32 @@
+/**
+ * Enumeration that defines what a {@link DecisionJournal} does with the decisions of the vehicles.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public enum JournalMode
+{
+    /** The decisions are appended to the journal file. */
+    RECORD ("RECORD"),
+    /** The decisions are compared with the ones of a journal file, and the differences are counted. */
+    VERIFY ("VERIFY"),
+    /** The routes and the chargers are taken from a journal file instead of being searched, and the rest is verified. */
+    REPLAY ("REPLAY");
+
+    /** Descriptive name of the mode. */
+    private String name;
+
+    /**
+     * Constructor for the journal modes.
+     * @param name Descriptive name.
+     */
+    JournalMode(String name){
+        this.name = name;
+    }
+
+    /**
+     * @return The descriptive name of the mode.
+     */
+    public String getName(){
+        return name;
+    }
+}
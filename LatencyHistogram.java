@@ -0,0 +1,205 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies in nanoseconds with log-linear buckets, in the manner of an HDR histogram:
+ * values below {@link #SUB_BUCKETS} have a bucket each, and every power of two above that is split in
+ * {@link #SUB_BUCKETS} buckets of the same width, so every value is kept with a relative error
+ * below 1 / {@link #SUB_BUCKETS} (about 3%) whatever its magnitude, in a fixed amount of memory.
+ *
+ * Values can be recorded from several threads at once without locks and without creating objects.
+ * The statistics read while values are being recorded may miss the latest ones.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class LatencyHistogram
+{
+    /** Number of bits of the buckets inside every power of two. */
+    private static final int SUB_BUCKET_BITS = 5;
+    /** Number of buckets inside every power of two. */
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Number of buckets, enough for every non-negative long. */
+    private static final int NUM_BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private AtomicLongArray counts;
+    private LongAdder total;
+    private AtomicLong min;
+    private AtomicLong max;
+
+    /**
+     * Constructor for objects of class LatencyHistogram. The histogram is empty.
+     */
+    public LatencyHistogram()
+    {
+        counts = new AtomicLongArray(NUM_BUCKETS);
+        total = new LongAdder();
+        min = new AtomicLong(Long.MAX_VALUE);
+        max = new AtomicLong(Long.MIN_VALUE);
+    }
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     * @param nanos The value, in nanoseconds.
+     */
+    public void record(long nanos)
+    {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(value));
+        total.add(value);
+        long current = min.get();
+        while (value < current && !min.compareAndSet(current, value)){
+            current = min.get();
+        }
+        current = max.get();
+        while (value > current && !max.compareAndSet(current, value)){
+            current = max.get();
+        }
+    }
+
+    /**
+     * @return The number of recorded values.
+     */
+    public long getCount()
+    {
+        long count = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++){
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return The sum of the recorded values, in nanoseconds.
+     */
+    public long getTotal()
+    {
+        return total.sum();
+    }
+
+    /**
+     * @return The mean of the recorded values, in nanoseconds, or 0 if there are none.
+     */
+    public double getMean()
+    {
+        long count = getCount();
+        return count == 0 ? 0 : (double) getTotal() / count;
+    }
+
+    /**
+     * @return The smallest recorded value, in nanoseconds, or 0 if there are none.
+     */
+    public long getMin()
+    {
+        long value = min.get();
+        return value == Long.MAX_VALUE ? 0 : value;
+    }
+
+    /**
+     * @return The greatest recorded value, in nanoseconds, or 0 if there are none.
+     */
+    public long getMax()
+    {
+        long value = max.get();
+        return value == Long.MIN_VALUE ? 0 : value;
+    }
+
+    /**
+     * Gets the value below or at which a percentage of the recorded values are. The value is the
+     * greatest one of its bucket, but never more than {@link #getMax()}.
+     * @param percentile The percentage, between 0 and 100.
+     * @return The value, in nanoseconds, or 0 if there are no values.
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        long count = getCount();
+        if (count == 0){
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++){
+            seen += counts.get(i);
+            if (seen >= rank){
+                return Math.min(highestValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Adds the values of another histogram to this one.
+     * @param other The other histogram.
+     */
+    public void add(LatencyHistogram other)
+    {
+        for (int i = 0; i < NUM_BUCKETS; i++){
+            long count = other.counts.get(i);
+            if (count != 0){
+                counts.addAndGet(i, count);
+            }
+        }
+        total.add(other.getTotal());
+        if (other.getCount() > 0){
+            long value = other.getMin();
+            long current = min.get();
+            while (value < current && !min.compareAndSet(current, value)){
+                current = min.get();
+            }
+            value = other.getMax();
+            current = max.get();
+            while (value > current && !max.compareAndSet(current, value)){
+                current = max.get();
+            }
+        }
+    }
+
+    /**
+     * @return A new histogram with the values recorded so far in this one.
+     */
+    public LatencyHistogram copy()
+    {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(this);
+        return copy;
+    }
+
+    /**
+     * Removes every recorded value.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < NUM_BUCKETS; i++){
+            counts.set(i, 0);
+        }
+        total.reset();
+        min.set(Long.MAX_VALUE);
+        max.set(Long.MIN_VALUE);
+    }
+
+    /**
+     * @return The bucket of a non-negative value.
+     */
+    private static int bucket(long value)
+    {
+        if (value < SUB_BUCKETS){
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return The greatest value that falls in a bucket.
+     */
+    private static long highestValue(int bucket)
+    {
+        if (bucket < SUB_BUCKETS){
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        long next = (mantissa + 1) << shift;
+        return next <= 0 ? Long.MAX_VALUE : next - 1;
+    }
+}
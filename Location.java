@@ -3,13 +3,30 @@ import java.lang.Math;
 
 /**
  * Model a location in a two-dimensional grid city using (x, y) coordinates.
+ *
+ * Locations are immutable values: both coordinates are packed in a single {@code long}
+ * (x in the high 32 bits, y in the low 32 bits), and moving returns another location instead of
+ * changing this one, so locations can be shared freely and never need to be copied.
+ * {@link #of(int, int)} hands out cached instances for the cells of the city, so moving around
+ * does not allocate. The static helpers work directly on packed coordinates, for the loops that
+ * do not need {@link Location} objects at all.
  * @author DP classes 
  * @version 2024.10.07
  */
 public class Location
 {
-    private int x;
-    private int y;
+    /** A packed value that is not a location, since no location has negative coordinates. */
+    public static final long NO_LOCATION = -1L;
+    
+    /** Side of the square of cells, starting at (0, 0), whose locations are always cached. */
+    private static final int GRID_CACHE_SIDE = 128;
+    /** Number of slots of the cache of the locations outside the square. Must be a power of 2. */
+    private static final int HOT_CACHE_SIZE = 1 << 12;
+    private static final Location[] GRID_CACHE = new Location[GRID_CACHE_SIDE * GRID_CACHE_SIDE];
+    private static final Location[] HOT_CACHE = new Location[HOT_CACHE_SIZE];
+
+    private final long packed;
+    private final int hash;
 
     /**
      * Model a location in the city.
@@ -27,19 +44,126 @@ public class Location
             throw new IllegalArgumentException(
                         "Negative y-coordinate: " + y);
         }        
-        this.x = x;
-        this.y = y;
+        this.packed = pack(x, y);
+        this.hash = mix(packed);
     }
     
     /**
-     * Copy constructor of location
-     * 
+     * Copy constructor of location.
+     * Locations are immutable, so a copy is never needed; the location itself can be shared.
      */
-    
     public Location (Location l)
     {
-        this.x = l.x;
-        this.y = l.y;
+        this.packed = l.packed;
+        this.hash = l.hash;
+    }
+    
+    /**
+     * Gets the location with the given coordinates. The locations of the cells near (0, 0), and the
+     * ones of the cells used most recently elsewhere, are cached, so no object is created for them:
+     * the cache is probed with the packed coordinates, and a location is only created on a miss.
+     * @param x The x coordinate. Must be non-negative.
+     * @param y The y coordinate. Must be non-negative.
+     * @return The {@link Location} (x, y).
+     * @throws IllegalArgumentException If a coordinate is negative.
+     */
+    public static Location of(int x, int y)
+    {
+        if (x < GRID_CACHE_SIDE && y < GRID_CACHE_SIDE && x >= 0 && y >= 0){
+            int slot = x * GRID_CACHE_SIDE + y;
+            Location location = GRID_CACHE[slot];
+            if (location == null){
+                location = new Location(x, y);
+                GRID_CACHE[slot] = location;
+            }
+            return location;
+        }
+        long packed = pack(x, y);
+        int slot = mix(packed) & (HOT_CACHE_SIZE - 1);
+        Location cached = HOT_CACHE[slot];
+        if (cached != null && cached.packed == packed){       //cached locations are never negative, so no check is skipped
+            return cached;
+        }
+        Location location = new Location(x, y);
+        HOT_CACHE[slot] = location;
+        return location;
+    }
+    
+    /**
+     * Gets the location with the given packed coordinates, as {@link #of(int, int)} does.
+     * @param packed The coordinates, packed by {@link #pack(int, int)}.
+     * @return The {@link Location} with those coordinates.
+     */
+    public static Location of(long packed)
+    {
+        return of(packedX(packed), packedY(packed));
+    }
+    
+    /**
+     * Packs two coordinates in a long.
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @return The packed coordinates: x in the high 32 bits and y in the low 32 bits.
+     */
+    public static long pack(int x, int y)
+    {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+    
+    /**
+     * @param packed Coordinates packed by {@link #pack(int, int)}.
+     * @return The x coordinate.
+     */
+    public static int packedX(long packed)
+    {
+        return (int) (packed >> 32);
+    }
+    
+    /**
+     * @param packed Coordinates packed by {@link #pack(int, int)}.
+     * @return The y coordinate.
+     */
+    public static int packedY(long packed)
+    {
+        return (int) packed;
+    }
+    
+    /**
+     * The Chebyshev distance between two packed points, as {@link #distance(Location)}.
+     * @param from The first point, packed by {@link #pack(int, int)}.
+     * @param to The second point, packed by {@link #pack(int, int)}.
+     * @return The number of movement steps from one point to the other.
+     */
+    public static int distance(long from, long to)
+    {
+        return Math.max(Math.abs(packedX(to) - packedX(from)), Math.abs(packedY(to) - packedY(from)));
+    }
+    
+    /**
+     * Moves a packed point one step towards a destination, as {@link #nextLocation(Location)}.
+     * @param from The point, packed by {@link #pack(int, int)}.
+     * @param to The destination, packed by {@link #pack(int, int)}.
+     * @return The packed point one step closer to the destination, or the destination itself.
+     */
+    public static long step(long from, long to)
+    {
+        return step(from, to, 1);
+    }
+    
+    /**
+     * Moves a packed point the given number of steps towards a destination, as {@link #nextLocation(Location, int)}.
+     * @param from The point, packed by {@link #pack(int, int)}.
+     * @param to The destination, packed by {@link #pack(int, int)}.
+     * @param steps The number of steps to move. Must be >= 0.
+     * @return The packed point after moving. It stops at the destination if it is reached before.
+     */
+    public static long step(long from, long to, int steps)
+    {
+        int x = packedX(from);
+        int y = packedY(from);
+        x += Math.max(-steps, Math.min(steps, packedX(to) - x));
+        y += Math.max(-steps, Math.min(steps, packedY(to) - y));
+        return pack(x, y);
     }
     
     /**
@@ -47,31 +171,30 @@ public class Location
      * from this location to the destination.
      * @param destination The {@link Location} we want to get to.
      * @return The next {@link Location} one step closer to the destination. Returns the destination
-     * if this location is already the destination.
+     * if this location is already the destination. This location is not changed.
      */
     public Location nextLocation(Location destination)
     {
-        if (this.x != destination.x || this.y != destination.y ){
-            if (this.x < destination.x){
-                this.x++;
-            }
-            else {
-                if (this.x > destination.x){
-                    this.x--;
-                }
-            }
-            if (this.y < destination.y){
-                this.y++;
-            }
-            else {
-                if (this.y > destination.y){
-                    this.y--;
-                }
-            }
+        return nextLocation(destination, 1);
+    }
+
+    /**
+     * Generates the location reached moving the given number of steps in a direct line towards the
+     * destination, as the same number of calls to {@link #nextLocation(Location)} would do.
+     * @param destination The {@link Location} we want to get to.
+     * @param steps The number of steps to move. Must be >= 0.
+     * @return The {@link Location} reached. It stops at the destination if it is reached before.
+     * This location is not changed.
+     */
+    public Location nextLocation(Location destination, int steps)
+    {
+        if (packed == destination.packed){
+            return destination;
         }
-        return this;
+        long next = step(packed, destination.packed, steps);
+        return next == destination.packed ? destination : of(next);
     }
-    
+
     /**
      * Determines the number of movements required to get from here to the destination, 
      * using the Chebyshev distance (maximum of the absolute differences of the coordinates).
@@ -80,7 +203,7 @@ public class Location
      */
     public int distance(Location destination)
     {    
-        return Math.max(Math.abs(destination.x - this.x),Math.abs(destination.y - this.y));
+        return distance(packed, destination.packed);
     }
     
     /**
@@ -92,9 +215,7 @@ public class Location
     public boolean equals(Object other)
     {
         if(other instanceof Location) {
-            Location otherLocation = (Location) other;
-            return x == otherLocation.getX() &&
-                   y == otherLocation.getY();
+            return packed == ((Location) other).packed;
         }
         else {
             return false;
@@ -107,19 +228,21 @@ public class Location
     @Override
     public String toString()
     {
-        return x + "-" + y;
+        return getX() + "-" + getY();
     }
 
     /**
      * Generates a hash code for the location.
-     * It uses the top 16 bits for the y value and the bottom 16 bits for the x value
-     * to ensure a unique hash code for most grid sizes.
+     * The packed coordinates go through a 64-bit mixing function that is a bijection, so two
+     * locations never share the mixed value, and the 32-bit hash taken from it collides only by
+     * chance, whatever the size and shape of the grid (the old {@code (y << 16) + x} collided
+     * systematically once x passed 65535).
      * @return A hashcode for the location.
      */
     @Override
     public int hashCode()
     {
-        return (y << 16) + x;
+        return hash;
     }
 
     /**
@@ -127,7 +250,7 @@ public class Location
      */
     public int getX()
     {
-        return x;
+        return packedX(packed);
     }
 
     /**
@@ -135,6 +258,27 @@ public class Location
      */
     public int getY()
     {
-        return y;
+        return packedY(packed);
+    }
+    
+    /**
+     * @return Both coordinates, packed by {@link #pack(int, int)}.
+     */
+    public long getPacked()
+    {
+        return packed;
+    }
+    
+    /**
+     * The finalizer of MurmurHash3, a bijection on 64-bit values, folded to 32 bits.
+     */
+    private static int mix(long value)
+    {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return (int) (value ^ (value >>> 32));
     }
-}
\ No newline at end of file
+}
@@ -1,17 +1,27 @@
 import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+import java.lang.management.ManagementFactory;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 /**
  * Test implementation of the {@link Location} class.
- * Provides unit tests for methods like {@code distance()} and {@code nextLocation()}.
+ * Provides unit tests for methods like {@code distance()} and {@code nextLocation()},
+ * for the packed coordinates and for the cache of {@code Location.of()}.
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
  * @version 2024.10.07 DP classes (adaptado a Java 8+)
  */
 public class LocationTest
 {
+    /** Number of lookups of a round. */
+    private static final int LOOKUPS = 10000;
+    /** Number of rounds before the measured ones, so the JIT has compiled the lookups. */
+    private static final int WARMUP_ROUNDS = 20;
+    /** Number of measured rounds, of which the one that allocates the least is taken. */
+    private static final int MEASURED_ROUNDS = 5;
+
     /**
      * Default constructor for test class LocationTest.
      */
@@ -46,7 +56,16 @@ public class LocationTest
     @Test
     public void testDistance()
     {
-        //TODO: Complete this code
+        Location center = new Location(10, 10);
+        assertEquals(0, center.distance(center));
+        for (int dx = -3; dx <= 3; dx++){
+            for (int dy = -3; dy <= 3; dy++){
+                Location other = new Location(10 + dx, 10 + dy);
+                assertEquals(Math.max(Math.abs(dx), Math.abs(dy)), center.distance(other));
+                assertEquals(center.distance(other), other.distance(center));
+            }
+        }
+        assertEquals(70000, new Location(0, 5).distance(new Location(70000, 9)));
     }
     
     /**
@@ -56,7 +75,14 @@ public class LocationTest
     @Test
     public void testAdjacentLocations()
     {
-        //TODO: Complete this code
+        Location center = new Location(10, 10);
+        for (int dx = -1; dx <= 1; dx++){
+            for (int dy = -1; dy <= 1; dy++){
+                Location destination = new Location(10 + dx, 10 + dy);
+                assertEquals(destination, center.nextLocation(destination));
+            }
+        }
+        assertEquals(new Location(10, 10), center);
     }
     
     /**
@@ -66,6 +92,108 @@ public class LocationTest
     @Test
     public void testNonAdjacentLocations()
     {
-        //TODO: Complete this code
+        Location start = new Location(10, 10);
+        assertEquals(new Location(11, 11), start.nextLocation(new Location(20, 15)));
+        assertEquals(new Location(9, 10), start.nextLocation(new Location(2, 10)));
+        assertEquals(new Location(10, 11), start.nextLocation(new Location(10, 300)));
+
+        Location destination = new Location(20, 15);
+        Location location = start;
+        for (int i = 0; i < start.distance(destination); i++){
+            assertEquals(location, start.nextLocation(destination, i));
+            location = location.nextLocation(destination);
+        }
+        assertEquals(destination, location);
+        assertSame(destination, start.nextLocation(destination, 100));
+        assertEquals(start, start.nextLocation(destination, 0));
+    }
+
+    /**
+     * Test that the packed coordinates keep both coordinates, also beyond 16 bits.
+     */
+    @Test
+    public void testPacking()
+    {
+        int[] values = {0, 1, 127, 128, 65535, 65536, 1 << 30, Integer.MAX_VALUE};
+        for (int x : values){
+            for (int y : values){
+                long packed = Location.pack(x, y);
+                assertEquals(x, Location.packedX(packed));
+                assertEquals(y, Location.packedY(packed));
+                Location location = Location.of(packed);
+                assertEquals(x, location.getX());
+                assertEquals(y, location.getY());
+                assertEquals(packed, location.getPacked());
+                assertEquals(new Location(x, y), location);
+                assertEquals(new Location(x, y).hashCode(), location.hashCode());
+            }
+        }
+        assertEquals(Location.pack(11, 11), Location.step(Location.pack(10, 10), Location.pack(20, 15)));
+        assertEquals(5, Location.distance(Location.pack(10, 10), Location.pack(5, 12)));
+    }
+
+    /**
+     * Test that {@code Location.of()} hands out the same instance for the same cell, inside and
+     * outside the square of cells that is always cached, and rejects negative coordinates.
+     */
+    @Test
+    public void testCacheIdentity()
+    {
+        assertSame(Location.of(5, 7), Location.of(5, 7));
+        assertSame(Location.of(127, 127), Location.of(127, 127));
+        Location far = Location.of(100000, 200000);
+        assertSame(far, Location.of(100000, 200000));
+        assertSame(far, Location.of(Location.pack(100000, 200000)));
+        assertEquals(new Location(100000, 200000), far);
+        try{
+            Location.of(-1, 5);
+            fail("Negative coordinates should be rejected");
+        }
+        catch (IllegalArgumentException e){
+            //expected
+        }
+    }
+
+    /**
+     * Test that getting cached locations outside the always cached square creates no object, once
+     * warmed up. The cost of reading the allocated bytes is measured and taken off every round.
+     */
+    @Test
+    public void testCachedLookupsDoNotAllocate()
+    {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++){
+            lookUp();
+            threads.getThreadAllocatedBytes(thread);
+        }
+        long least = Long.MAX_VALUE;
+        for (int round = 0; round < MEASURED_ROUNDS; round++){
+            long start = threads.getThreadAllocatedBytes(thread);
+            long probe = threads.getThreadAllocatedBytes(thread) - start;
+            long before = threads.getThreadAllocatedBytes(thread);
+            long sum = lookUp();
+            long allocated = threads.getThreadAllocatedBytes(thread) - before - probe;
+            assertEquals(LOOKUPS * 5000L + LOOKUPS / 16 * 120, sum);
+            least = Math.min(least, allocated);
+        }
+        assertEquals("Bytes allocated by cached lookups", 0, least);
+    }
+
+    /**
+     * Looks up sixteen locations outside the always cached square in turn.
+     * @return The sum of their x coordinates.
+     */
+    private static long lookUp()
+    {
+        long sum = 0;
+        for (int i = 0; i < LOOKUPS; i++){
+            sum += Location.of(5000 + (i & 15), 9000).getX();
+        }
+        return sum;
     }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+/**
+ * Enumeration that defines the domain events counted by {@link Metrics}.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public enum MetricCounter
+{
+    /** Steps on which a vehicle stayed idle. */
+    IDLE_INCREMENTS ("idleIncrements"),
+    /** Recharges done by the vehicles. */
+    RECHARGES ("recharges"),
+    /** Calls to {@link ChargingStation#getFreeCharger()} that found every charger in use. */
+    FAILED_FREE_CHARGER_LOOKUPS ("failedFreeChargerLookups"),
+    /** Vehicles that joined the {@link StationQueue} of a station because every charger was in use. */
+    QUEUED_VEHICLES ("queuedVehicles"),
+    /** Vehicles given a charger by {@link EVCompany#admitWaitingVehicles(int)}. */
+    ADMITTED_VEHICLES ("admittedVehicles"),
+    /** Searches of the {@link RoutePlanCache} answered from the cache. */
+    ROUTE_CACHE_HITS ("routeCacheHits"),
+    /** Searches of the {@link RoutePlanCache} that had to be done on the {@link StationIndex}. */
+    ROUTE_CACHE_MISSES ("routeCacheMisses");
+
+    /** Name of the counter in the exported metrics. */
+    private String name;
+
+    /**
+     * Constructor for the metric counters.
+     * @param name Name in the exported metrics.
+     */
+    MetricCounter(String name){
+        this.name = name;
+    }
+
+    /**
+     * @return The name of the counter in the exported metrics.
+     */
+    public String getName(){
+        return name;
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Enumeration that defines the phases of the simulation whose latency is recorded by {@link Metrics}.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public enum MetricPhase
+{
+    /** A whole {@link EVDemo#step(int)}, whatever the engine. */
+    STEP ("step"),
+    /** One {@link ElectricVehicle#calculateRoute()}. */
+    ROUTE ("route"),
+    /** One {@link EVDemo#resetAllChargersInCompany()}. */
+    CHARGER_RESET ("chargerReset"),
+    /** One {@link ElectricVehicle#advance(int)}: a move or an idle step. */
+    MOVE ("move"),
+    /** One {@link ElectricVehicle#recharge(int)}, including the search of a free charger. */
+    RECHARGE ("recharge"),
+    /** One {@link ChargingStation#getFreeCharger()}. */
+    FREE_CHARGER ("freeCharger"),
+    /** The hand-off of the step information of one vehicle to the {@link StepEventSink}. */
+    LOGGING ("logging");
+
+    /** Name of the phase in the exported metrics. */
+    private String name;
+
+    /**
+     * Constructor for the metric phases.
+     * @param name Name in the exported metrics.
+     */
+    MetricPhase(String name){
+        this.name = name;
+    }
+
+    /**
+     * @return The name of the phase in the exported metrics.
+     */
+    public String getName(){
+        return name;
+    }
+}
@@ -0,0 +1,156 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The registry of the runtime metrics of the simulation: a {@link LatencyHistogram} for every
+ * {@link MetricPhase} and a counter for every {@link MetricCounter}, shared by every thread.
+ *
+ * The metrics are off by default. When they are off, every probe is a read of a static field and
+ * a branch, so the step path costs the same as without probes and still creates no objects. A
+ * timed section is written as
+ * <pre>
+ *     long start = Metrics.start();
+ *     ...
+ *     Metrics.record(MetricPhase.ROUTE, start);
+ * </pre>
+ * so the clock is not read at all when the metrics are off. The flag is a plain field: a change
+ * is seen by the other threads the next time they synchronize with the one that made it, which
+ * every engine does at least once a step.
+ *
+ * The probes are in the methods of the vehicles, stations and demo, so the kernels of the
+ * {@link FleetStore} used by the {@link ColumnarStepEngine} only show up in {@link MetricPhase#STEP}.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class Metrics
+{
+    /** Value returned by {@link #start()} when the metrics are off. */
+    private static final long NOT_STARTED = 0;
+
+    private static boolean enabled;
+    private static final LatencyHistogram[] histograms = new LatencyHistogram[MetricPhase.values().length];
+    private static final LongAdder[] counters = new LongAdder[MetricCounter.values().length];
+
+    static {
+        for (int i = 0; i < histograms.length; i++){
+            histograms[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < counters.length; i++){
+            counters[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Metrics is not meant to be instantiated.
+     */
+    private Metrics()
+    {
+    }
+
+    /**
+     * @return Whether or not the metrics are recorded.
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Turns the recording of the metrics on or off. The metrics recorded so far are kept.
+     * @param enabled Whether or not the metrics are recorded.
+     */
+    public static void setEnabled(boolean enabled)
+    {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Starts a timed section.
+     * @return The time of the clock, or a value ignored by {@link #record(MetricPhase, long)} if the metrics are off.
+     */
+    public static long start()
+    {
+        return enabled ? System.nanoTime() : NOT_STARTED;
+    }
+
+    /**
+     * Ends a timed section and records its latency.
+     * @param phase The phase of the section.
+     * @param start The value returned by {@link #start()} at the beginning of the section.
+     */
+    public static void record(MetricPhase phase, long start)
+    {
+        if (start != NOT_STARTED){
+            histograms[phase.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Counts one event.
+     * @param counter The counter of the event.
+     */
+    public static void count(MetricCounter counter)
+    {
+        if (enabled){
+            counters[counter.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Counts several events at once.
+     * @param counter The counter of the events.
+     * @param events The number of events.
+     */
+    public static void count(MetricCounter counter, long events)
+    {
+        if (enabled){
+            counters[counter.ordinal()].add(events);
+        }
+    }
+
+    /**
+     * @param phase A phase.
+     * @return The histogram of the latencies of the phase, which keeps changing while the metrics are on.
+     */
+    public static LatencyHistogram getHistogram(MetricPhase phase)
+    {
+        return histograms[phase.ordinal()];
+    }
+
+    /**
+     * @param counter A counter.
+     * @return The number of events counted so far.
+     */
+    public static long getCount(MetricCounter counter)
+    {
+        return counters[counter.ordinal()].sum();
+    }
+
+    /**
+     * @return A copy of every metric recorded so far, which does not change afterwards.
+     */
+    public static MetricsSnapshot snapshot()
+    {
+        LatencyHistogram[] phases = new LatencyHistogram[histograms.length];
+        for (int i = 0; i < histograms.length; i++){
+            phases[i] = histograms[i].copy();
+        }
+        long[] counts = new long[counters.length];
+        for (int i = 0; i < counters.length; i++){
+            counts[i] = counters[i].sum();
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), phases, counts);
+    }
+
+    /**
+     * Removes every metric recorded so far.
+     */
+    public static void reset()
+    {
+        for (LatencyHistogram histogram : histograms){
+            histogram.reset();
+        }
+        for (LongAdder counter : counters){
+            counter.reset();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+import java.util.Locale;
+
+/**
+ * The metrics recorded by {@link Metrics} up to a moment, which can be read and exported as text,
+ * CSV or JSON. The latencies are exported in microseconds.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class MetricsSnapshot
+{
+    /** Names of the columns of the CSV format of the phases, in order. */
+    public static final String CSV_HEADER = "phase,count,meanMicros,minMicros,p50Micros,p90Micros,p99Micros,p999Micros,maxMicros,totalMillis";
+
+    private long timeMillis;
+    private LatencyHistogram[] phases;
+    private long[] counts;
+
+    /**
+     * Constructor for objects of class MetricsSnapshot.
+     * @param timeMillis The moment of the snapshot, in milliseconds since the epoch.
+     * @param phases The histograms of the phases, in the order of {@link MetricPhase}. They must not change afterwards.
+     * @param counts The counters, in the order of {@link MetricCounter}.
+     */
+    public MetricsSnapshot(long timeMillis, LatencyHistogram[] phases, long[] counts)
+    {
+        this.timeMillis = timeMillis;
+        this.phases = phases;
+        this.counts = counts;
+    }
+
+    /**
+     * @return The moment of the snapshot, in milliseconds since the epoch.
+     */
+    public long getTimeMillis()
+    {
+        return timeMillis;
+    }
+
+    /**
+     * @param phase A phase.
+     * @return The histogram of the latencies of the phase.
+     */
+    public LatencyHistogram getHistogram(MetricPhase phase)
+    {
+        return phases[phase.ordinal()];
+    }
+
+    /**
+     * @param counter A counter.
+     * @return The number of events counted.
+     */
+    public long getCount(MetricCounter counter)
+    {
+        return counts[counter.ordinal()];
+    }
+
+    /**
+     * @return The latencies of the phases as CSV, a header line and a line per phase, followed by
+     * a blank line and the counters as {@code counter,value} lines.
+     */
+    public String toCsv()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(CSV_HEADER).append('\n');
+        for (MetricPhase phase : MetricPhase.values()){
+            LatencyHistogram histogram = getHistogram(phase);
+            builder.append(String.format(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+                                         phase.getName(), histogram.getCount(), histogram.getMean() / 1e3,
+                                         micros(histogram.getMin()), micros(histogram.getValueAtPercentile(50)),
+                                         micros(histogram.getValueAtPercentile(90)), micros(histogram.getValueAtPercentile(99)),
+                                         micros(histogram.getValueAtPercentile(99.9)), micros(histogram.getMax()),
+                                         histogram.getTotal() / 1e6));
+        }
+        builder.append('\n');
+        builder.append("counter,value\n");
+        for (MetricCounter counter : MetricCounter.values()){
+            builder.append(counter.getName()).append(',').append(getCount(counter)).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return The snapshot as one JSON object, with a "phases" and a "counters" object inside.
+     */
+    public String toJson()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("{\"timeMillis\":").append(timeMillis).append(",\"phases\":{");
+        MetricPhase[] allPhases = MetricPhase.values();
+        for (int i = 0; i < allPhases.length; i++){
+            LatencyHistogram histogram = getHistogram(allPhases[i]);
+            builder.append(i == 0 ? "" : ",");
+            builder.append(String.format(Locale.ROOT, "\"%s\":{\"count\":%d,\"meanMicros\":%.3f,\"minMicros\":%.3f,"
+                                         + "\"p50Micros\":%.3f,\"p90Micros\":%.3f,\"p99Micros\":%.3f,\"p999Micros\":%.3f,"
+                                         + "\"maxMicros\":%.3f,\"totalMillis\":%.3f}",
+                                         allPhases[i].getName(), histogram.getCount(), histogram.getMean() / 1e3,
+                                         micros(histogram.getMin()), micros(histogram.getValueAtPercentile(50)),
+                                         micros(histogram.getValueAtPercentile(90)), micros(histogram.getValueAtPercentile(99)),
+                                         micros(histogram.getValueAtPercentile(99.9)), micros(histogram.getMax()),
+                                         histogram.getTotal() / 1e6));
+        }
+        builder.append("},\"counters\":{");
+        MetricCounter[] allCounters = MetricCounter.values();
+        for (int i = 0; i < allCounters.length; i++){
+            builder.append(i == 0 ? "" : ",");
+            builder.append('"').append(allCounters[i].getName()).append("\":").append(getCount(allCounters[i]));
+        }
+        builder.append("}}");
+        return builder.toString();
+    }
+
+    /**
+     * @return A table with the latencies of the phases and the counters.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "%-14s %12s %12s %12s %12s %12s %12s%n",
+                                     "phase", "count", "mean us", "p50 us", "p99 us", "max us", "total ms"));
+        for (MetricPhase phase : MetricPhase.values()){
+            LatencyHistogram histogram = getHistogram(phase);
+            builder.append(String.format(Locale.ROOT, "%-14s %12d %12.3f %12.3f %12.3f %12.3f %12.3f%n",
+                                         phase.getName(), histogram.getCount(), histogram.getMean() / 1e3,
+                                         micros(histogram.getValueAtPercentile(50)), micros(histogram.getValueAtPercentile(99)),
+                                         micros(histogram.getMax()), histogram.getTotal() / 1e6));
+        }
+        for (MetricCounter counter : MetricCounter.values()){
+            builder.append(String.format(Locale.ROOT, "%-26s %12d%n", counter.getName(), getCount(counter)));
+        }
+        return builder.toString();
+    }
+
+    private static double micros(long nanos)
+    {
+        return nanos / 1e3;
+    }
+}
@@ -0,0 +1,242 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * A small harness for micro-benchmarks, in the spirit of JMH: every benchmark is run for some
+ * warm-up iterations, whose results are discarded, and then for some measurement iterations of a
+ * fixed duration. For every benchmark it reports the mean time per operation with its 99.9%
+ * confidence interval, and the bytes allocated per operation by the benchmark thread, measured with
+ * the {@code ThreadMXBean} of the platform (the equivalent of the GC profiler of JMH).
+ *
+ * An operation is a {@link LongSupplier}: the values it returns are folded into a field that is
+ * published at the end, so the JIT cannot drop the work as dead code. A benchmark may also have a
+ * set-up action, not measured, run before every iteration and, if the benchmark says so, again every
+ * given number of operations, for operations that wear out their state.
+ *
+ * All the benchmarks run in the same JVM share the call site of the operation, which the JIT then
+ * compiles as a megamorphic call, and the profile left by a benchmark changes how the next ones are
+ * compiled. As JMH does, {@link #fork(Class, List)} runs a benchmark in a JVM of its own.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class MicroBenchmark
+{
+    /** Student t quantiles for a 99.9% two-sided interval, by degrees of freedom from 1 to 30. */
+    private static final double[] T_999 = {636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+                                           4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+                                           3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646};
+
+    private int warmupIterations;
+    private int measurementIterations;
+    private long iterationNanos;
+    private com.sun.management.ThreadMXBean threads;
+    private List<BenchmarkResult> results;
+    /** Where the values of the operations are folded, so that they are not dead code. */
+    private long sink;
+    /** Published value of {@code sink}. */
+    private volatile long published;
+
+    /**
+     * Constructor for objects of class MicroBenchmark.
+     * @param warmupIterations The number of iterations discarded before measuring. Must be >= 0.
+     * @param measurementIterations The number of measured iterations. Must be > 0.
+     * @param iterationMillis The duration of every iteration, in milliseconds. Must be > 0.
+     * @throws IllegalArgumentException If a value is out of range.
+     */
+    public MicroBenchmark(int warmupIterations, int measurementIterations, int iterationMillis)
+    {
+        if (warmupIterations < 0 || measurementIterations <= 0 || iterationMillis <= 0){
+            throw new IllegalArgumentException("Wrong iterations: " + warmupIterations + " warm-up, "
+                                               + measurementIterations + " x " + iterationMillis + " ms");
+        }
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        this.results = new ArrayList<BenchmarkResult>();
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean){
+            threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (threads.isThreadAllocatedMemorySupported()){
+                threads.setThreadAllocatedMemoryEnabled(true);
+            }
+            else{
+                threads = null;
+            }
+        }
+    }
+
+    /**
+     * Runs a benchmark with no set-up action.
+     * @see #run(String, String, Runnable, LongSupplier)
+     */
+    public BenchmarkResult run(String name, String params, LongSupplier operation)
+    {
+        return run(name, params, null, operation);
+    }
+
+    /**
+     * Runs a benchmark, prints its result and keeps it in {@link #getResults()}.
+     * @param name The name of the benchmark.
+     * @param params The parameters of the benchmark, as "name=value" pairs separated by commas.
+     * @param setUp The action run before every iteration, or null.
+     * @param operation The operation measured.
+     * @return The result of the benchmark.
+     */
+    public BenchmarkResult run(String name, String params, Runnable setUp, LongSupplier operation)
+    {
+        return run(name, params, setUp, 0, operation);
+    }
+
+    /**
+     * Runs a benchmark whose set-up is run again, not measured, every given number of operations,
+     * prints its result and keeps it in {@link #getResults()}.
+     * @param name The name of the benchmark.
+     * @param params The parameters of the benchmark, as "name=value" pairs separated by commas.
+     * @param setUp The action run before every iteration and every {@code operationsPerSetUp} operations. Must not be null.
+     * @param operationsPerSetUp The number of operations after which the set-up is run again, or 0 to run it only before every iteration.
+     * @param operation The operation measured.
+     * @return The result of the benchmark.
+     * @throws IllegalArgumentException If operationsPerSetUp is negative, or positive without a set-up.
+     */
+    public BenchmarkResult run(String name, String params, Runnable setUp, long operationsPerSetUp, LongSupplier operation)
+    {
+        if (operationsPerSetUp < 0 || (operationsPerSetUp > 0 && setUp == null)){
+            throw new IllegalArgumentException("Wrong set-up every " + operationsPerSetUp + " operations: " + name);
+        }
+        for (int i = 0; i < warmupIterations; i++){
+            iteration(setUp, operationsPerSetUp, operation, new long[3]);
+        }
+        double[] nanosPerOp = new double[measurementIterations];
+        long operations = 0;
+        long bytes = 0;
+        long[] measure = new long[3];
+        for (int i = 0; i < measurementIterations; i++){
+            iteration(setUp, operationsPerSetUp, operation, measure);
+            nanosPerOp[i] = (double) measure[1] / measure[0];
+            operations += measure[0];
+            bytes += measure[2];
+        }
+        published = sink;
+
+        double mean = 0;
+        for (double value : nanosPerOp){
+            mean += value;
+        }
+        mean /= measurementIterations;
+        double error = Double.NaN;
+        if (measurementIterations > 1){
+            double variance = 0;
+            for (double value : nanosPerOp){
+                variance += (value - mean) * (value - mean);
+            }
+            variance /= measurementIterations - 1;
+            int freedom = Math.min(measurementIterations - 1, T_999.length);
+            double t = measurementIterations - 1 > T_999.length ? 3.291 : T_999[freedom - 1];
+            error = t * Math.sqrt(variance / measurementIterations);
+        }
+        double bytesPerOp = threads == null ? Double.NaN : (double) bytes / operations;
+
+        BenchmarkResult result = new BenchmarkResult(name, params, measurementIterations, operations, mean, error, bytesPerOp);
+        results.add(result);
+        System.out.println(result);
+        return result;
+    }
+
+    /**
+     * @return An unmodifiable list of the results of every benchmark run so far.
+     */
+    public List<BenchmarkResult> getResults()
+    {
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * @return The header of the table of results printed by {@link #run(String, String, Runnable, LongSupplier)}.
+     */
+    public static String getHeader()
+    {
+        return String.format("%-48s %-56s %5s %14s    %10s %6s %14s", "Benchmark", "Params", "Cnt", "Score", "Error", "Units", "Alloc");
+    }
+
+    /**
+     * Runs a main class in a new JVM, with the class path and the options of this one, and waits for
+     * it to end. Its output goes to the output of this JVM.
+     * @param mainClass The class whose main method is run.
+     * @param args The arguments of the main method.
+     * @throws IOException If the JVM cannot be started.
+     * @throws IllegalStateException If the JVM ends with an error, or this thread is interrupted while waiting for it.
+     */
+    public static void fork(Class<?> mainClass, List<String> args) throws IOException
+    {
+        List<String> command = new ArrayList<String>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass.getName());
+        command.addAll(args);
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        int status;
+        try{
+            status = process.waitFor();
+        }
+        catch (InterruptedException e){
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + mainClass.getName() + " " + args, e);
+        }
+        if (status != 0){
+            throw new IllegalStateException("Forked " + mainClass.getName() + " " + args + " ended with status " + status);
+        }
+    }
+
+    /**
+     * Runs one iteration: calls the operation in batches of growing size until the duration is over.
+     * Only the batches are measured, not the set-up run between them.
+     * @param measure Where the number of operations, the nanoseconds and the bytes allocated are left.
+     */
+    private void iteration(Runnable setUp, long operationsPerSetUp, LongSupplier operation, long[] measure)
+    {
+        if (setUp != null){
+            setUp.run();
+        }
+        long operations = 0;
+        long sinceSetUp = 0;
+        long batch = 1;
+        long value = 0;
+        long bytes = 0;
+        long elapsed = 0;
+        do{
+            if (operationsPerSetUp > 0 && sinceSetUp == operationsPerSetUp){
+                setUp.run();
+                sinceSetUp = 0;
+            }
+            long size = operationsPerSetUp > 0 ? Math.min(batch, operationsPerSetUp - sinceSetUp) : batch;
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            for (long i = 0; i < size; i++){
+                value += operation.getAsLong();
+            }
+            elapsed += System.nanoTime() - start;
+            bytes += allocatedBytes() - bytesBefore;
+            operations += size;
+            sinceSetUp += size;
+            if (batch < (1 << 20) && elapsed < iterationNanos / 64){
+                batch <<= 1;
+            }
+        } while (elapsed < iterationNanos);
+        sink += value;
+        measure[0] = operations;
+        measure[1] = elapsed;
+        measure[2] = bytes;
+    }
+
+    private long allocatedBytes()
+    {
+        return threads == null ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
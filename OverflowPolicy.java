@@ -0,0 +1,30 @@
+/**
+ * Enumeration that defines what an {@link AsyncStepLogger} does when its ring buffer is full.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public enum OverflowPolicy
+{
+    /** The new event is discarded and counted, so the simulation never waits for the writer. */
+    DROP ("DROP"),
+    /** The simulation waits until the writer has made room, so no event is lost. */
+    BLOCK ("BLOCK");
+
+    /** Descriptive name of the policy. */
+    private String name;
+
+    /**
+     * Constructor for the overflow policies.
+     * @param name Descriptive name.
+     */
+    OverflowPolicy(String name){
+        this.name = name;
+    }
+
+    /**
+     * @return The descriptive name of the policy.
+     */
+    public String getName(){
+        return name;
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the steps of an {@link EVDemo} splitting the fleet across a fork-join pool.
+ * A step is done in four phases, after the vehicles waiting in the station queues, if any, get the freed chargers:
+ * <ol>
+ * <li>Every vehicle whose route may have changed calculates it (in parallel).</li>
+ * <li>The step information of every vehicle is handed to the {@link StepEventSink} (in fleet order).</li>
+ * <li>Every vehicle moves or stays idle (in parallel). A vehicle that reaches its recharging
+ * location does not recharge yet, it is only marked in the pending buffer.</li>
+ * <li>The pending recharges are done one by one in fleet order, so the {@link Charger}s
+ * handed out by {@link ChargingStation#getFreeCharger()} are always the same ones.</li>
+ * </ol>
+ * The parallel phases only write the state of their own vehicle, and the only state shared
+ * between vehicles (the chargers) is written in the last phase, so the results are exactly
+ * the same as the ones of the serial run.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class ParallelStepEngine
+{
+    /** Number of vehicles below which a slice of the fleet is not split any more. */
+    private static final int THRESHOLD = 512;
+
+    /** The demo whose steps are run. */
+    private EVDemo demo;
+    /** The vehicles of the demo, in the order in which they act. */
+    private List<ElectricVehicle> vehicles;
+    /** Where the step information of the vehicles goes, or null if it is not recorded. */
+    private StepEventSink sink;
+    /** The pool that runs the parallel phases. */
+    private ForkJoinPool pool;
+    /** Marks the vehicles that have reached their recharging location in the current step. */
+    private boolean[] pendingRecharge;
+
+    /**
+     * Constructor for objects of class ParallelStepEngine.
+     * @param demo The demo whose steps are run.
+     * @param vehicles The vehicles of the demo, in the order in which they act.
+     * @param sink Where the step information of the vehicles goes, or null if it is not recorded.
+     * @param parallelism The number of threads of the pool. Must be > 0.
+     * @throws IllegalArgumentException If parallelism is not positive.
+     */
+    public ParallelStepEngine(EVDemo demo, List<ElectricVehicle> vehicles, StepEventSink sink, int parallelism)
+    {
+        this.demo = demo;
+        this.vehicles = vehicles;
+        this.sink = sink;
+        this.pool = new ForkJoinPool(parallelism);
+        this.pendingRecharge = new boolean[0];
+    }
+
+    /**
+     * @return The number of threads of the pool.
+     */
+    public int getParallelism()
+    {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Run one step of the simulation for every vehicle.
+     * The time of the step is recorded by {@link Metrics} as {@link MetricPhase#STEP} and,
+     * during a flight recording, as a {@link StepEvent}.
+     * @param step The current step number of the simulation.
+     */
+    public void step(int step)
+    {
+        long start = Metrics.start();
+        StepEvent event = StepEvent.start(step);
+        int size = vehicles.size();
+        if (pendingRecharge.length < size){
+            pendingRecharge = new boolean[size];
+        }
+        demo.setJournalStep(step);
+        demo.admitWaitingVehicles(step);
+
+        pool.invoke(new Slice(Slice.ROUTE, step, 0, size));
+        if (sink != null){
+            for (int i = 0; i < size; i++){
+                long logStart = Metrics.start();
+                sink.vehicleStep(step, vehicles.get(i));
+                Metrics.record(MetricPhase.LOGGING, logStart);
+            }
+        }
+        pool.invoke(new Slice(Slice.MOVE, step, 0, size));
+
+        for (int i = 0; i < size; i++){
+            if (pendingRecharge[i]){
+                pendingRecharge[i] = false;
+                demo.releaseChargers();
+                vehicles.get(i).recharge(step);
+            }
+        }
+        Metrics.record(MetricPhase.STEP, start);
+        StepEvent.finish(event, EngineType.PARALLEL, size);
+    }
+
+    /**
+     * Stops the threads of the pool. The engine cannot be used afterwards.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * A slice [from, to) of the fleet on which one of the parallel phases is run.
+     */
+    @SuppressWarnings("serial")          //never serialized
+    private class Slice extends RecursiveAction
+    {
+        private static final int ROUTE = 0;
+        private static final int MOVE = 1;
+
+        private int phase;
+        private int step;
+        private int from;
+        private int to;
+
+        private Slice(int phase, int step, int from, int to)
+        {
+            this.phase = phase;
+            this.step = step;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > THRESHOLD){
+                int middle = (from + to) >>> 1;
+                invokeAll(new Slice(phase, step, from, middle), new Slice(phase, step, middle, to));
+            }
+            else if (phase == ROUTE){
+                for (int i = from; i < to; i++){
+                    vehicles.get(i).calculateRouteIfDirty();
+                }
+            }
+            else{
+                for (int i = from; i < to; i++){
+                    pendingRecharge[i] = vehicles.get(i).advance(step);
+                }
+            }
+        }
+    }
+}
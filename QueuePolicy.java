@@ -0,0 +1,38 @@
+/**
+ * Enumeration that defines the order in which the vehicles waiting at a {@link ChargingStation}
+ * are given a {@link Charger}, see {@link StationQueue}. Vehicles with the same priority are
+ * admitted in the order in which they arrived.
+ *
+ * A policy only reorders the admissions. Every recharge takes its charger for exactly one step, so
+ * the number of vehicles admitted per step is the same under every policy; in particular
+ * SHORTEST_SESSION does not raise the throughput of a station, it only lets the shorter sessions go first.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public enum QueuePolicy
+{
+    /** The vehicles are admitted in the order in which they arrived. */
+    FIFO ("FIFO"),
+    /** The vehicle with the lowest battery level is admitted first. */
+    LOWEST_BATTERY ("LOWEST_BATTERY"),
+    /** The vehicle that needs the fewest kWh to be fully recharged is admitted first. */
+    SHORTEST_SESSION ("SHORTEST_SESSION");
+
+    /** Descriptive name of the policy. */
+    private String name;
+
+    /**
+     * Constructor for the queue policies.
+     * @param name Descriptive name.
+     */
+    QueuePolicy(String name){
+        this.name = name;
+    }
+
+    /**
+     * @return The descriptive name of the policy.
+     */
+    public String getName(){
+        return name;
+    }
+}
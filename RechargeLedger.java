@@ -0,0 +1,379 @@
+import java.util.Arrays;
+
+/**
+ * The recharges done by a {@link Charger}, in the order they were done.
+ * Every recharge is a row of four primitive columns: the id of the vehicle (see {@link ElectricVehicle#getId()}),
+ * the step, the kWh recharged and the fee charged, kept in fixed point as ten-thousandths of a euro.
+ * That is 16 bytes per recharge, instead of a reference to a whole vehicle.
+ *
+ * The rows are kept in chunks of {@value #CHUNK_ROWS}, so the ledger grows without copying the rows
+ * already recorded; only the first chunk starts small and doubles, since most chargers do few recharges.
+ * The totals are kept as the rows are added, and since the steps of the recharges are usually recorded
+ * in ascending order, the queries by step range are answered with a binary search when they are.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class RechargeLedger
+{
+    /** Number of bits of the row number that select the row in its chunk. */
+    private static final int CHUNK_BITS = 8;
+    /** Number of rows of every chunk but the first one while it grows. */
+    private static final int CHUNK_ROWS = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+    /** Number of rows the first chunk starts with. */
+    private static final int FIRST_ROWS = 4;
+    /** Units of the fee column per euro. */
+    public static final int FEE_SCALE = 10000;
+
+    /** The columns, as chunks of rows. */
+    private int[][] vehicles;
+    private int[][] steps;
+    private int[][] kwhs;
+    private int[][] fees;
+    /** Number of rows of the ledger. */
+    private int size;
+    private long totalKwh;
+    private long totalFees;
+    /** True while the steps of the rows are in ascending order. */
+    private boolean stepsSorted;
+
+    /**
+     * Constructor for objects of class RechargeLedger, with no recharges.
+     */
+    public RechargeLedger()
+    {
+        vehicles = new int[1][FIRST_ROWS];
+        steps = new int[1][FIRST_ROWS];
+        kwhs = new int[1][FIRST_ROWS];
+        fees = new int[1][FIRST_ROWS];
+        size = 0;
+        totalKwh = 0;
+        totalFees = 0;
+        stepsSorted = true;
+    }
+
+    /**
+     * Copy constructor of RechargeLedger
+     */
+    public RechargeLedger(RechargeLedger otherLedger)
+    {
+        this.vehicles = copyChunks(otherLedger.vehicles);
+        this.steps = copyChunks(otherLedger.steps);
+        this.kwhs = copyChunks(otherLedger.kwhs);
+        this.fees = copyChunks(otherLedger.fees);
+        this.size = otherLedger.size;
+        this.totalKwh = otherLedger.totalKwh;
+        this.totalFees = otherLedger.totalFees;
+        this.stepsSorted = otherLedger.stepsSorted;
+    }
+
+    /**
+     * Records a recharge. Used by {@link Charger}, which keeps the totals of its station in step.
+     * @param vehicleId The id of the recharged vehicle.
+     * @param step The step of the recharge.
+     * @param kwh The kWh recharged.
+     * @param fee The fee charged, in euros. It is rounded to ten-thousandths of a euro.
+     */
+    void add(int vehicleId, int step, int kwh, float fee)
+    {
+        addFixed(vehicleId, step, kwh, Math.round(fee * FEE_SCALE));
+    }
+
+    /**
+     * Records a recharge whose fee is already in fixed point. Used by {@link SimulationCheckpoint}.
+     * @param vehicleId The id of the recharged vehicle.
+     * @param step The step of the recharge.
+     * @param kwh The kWh recharged.
+     * @param fee The fee charged, in ten-thousandths of a euro.
+     */
+    void addFixed(int vehicleId, int step, int kwh, int fee)
+    {
+        int chunk = size >>> CHUNK_BITS;
+        int row = size & CHUNK_MASK;
+        ensureRow(chunk, row);
+        if (size > 0 && step < getStep(size - 1)){
+            stepsSorted = false;
+        }
+        vehicles[chunk][row] = vehicleId;
+        steps[chunk][row] = step;
+        kwhs[chunk][row] = kwh;
+        fees[chunk][row] = fee;
+        size++;
+        totalKwh += kwh;
+        totalFees += fee;
+    }
+
+    /**
+     * Makes room for a row, growing the first chunk or adding a new one.
+     */
+    private void ensureRow(int chunk, int row)
+    {
+        if (chunk == vehicles.length){
+            vehicles = Arrays.copyOf(vehicles, chunk + 1);
+            steps = Arrays.copyOf(steps, chunk + 1);
+            kwhs = Arrays.copyOf(kwhs, chunk + 1);
+            fees = Arrays.copyOf(fees, chunk + 1);
+        }
+        if (vehicles[chunk] == null){
+            vehicles[chunk] = new int[CHUNK_ROWS];
+            steps[chunk] = new int[CHUNK_ROWS];
+            kwhs[chunk] = new int[CHUNK_ROWS];
+            fees[chunk] = new int[CHUNK_ROWS];
+        }
+        else if (row == vehicles[chunk].length){
+            int rows = Math.min(row * 2, CHUNK_ROWS);
+            vehicles[chunk] = Arrays.copyOf(vehicles[chunk], rows);
+            steps[chunk] = Arrays.copyOf(steps[chunk], rows);
+            kwhs[chunk] = Arrays.copyOf(kwhs[chunk], rows);
+            fees[chunk] = Arrays.copyOf(fees[chunk], rows);
+        }
+    }
+
+    /**
+     * Removes every recharge. The chunks are kept, so recording the same number of recharges again does not allocate.
+     * Used by {@link Charger#clearRecharges()}, which keeps the totals of its station in step.
+     */
+    void clear()
+    {
+        size = 0;
+        totalKwh = 0;
+        totalFees = 0;
+        stepsSorted = true;
+    }
+
+    /**
+     * @return The number of recharges.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param index The number of the recharge, from 0 to {@link #size()} - 1.
+     * @return The id of the vehicle recharged.
+     */
+    public int getVehicleId(int index)
+    {
+        checkIndex(index);
+        return vehicles[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    /**
+     * @param index The number of the recharge, from 0 to {@link #size()} - 1.
+     * @return The step of the recharge.
+     */
+    public int getStep(int index)
+    {
+        checkIndex(index);
+        return steps[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    /**
+     * @param index The number of the recharge, from 0 to {@link #size()} - 1.
+     * @return The kWh recharged.
+     */
+    public int getKwh(int index)
+    {
+        checkIndex(index);
+        return kwhs[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    /**
+     * @param index The number of the recharge, from 0 to {@link #size()} - 1.
+     * @return The fee charged, in ten-thousandths of a euro.
+     */
+    public int getFeeFixed(int index)
+    {
+        checkIndex(index);
+        return fees[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    /**
+     * @param index The number of the recharge, from 0 to {@link #size()} - 1.
+     * @return The fee charged, in euros.
+     */
+    public double getFee(int index)
+    {
+        return (double) getFeeFixed(index) / FEE_SCALE;
+    }
+
+    /**
+     * @return The kWh recharged by all the recharges.
+     */
+    public long getTotalKwh()
+    {
+        return totalKwh;
+    }
+
+    /**
+     * @return The fees charged by all the recharges, in euros.
+     */
+    public double getTotalFees()
+    {
+        return (double) totalFees / FEE_SCALE;
+    }
+
+    /**
+     * @param vehicleId The id of a vehicle.
+     * @return The number of recharges of the vehicle.
+     */
+    public int countByVehicle(int vehicleId)
+    {
+        int count = 0;
+        for (int chunk = 0; chunk * CHUNK_ROWS < size; chunk++){
+            int[] ids = vehicles[chunk];
+            int rows = Math.min(CHUNK_ROWS, size - chunk * CHUNK_ROWS);
+            for (int row = 0; row < rows; row++){
+                if (ids[row] == vehicleId){
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param vehicleId The id of a vehicle.
+     * @return The kWh recharged by the recharges of the vehicle.
+     */
+    public long sumKwhByVehicle(int vehicleId)
+    {
+        long sum = 0;
+        for (int chunk = 0; chunk * CHUNK_ROWS < size; chunk++){
+            int[] ids = vehicles[chunk];
+            int[] kwh = kwhs[chunk];
+            int rows = Math.min(CHUNK_ROWS, size - chunk * CHUNK_ROWS);
+            for (int row = 0; row < rows; row++){
+                if (ids[row] == vehicleId){
+                    sum += kwh[row];
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @param vehicleId The id of a vehicle.
+     * @return The fees charged by the recharges of the vehicle, in euros.
+     */
+    public double sumFeesByVehicle(int vehicleId)
+    {
+        long sum = 0;
+        for (int chunk = 0; chunk * CHUNK_ROWS < size; chunk++){
+            int[] ids = vehicles[chunk];
+            int[] fee = fees[chunk];
+            int rows = Math.min(CHUNK_ROWS, size - chunk * CHUNK_ROWS);
+            for (int row = 0; row < rows; row++){
+                if (ids[row] == vehicleId){
+                    sum += fee[row];
+                }
+            }
+        }
+        return (double) sum / FEE_SCALE;
+    }
+
+    /**
+     * @param fromStep The first step of the range (included).
+     * @param toStep The last step of the range (excluded).
+     * @return The number of recharges done in the range of steps.
+     */
+    public int countInSteps(int fromStep, int toStep)
+    {
+        if (stepsSorted){
+            return Math.max(0, firstRowFrom(toStep) - firstRowFrom(fromStep));
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++){
+            int step = getStep(i);
+            if (step >= fromStep && step < toStep){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param fromStep The first step of the range (included).
+     * @param toStep The last step of the range (excluded).
+     * @return The kWh recharged in the range of steps.
+     */
+    public long sumKwhInSteps(int fromStep, int toStep)
+    {
+        long sum = 0;
+        if (stepsSorted){
+            int last = firstRowFrom(toStep);
+            for (int i = firstRowFrom(fromStep); i < last; i++){
+                sum += getKwh(i);
+            }
+            return sum;
+        }
+        for (int i = 0; i < size; i++){
+            int step = getStep(i);
+            if (step >= fromStep && step < toStep){
+                sum += getKwh(i);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @param fromStep The first step of the range (included).
+     * @param toStep The last step of the range (excluded).
+     * @return The fees charged in the range of steps, in euros.
+     */
+    public double sumFeesInSteps(int fromStep, int toStep)
+    {
+        long sum = 0;
+        if (stepsSorted){
+            int last = firstRowFrom(toStep);
+            for (int i = firstRowFrom(fromStep); i < last; i++){
+                sum += getFeeFixed(i);
+            }
+            return (double) sum / FEE_SCALE;
+        }
+        for (int i = 0; i < size; i++){
+            int step = getStep(i);
+            if (step >= fromStep && step < toStep){
+                sum += getFeeFixed(i);
+            }
+        }
+        return (double) sum / FEE_SCALE;
+    }
+
+    /**
+     * Binary search of the rows, only valid while the steps are in ascending order.
+     * @return The first row whose step is not lower than the given one, or {@link #size()} if there is none.
+     */
+    private int firstRowFrom(int step)
+    {
+        int low = 0;
+        int high = size;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (getStep(middle) < step){
+                low = middle + 1;
+            }
+            else{
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("Recharge " + index + " of " + size);
+        }
+    }
+
+    private static int[][] copyChunks(int[][] chunks)
+    {
+        int[][] copy = new int[chunks.length][];
+        for (int i = 0; i < chunks.length; i++){
+            copy[i] = chunks[i] == null ? null : chunks[i].clone();
+        }
+        return copy;
+    }
+}
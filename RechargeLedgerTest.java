@@ -0,0 +1,130 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that a {@link RechargeLedger} keeps its recharges across many chunks and answers its aggregate
+ * queries as a scan of the recharges would.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class RechargeLedgerTest
+{
+    private static final int NUM_RECHARGES = 5000;
+    private static final int NUM_VEHICLES = 37;
+
+    private RechargeLedger ledger;
+
+    /**
+     * Default constructor for test class RechargeLedgerTest.
+     */
+    public RechargeLedgerTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture: a ledger with a recharge every other step, of vehicles in turn.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        ledger = new RechargeLedger();
+        for (int i = 0; i < NUM_RECHARGES; i++){
+            ledger.add(i % NUM_VEHICLES, 2 * i, 10 + i % 50, (10 + i % 50) * 0.25f);
+        }
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+    }
+
+    /**
+     * Test that every recharge is kept, and that the totals and the queries by vehicle add up.
+     */
+    @Test
+    public void testColumnsAndTotals()
+    {
+        assertEquals(NUM_RECHARGES, ledger.size());
+        long kwh = 0;
+        for (int i = 0; i < NUM_RECHARGES; i++){
+            assertEquals(i % NUM_VEHICLES, ledger.getVehicleId(i));
+            assertEquals(2 * i, ledger.getStep(i));
+            assertEquals(10 + i % 50, ledger.getKwh(i));
+            assertEquals((10 + i % 50) * 0.25, ledger.getFee(i), 1e-9);
+            kwh += ledger.getKwh(i);
+        }
+        assertEquals(kwh, ledger.getTotalKwh());
+        assertEquals(kwh * 0.25, ledger.getTotalFees(), 1e-6);
+
+        int count = 0;
+        long vehiclesKwh = 0;
+        for (int vehicle = 0; vehicle < NUM_VEHICLES; vehicle++){
+            count += ledger.countByVehicle(vehicle);
+            vehiclesKwh += ledger.sumKwhByVehicle(vehicle);
+        }
+        assertEquals(NUM_RECHARGES, count);
+        assertEquals(kwh, vehiclesKwh);
+        assertEquals(0, ledger.countByVehicle(NUM_VEHICLES));
+    }
+
+    /**
+     * Test the queries by step range, with the steps in order and out of order.
+     */
+    @Test
+    public void testStepRanges()
+    {
+        assertEquals(50, ledger.countInSteps(100, 200));
+        assertEquals(1, ledger.countInSteps(99, 101));
+        assertEquals(0, ledger.countInSteps(101, 102));
+        assertEquals(NUM_RECHARGES, ledger.countInSteps(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(0, ledger.countInSteps(200, 100));
+
+        RechargeLedger unsorted = new RechargeLedger(ledger);
+        unsorted.add(0, 150, 40, 10f);
+        assertEquals(51, unsorted.countInSteps(100, 200));
+        assertEquals(ledger.sumKwhInSteps(100, 200) + 40, unsorted.sumKwhInSteps(100, 200));
+        assertEquals(ledger.sumFeesInSteps(100, 200) + 10, unsorted.sumFeesInSteps(100, 200), 1e-9);
+        assertEquals(NUM_RECHARGES, ledger.size());
+    }
+
+    /**
+     * Test that a cleared ledger is empty and records again from the start.
+     */
+    @Test
+    public void testClear()
+    {
+        ledger.clear();
+        assertEquals(0, ledger.size());
+        assertEquals(0, ledger.getTotalKwh());
+        assertEquals(0, ledger.countInSteps(0, Integer.MAX_VALUE));
+        ledger.add(3, 7, 20, 5f);
+        assertEquals(1, ledger.size());
+        assertEquals(3, ledger.getVehicleId(0));
+        assertEquals(1, ledger.countByVehicle(3));
+    }
+
+    /**
+     * Test that a vehicle added through the modifiable list of a company gets an id, so the recharges
+     * of the ledger can name it.
+     */
+    @Test
+    public void testVehicleAddedThroughModifiableList()
+    {
+        EVCompany company = new EVCompany("Ledger test");
+        ElectricVehicle first = new ElectricVehicle(company, new Location(0, 0), new Location(5, 5), "First", "0001AAA", 50);
+        ElectricVehicle second = new ElectricVehicle(company, new Location(1, 1), new Location(5, 5), "Second", "0002AAA", 50);
+        company.addElectricVehicle(first);
+        assertTrue(company.getVehicleById(0) == first);
+        company.getModifiableVehicles().add(second);
+        assertEquals(2, company.getVehicleIdLimit());
+        assertEquals(1, second.getId());
+        assertTrue(company.getVehicleById(1) == second);
+    }
+}
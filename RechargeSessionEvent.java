@@ -0,0 +1,71 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder event for a recharge session of a vehicle on a {@link Charger}, with the
+ * energy recharged and the fee paid. Recharges are rare compared with moves, so the event is
+ * enabled by default with no threshold.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+@Name("ev.RechargeSession")
+@Label("Recharge Session")
+@Category("EV Simulation")
+@Description("Recharge of a vehicle on a charger")
+@Threshold("0 ms")
+public class RechargeSessionEvent extends jdk.jfr.Event
+{
+    /** The type of the event, to check if it is enabled without creating one. */
+    public static final EventType TYPE = EventType.getEventType(RechargeSessionEvent.class);
+
+    @Label("Charger")
+    public String charger;
+
+    @Label("Plate")
+    public String plate;
+
+    @Label("Energy (kWh)")
+    public int kwh;
+
+    @Label("Fee")
+    public float fee;
+
+    /**
+     * @return A new event, already begun, or null if no recording has the event enabled.
+     */
+    public static RechargeSessionEvent start()
+    {
+        if (!TYPE.isEnabled()){
+            return null;
+        }
+        RechargeSessionEvent event = new RechargeSessionEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends an event returned by {@link #start()} and commits it if it is over the threshold.
+     * @param event The event, or null.
+     * @param charger The charger of the session.
+     * @param vehicle The vehicle recharged.
+     * @param kwh The energy recharged, in kWh.
+     * @param fee The fee of the session.
+     */
+    public static void finish(RechargeSessionEvent event, Charger charger, ElectricVehicle vehicle, int kwh, float fee)
+    {
+        if (event != null){
+            event.end();
+            if (event.shouldCommit()){
+                event.charger = charger.getId();
+                event.plate = vehicle.getPlate();
+                event.kwh = kwh;
+                event.fee = fee;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * Enumeration that defines the formats of the reports written by {@link ReportWriter}.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public enum ReportFormat
+{
+    /** The layout printed by the demo, with banners and the complete information of every station. */
+    TEXT ("TEXT"),
+    /** One comma-separated record per line, the first field being the kind of record. */
+    CSV ("CSV"),
+    /** One JSON object per line, with a "type" field telling the kind of record. */
+    JSONL ("JSONL");
+
+    /** Descriptive name of the format. */
+    private String name;
+
+    /**
+     * Constructor for the report formats.
+     * @param name Descriptive name.
+     */
+    ReportFormat(String name){
+        this.name = name;
+    }
+
+    /**
+     * @return The descriptive name of the format.
+     */
+    public String getName(){
+        return name;
+    }
+}
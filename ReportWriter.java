@@ -0,0 +1,477 @@
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes the initial and the final reports of a company, the ones printed by {@link EVDemo}, into an
+ * {@link Appendable} or a {@link WritableByteChannel}, in any of the formats of {@link ReportFormat}.
+ *
+ * The records are appended to a buffer of fixed size, straight from the fields of the vehicles,
+ * stations and chargers, and the buffer is handed to the output every time it fills up, so no string
+ * with the whole report, or with the whole information of a station, is ever built. Channels get the
+ * report encoded in UTF-8.
+ *
+ * The CSV and JSONL reports have one record per line, of these kinds:
+ * <ul>
+ * <li>report: the company and the phase, {@code initial} or {@code final}.</li>
+ * <li>vehicle: name, plate, battery capacity and level, number and cost of the charges, idle steps,
+ * location, recharging location (empty or null if there is none), target location and arriving step.</li>
+ * <li>station: id, city, number of vehicles recharged and location.</li>
+ * <li>charger: station, id, speed, fee, number of vehicles recharged and amount collected.</li>
+ * <li>recharge: the charger, the plate of the vehicle it recharged, the step, the kWh and the fee, in recharge order.</li>
+ * <li>queue: station, policy, vehicles waiting, queued and admitted, mean and maximum length, and mean
+ * and maximum wait in steps of the {@link StationQueue} of every station where some vehicle has waited,
+ * in the final report.</li>
+ * <li>cache: hits, misses and evictions of the {@link RoutePlanCache}, in the final report.</li>
+ * </ul>
+ * In CSV every location takes two fields, x and y; in JSONL it is an array [x, y].
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class ReportWriter
+{
+    /** Number of chars buffered before they are written. */
+    private static final int BUFFER = 1 << 16;
+    /** End of the lines of the text report, as {@link java.io.PrintStream#println()} writes it. */
+    private static final String LINE = System.lineSeparator();
+    private static final String BANNER = "(-------------------)";
+
+    private ReportFormat format;
+    private Appendable appendable;
+    private WritableByteChannel channel;
+    private CharsetEncoder encoder;
+    private ByteBuffer bytes;
+    private StringBuilder buffer;
+
+    /**
+     * Constructor for objects of class ReportWriter that writes into an {@link Appendable}, such as a
+     * {@link java.io.PrintStream} or a {@link java.io.Writer}.
+     * @param out Where the reports are written. It is flushed, if it can be, but never closed.
+     * @param format The format of the reports.
+     */
+    public ReportWriter(Appendable out, ReportFormat format)
+    {
+        this.appendable = out;
+        this.format = format;
+        this.buffer = new StringBuilder(BUFFER + 1024);
+    }
+
+    /**
+     * Constructor for objects of class ReportWriter that writes into a channel, in UTF-8.
+     * @param out Where the reports are written. It is never closed.
+     * @param format The format of the reports.
+     */
+    public ReportWriter(WritableByteChannel out, ReportFormat format)
+    {
+        this.channel = out;
+        this.format = format;
+        this.buffer = new StringBuilder(BUFFER + 1024);
+        this.encoder = StandardCharsets.UTF_8.newEncoder();
+        this.bytes = ByteBuffer.allocate(4 * BUFFER);
+    }
+
+    /**
+     * @return The format of the reports.
+     */
+    public ReportFormat getFormat()
+    {
+        return format;
+    }
+
+    /**
+     * Writes the report shown before the simulation starts: the vehicles and the stations, with
+     * their chargers, in the order of the company. Call {@link #flush()} to make sure it has all
+     * been written.
+     * @param company The company.
+     * @throws IOException If the output cannot be written.
+     */
+    public void writeInitialReport(EVCompany company) throws IOException
+    {
+        if (format == ReportFormat.TEXT){
+            buffer.append("( ").append(company.getName()).append(" )").append(LINE);
+            banner("Electric Vehicles");
+            buffer.append('\n').append(LINE);
+        }
+        else{
+            reportRecord(company, "initial");
+        }
+        writeVehicles(company.getVehicles());
+        if (format == ReportFormat.TEXT){
+            banner("Charging Stations");
+            buffer.append('\n').append(LINE);
+        }
+        writeStations(company.getCityStations());
+        if (format == ReportFormat.TEXT){
+            buffer.append("(------------------)").append(LINE);
+            buffer.append("( Simulation start )").append(LINE);
+            buffer.append("(------------------)").append(LINE);
+            buffer.append('\n').append(LINE);
+        }
+        drain(false);
+    }
+
+    /**
+     * Writes the report shown after the simulation: the vehicles by arriving step, the stations
+     * by number of vehicles recharged, with their chargers, the statistics of the station queues,
+     * if some vehicle has waited in one, and the statistics of the route cache.
+     * Call {@link #flush()} to make sure it has all been written.
+     * @param company The company.
+     * @throws IOException If the output cannot be written.
+     */
+    public void writeFinalReport(EVCompany company) throws IOException
+    {
+        if (format == ReportFormat.TEXT){
+            banner("Final information");
+            banner("Electric Vehicles");
+        }
+        else{
+            reportRecord(company, "final");
+        }
+        List<ElectricVehicle> vehicles = new ArrayList<ElectricVehicle>(company.getVehicles());
+        Collections.sort(vehicles, new ComparatorVehicleArrivingStep());
+        writeVehicles(vehicles);
+
+        if (format == ReportFormat.TEXT){
+            banner("Charging Stations");
+        }
+        List<ChargingStation> stations = new ArrayList<ChargingStation>(company.getCityStations());
+        Collections.sort(stations, new ComparatorChargingStationNumberEvCharged());
+        writeStations(stations);
+        writeQueues(stations);
+
+        RoutePlanCache cache = company.getRoutePlanCache();
+        if (format == ReportFormat.TEXT){
+            buffer.append(BANNER).append(LINE);
+            buffer.append("( ").append(cache).append(" )").append(LINE);
+            buffer.append(BANNER).append(LINE);
+        }
+        else{
+            begin("cache");
+            field("hits").append(cache.getHits());
+            field("misses").append(cache.getMisses());
+            field("evictions").append(cache.getEvictions());
+            end();
+        }
+        drain(false);
+    }
+
+    /**
+     * Writes everything buffered so far and flushes the output, if it can be flushed.
+     * @throws IOException If the output cannot be written.
+     */
+    public void flush() throws IOException
+    {
+        drain(true);
+        if (appendable instanceof Flushable){
+            ((Flushable) appendable).flush();
+        }
+    }
+
+    private void banner(String title)
+    {
+        buffer.append(BANNER).append(LINE);
+        buffer.append("( ").append(title).append(" )").append(LINE);
+        buffer.append(BANNER).append(LINE);
+    }
+
+    private void reportRecord(EVCompany company, String phase)
+    {
+        begin("report");
+        field("company");
+        string(company.getName());
+        field("phase");
+        string(phase);
+        end();
+    }
+
+    private void writeVehicles(List<ElectricVehicle> vehicles) throws IOException
+    {
+        for (int i = 0; i < vehicles.size(); i++){
+            writeVehicle(vehicles.get(i));
+            drain(false);
+        }
+    }
+
+    private void writeVehicle(ElectricVehicle vehicle)
+    {
+        if (format == ReportFormat.TEXT){
+            buffer.append("(ElectricVehicle: ");
+            vehicle.appendInfo(buffer);
+            buffer.append(')').append(LINE);
+            return;
+        }
+        begin("vehicle");
+        field("name");
+        string(vehicle.getName());
+        field("plate");
+        string(vehicle.getPlate());
+        field("batteryCapacity").append(vehicle.getBatteryCapacity());
+        field("batteryLevel").append(vehicle.getBatteryLevel());
+        field("charges").append(vehicle.getChargesCount());
+        field("chargesCost").append(vehicle.getChargestCost());
+        field("idleCount").append(vehicle.getIdleCount());
+        field("location");
+        location(vehicle.getLocation());
+        field("rechargingLocation");
+        location(vehicle.getRechargingLocation());
+        field("targetLocation");
+        location(vehicle.getTargetLocation());
+        field("arrivingStep").append(vehicle.getArrivingStep());
+        end();
+    }
+
+    /**
+     * Writes the stations, every one followed by its chargers and every charger by the vehicles it recharged.
+     */
+    private void writeStations(List<ChargingStation> stations) throws IOException
+    {
+        for (int s = 0; s < stations.size(); s++){
+            ChargingStation station = stations.get(s);
+            if (format == ReportFormat.TEXT){
+                station.appendInfo(buffer);
+                buffer.append('\n');
+            }
+            else{
+                begin("station");
+                field("id");
+                string(station.getId());
+                field("city");
+                string(station.getCity());
+                field("recharged").append(station.getNumerEVRecharged());
+                field("location");
+                location(station.getLocation());
+                end();
+            }
+            List<Charger> chargers = station.getChargers();
+            for (int c = 0; c < chargers.size(); c++){
+                writeCharger(station, chargers.get(c));
+            }
+            if (format == ReportFormat.TEXT){
+                buffer.append(LINE);
+            }
+            drain(false);
+        }
+    }
+
+    private void writeCharger(ChargingStation station, Charger charger) throws IOException
+    {
+        if (format == ReportFormat.TEXT){
+            charger.appendInfo(buffer);
+            buffer.append('\n');
+        }
+        else{
+            begin("charger");
+            field("station");
+            string(station.getId());
+            field("id");
+            string(charger.getId());
+            field("speed").append(charger.getChargingSpeed());
+            field("fee").append(charger.getChargingFee());
+            field("recharged").append(charger.getNumerEVRecharged());
+            field("amountCollected").append(charger.getAmountCollected());
+            end();
+        }
+        EVCompany company = station.getCompany();
+        RechargeLedger ledger = charger.getLedger();
+        for (int i = 0; i < ledger.size() && company != null; i++){
+            ElectricVehicle vehicle = company.getVehicleById(ledger.getVehicleId(i));
+            if (vehicle == null){
+                continue;
+            }
+            if (format == ReportFormat.TEXT){
+                buffer.append("(ElectricVehicle: ");
+                vehicle.appendInfo(buffer);
+                buffer.append(')').append('\n');
+            }
+            else{
+                begin("recharge");
+                field("charger");
+                string(charger.getId());
+                field("plate");
+                string(vehicle.getPlate());
+                field("step").append(ledger.getStep(i));
+                field("kwh").append(ledger.getKwh(i));
+                field("fee").append(ledger.getFee(i));
+                end();
+            }
+            drain(false);
+        }
+    }
+
+    /**
+     * Writes the statistics of the queues of the stations where some vehicle has waited, if there is any.
+     */
+    private void writeQueues(List<ChargingStation> stations) throws IOException
+    {
+        boolean first = true;
+        for (int i = 0; i < stations.size(); i++){
+            ChargingStation station = stations.get(i);
+            StationQueue queue = station.getQueue();
+            if (queue == null){
+                continue;
+            }
+            if (format == ReportFormat.TEXT){
+                if (first){
+                    banner("Station queues");
+                    first = false;
+                }
+                buffer.append("(StationQueue: ").append(station.getId()).append(", ");
+                queue.appendInfo(buffer);
+                buffer.append(')').append(LINE);
+            }
+            else{
+                begin("queue");
+                field("station");
+                string(station.getId());
+                field("policy");
+                string(queue.getPolicy().getName());
+                field("waiting").append(queue.size());
+                field("queued").append(queue.getEnqueued());
+                field("admitted").append(queue.getAdmitted());
+                field("meanLength").append(queue.getMeanLength());
+                field("maxLength").append(queue.getMaxLength());
+                field("meanWait").append(queue.getMeanWait());
+                field("maxWait").append(queue.getMaxWait());
+                end();
+            }
+            drain(false);
+        }
+    }
+
+    /**
+     * Starts a CSV or JSONL record of the given kind.
+     */
+    private void begin(String type)
+    {
+        if (format == ReportFormat.CSV){
+            buffer.append(type);
+        }
+        else{
+            buffer.append("{\"type\":\"").append(type).append('"');
+        }
+    }
+
+    /**
+     * Starts a field of a CSV or JSONL record.
+     * @return The buffer, to append the value.
+     */
+    private StringBuilder field(String name)
+    {
+        if (format == ReportFormat.CSV){
+            return buffer.append(',');
+        }
+        return buffer.append(",\"").append(name).append("\":");
+    }
+
+    /**
+     * Ends a CSV or JSONL record.
+     */
+    private void end()
+    {
+        if (format == ReportFormat.JSONL){
+            buffer.append('}');
+        }
+        buffer.append('\n');
+    }
+
+    /**
+     * Appends a string value, quoted if the format needs it.
+     */
+    private void string(String value)
+    {
+        if (format == ReportFormat.CSV){
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++){
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote){
+                buffer.append(value);
+                return;
+            }
+            buffer.append('"');
+            for (int i = 0; i < value.length(); i++){
+                char c = value.charAt(i);
+                buffer.append(c);
+                if (c == '"'){
+                    buffer.append('"');
+                }
+            }
+            buffer.append('"');
+            return;
+        }
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\'){
+                buffer.append('\\').append(c);
+            }
+            else if (c < 0x20){
+                buffer.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+            }
+            else{
+                buffer.append(c);
+            }
+        }
+        buffer.append('"');
+    }
+
+    /**
+     * Appends a location value: two fields in CSV, an array in JSONL, empty or null if there is none.
+     */
+    private void location(Location location)
+    {
+        if (format == ReportFormat.CSV){
+            if (location != null){
+                buffer.append(location.getX()).append(',').append(location.getY());
+            }
+            else{
+                buffer.append(',');
+            }
+        }
+        else if (location == null){
+            buffer.append("null");
+        }
+        else{
+            buffer.append('[').append(location.getX()).append(',').append(location.getY()).append(']');
+        }
+    }
+
+    /**
+     * Writes the buffer if it is full, or whatever it has if asked to.
+     */
+    private void drain(boolean all) throws IOException
+    {
+        if (buffer.length() < BUFFER && !(all && buffer.length() > 0)){
+            return;
+        }
+        if (appendable != null){
+            appendable.append(buffer);
+            buffer.setLength(0);
+            return;
+        }
+        CharBuffer chars = CharBuffer.wrap(buffer);
+        CoderResult result;
+        do{
+            result = encoder.encode(chars, bytes, false);
+            if (result.isError()){
+                result.throwException();
+            }
+            bytes.flip();
+            while (bytes.hasRemaining()){
+                channel.write(bytes);
+            }
+            bytes.clear();
+        } while (result.isOverflow());
+        //a lone high surrogate at the end stays in the buffer until its pair arrives
+        buffer.delete(0, chars.position());
+    }
+}
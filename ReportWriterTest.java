@@ -0,0 +1,115 @@
+import static org.junit.Assert.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that the reports streamed by {@link ReportWriter} have the layout of the string methods of the
+ * model, and that the CSV and JSONL reports have one record per vehicle, station, charger and recharge.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class ReportWriterTest
+{
+    private static final int STEPS = 80;
+
+    private EVCompany company;
+
+    /**
+     * Default constructor for test class ReportWriterTest.
+     */
+    public ReportWriterTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture: a generated city where the vehicles recharge, run for some steps.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        ScenarioGenerator generator = new ScenarioGenerator(5, 60, 60);
+        generator.setNumVehicles(400);
+        generator.setNumStations(6);
+        generator.setNumChargersPerStation(2);
+        generator.setBatteryCapacityRange(60, 200);
+        company = generator.generate("Report test");
+        new EVDemo(company, company.getVehicles(), null).runSteps(0, STEPS);
+    }
+
+    /**
+     * Test that the text report has the vehicles and the complete information of the stations.
+     */
+    @Test
+    public void testTextReportMatchesCompleteInfo() throws IOException
+    {
+        StringBuilder vehicles = new StringBuilder();
+        for (ElectricVehicle vehicle : company.getVehicles()){
+            vehicles.append(vehicle.getInitialFinalInfo()).append(System.lineSeparator());
+        }
+        StringBuilder stations = new StringBuilder();
+        for (ChargingStation station : company.getCityStations()){
+            stations.append(station.getCompleteInfo()).append(System.lineSeparator());
+        }
+
+        StringBuilder report = new StringBuilder();
+        ReportWriter writer = new ReportWriter(report, ReportFormat.TEXT);
+        writer.writeInitialReport(company);
+        writer.flush();
+
+        assertTrue(company.getTotalRecharges() > 0);
+        assertTrue(report.toString().contains(vehicles));
+        assertTrue(report.toString().contains(stations));
+    }
+
+    /**
+     * Test that a report written into a channel is the one written into an {@link Appendable}, in UTF-8.
+     */
+    @Test
+    public void testChannelMatchesAppendable() throws IOException
+    {
+        for (ReportFormat format : ReportFormat.values()){
+            StringBuilder text = new StringBuilder();
+            ReportWriter writer = new ReportWriter(text, format);
+            writer.writeFinalReport(company);
+            writer.flush();
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            writer = new ReportWriter(Channels.newChannel(bytes), format);
+            writer.writeFinalReport(company);
+            writer.flush();
+
+            assertEquals(format.getName(), text.toString(), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Test that the CSV and JSONL reports have one line per record.
+     */
+    @Test
+    public void testRecordsPerLine() throws IOException
+    {
+        long records = 2 + company.getVehicles().size() + company.getCityStations().size();
+        for (ChargingStation station : company.getCityStations()){
+            records += station.getChargers().size() + station.getNumerEVRecharged();
+        }
+        for (ReportFormat format : new ReportFormat[] {ReportFormat.CSV, ReportFormat.JSONL}){
+            StringBuilder report = new StringBuilder();
+            ReportWriter writer = new ReportWriter(report, format);
+            writer.writeFinalReport(company);
+            writer.flush();
+
+            String[] lines = report.toString().split("\n");
+            assertEquals(format.getName(), records, lines.length);
+            if (format == ReportFormat.JSONL){
+                for (String line : lines){
+                    assertTrue(line, line.startsWith("{\"type\":\"") && line.endsWith("}"));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of the recharging stations chosen by {@link ElectricVehicle#calculateRechargingPosition()},
+ * keyed by the (location, target, battery reach) triple of the vehicle. Vehicles with no reachable
+ * station are cached too, since they ask the same question again on every step.
+ *
+ * The cache is split in segments, each one a {@link LinkedHashMap} in access order that evicts its
+ * least recently used entry when it is full, so threads planning different vehicles rarely wait for
+ * each other. Every segment remembers the {@link StationIndex} its entries were calculated with and
+ * is emptied as soon as the company has a new one, that is, when its stations have changed.
+ * Lookups are done with a probe key owned by the segment, so a search answered from the cache
+ * does not create any object.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class RoutePlanCache
+{
+    /** Number of bits of the hash that select the segment of a key. */
+    private static final int SEGMENT_BITS = 4;
+    /** Number of segments of the cache. */
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+    /** Value stored for the keys that have no reachable station. */
+    private static final Location NO_STATION = new Location(0, 0);
+
+    /** The company whose stations are searched. */
+    private EVCompany company;
+    /** Maximum number of entries of the cache. */
+    private int capacity;
+    private Segment[] segments;
+
+    /**
+     * Constructor for objects of class RoutePlanCache.
+     * @param company The company whose stations are searched.
+     * @param capacity The maximum number of entries of the cache. Must be > 0.
+     * @throws IllegalArgumentException If capacity is not positive.
+     */
+    public RoutePlanCache(EVCompany company, int capacity)
+    {
+        if (capacity <= 0){
+            throw new IllegalArgumentException("Non-positive capacity: " + capacity);
+        }
+        this.company = company;
+        this.capacity = capacity;
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++){
+            segments[i] = new Segment(Math.max(1, capacity / SEGMENTS));
+        }
+    }
+
+    /**
+     * Finds the best station to recharge on the way from one location to a target,
+     * as {@link StationIndex#findBestDetour(Location, Location, int)} does.
+     * @param from The {@link Location} of the vehicle.
+     * @param target The {@link Location} the vehicle is heading to.
+     * @param reach The maximum number of steps the vehicle can move.
+     * @return The {@link Location} of the best station, or {@code null} if no station can be reached.
+     */
+    public Location findBestDetour(Location from, Location target, int reach)
+    {
+        StationIndex index = company.getStationIndex();
+        long fromPacked = from.getPacked();
+        long targetPacked = target.getPacked();
+        int hash = Key.hash(fromPacked, targetPacked, reach);
+        Segment segment = segments[(hash * 0x9E3779B9) >>> (32 - SEGMENT_BITS)];
+        Location found;
+        synchronized (segment){
+            segment.validate(index);
+            found = segment.get(segment.probe.set(fromPacked, targetPacked, reach));
+            if (found != null){
+                segment.hits++;
+                Metrics.count(MetricCounter.ROUTE_CACHE_HITS);
+                return found == NO_STATION ? null : found;
+            }
+            segment.misses++;
+        }
+        Metrics.count(MetricCounter.ROUTE_CACHE_MISSES);
+        found = index.findBestDetour(from, target, reach);
+        synchronized (segment){
+            segment.validate(index);
+            segment.put(new Key().set(fromPacked, targetPacked, reach), found == null ? NO_STATION : found);
+        }
+        return found;
+    }
+
+    /**
+     * @return The maximum number of entries of the cache.
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return The number of searches answered from the cache.
+     */
+    public long getHits()
+    {
+        long hits = 0;
+        for (Segment segment : segments){
+            synchronized (segment){
+                hits += segment.hits;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * @return The number of searches that had to be done on the {@link StationIndex}.
+     */
+    public long getMisses()
+    {
+        long misses = 0;
+        for (Segment segment : segments){
+            synchronized (segment){
+                misses += segment.misses;
+            }
+        }
+        return misses;
+    }
+
+    /**
+     * @return The number of entries removed to make room for new ones.
+     */
+    public long getEvictions()
+    {
+        long evictions = 0;
+        for (Segment segment : segments){
+            synchronized (segment){
+                evictions += segment.evictions;
+            }
+        }
+        return evictions;
+    }
+
+    /**
+     * @return The fraction of searches answered from the cache, between 0 and 1.
+     */
+    public double getHitRate()
+    {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Removes every entry and resets the statistics.
+     */
+    public void clear()
+    {
+        for (Segment segment : segments){
+            synchronized (segment){
+                segment.clear();
+                segment.hits = 0;
+                segment.misses = 0;
+                segment.evictions = 0;
+            }
+        }
+    }
+
+    /**
+     * @return A string with the size and statistics of the cache.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Route cache: ");
+        builder.append(getCapacity());
+        builder.append(" entries, ");
+        builder.append(getHits());
+        builder.append(" hits, ");
+        builder.append(getMisses());
+        builder.append(" misses, ");
+        builder.append(getEvictions());
+        builder.append(" evictions, ");
+        builder.append(String.format("%.2f", 100 * getHitRate()));
+        builder.append("% hit rate");
+        return builder.toString();
+    }
+
+    /**
+     * One segment of the cache: a map in access order that evicts its least recently used entry.
+     */
+    @SuppressWarnings("serial")          //never serialized
+    private static class Segment extends LinkedHashMap<Key, Location>
+    {
+        private int maxEntries;
+        private StationIndex index;
+        /** Key reused for the lookups, only used while holding the lock of the segment. */
+        private Key probe = new Key();
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        private Segment(int maxEntries)
+        {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        /**
+         * Empties the segment if its entries were calculated with another index.
+         */
+        private void validate(StationIndex current)
+        {
+            if (index != current){
+                clear();
+                index = current;
+            }
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Location> eldest)
+        {
+            if (size() > maxEntries){
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The (location, target, battery reach) triple a route is planned for, with the locations packed.
+     */
+    private static class Key
+    {
+        private long from;
+        private long target;
+        private int reach;
+
+        private Key set(long from, long target, int reach)
+        {
+            this.from = from;
+            this.target = target;
+            this.reach = reach;
+            return this;
+        }
+
+        private static int hash(long from, long target, int reach)
+        {
+            long hash = from;
+            hash = 31 * hash + target;
+            hash = 31 * hash + reach;
+            return (int) (hash ^ (hash >>> 32));
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (other instanceof Key){
+                Key key = (Key) other;
+                return from == key.from && target == key.target && reach == key.reach;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash(from, target, reach);
+        }
+    }
+}
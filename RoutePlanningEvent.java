@@ -0,0 +1,81 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder event for the calculation of the route of a vehicle, with the station chosen
+ * to recharge on the way, if any.
+ *
+ * There can be one event per vehicle and step, so it is disabled by default, and when it is enabled
+ * only the calculations longer than the threshold (20 microseconds by default) are committed; the
+ * fields are only filled for those.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+@Name("ev.RoutePlanning")
+@Label("Route Planning")
+@Category("EV Simulation")
+@Description("Calculation of the route of a vehicle")
+@Enabled(false)
+@Threshold("20 us")
+public class RoutePlanningEvent extends jdk.jfr.Event
+{
+    /** The type of the event, to check if it is enabled without creating one. */
+    public static final EventType TYPE = EventType.getEventType(RoutePlanningEvent.class);
+
+    @Label("Plate")
+    public String plate;
+
+    @Label("Battery Level")
+    public int batteryLevel;
+
+    @Label("Location")
+    public String location;
+
+    @Label("Target Location")
+    public String target;
+
+    @Label("Recharging Station")
+    @Description("Id of the station chosen to recharge, or null if the vehicle does not need to recharge or cannot reach any station")
+    public String station;
+
+    /**
+     * @return A new event, already begun, or null if no recording has the event enabled.
+     */
+    public static RoutePlanningEvent start()
+    {
+        if (!TYPE.isEnabled()){
+            return null;
+        }
+        RoutePlanningEvent event = new RoutePlanningEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends an event returned by {@link #start()} and commits it if it is over the threshold.
+     * @param event The event, or null.
+     * @param vehicle The vehicle whose route has just been calculated.
+     */
+    public static void finish(RoutePlanningEvent event, ElectricVehicle vehicle)
+    {
+        if (event != null){
+            event.end();
+            if (event.shouldCommit()){
+                event.plate = vehicle.getPlate();
+                event.batteryLevel = vehicle.getBatteryLevel();
+                event.location = vehicle.getLocation().toString();
+                event.target = vehicle.getTargetLocation().toString();
+                if (vehicle.hasRechargingLocation()){
+                    ChargingStation station = vehicle.getCompany().getChargingStation(vehicle.getRechargingLocation());
+                    event.station = station == null ? null : station.getId();
+                }
+                event.commit();
+            }
+        }
+    }
+}
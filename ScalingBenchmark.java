@@ -0,0 +1,420 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Runs the step loop of the simulation headless, with no step information, over a sweep of fleet
+ * sizes and numbers of threads, to see where the engines stop scaling.
+ *
+ * For every configuration a scenario is built by a {@link ScenarioGenerator} with a fixed seed, some
+ * steps are run to warm up, and then the measured steps are timed one by one. Every run gives a
+ * {@link ScalingResult} with the throughput in vehicle-steps per second, the median and 99th
+ * percentile of the time of a step, the high-water mark of the heap and the garbage collections
+ * (count, total time and longest pause, taken from the notifications of the collectors).
+ *
+ * The results are written as CSV or JSON. Given a baseline file written before in CSV, the results
+ * are compared with it and every configuration whose throughput or 99th percentile got worse by more
+ * than the tolerance is reported as a regression; the program then ends with status 1.
+ *
+ * The parameters are given on the command line as {@code name=value}: {@code vehicles} and
+ * {@code threads} (lists separated by commas), {@code engines} (SERIAL and PARALLEL), {@code stations}
+ * (stations per thousand vehicles), {@code chargers}, {@code grid}, {@code steps}, {@code warmup},
+ * {@code format} (csv or json), {@code out} (a file, or the standard output), {@code baseline}
+ * (a CSV file), {@code tolerance} (in percent) and {@code metrics} (true to print a {@link MetricsSnapshot}
+ * of the measured steps of every run to the standard error; it slows the steps down).
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class ScalingBenchmark
+{
+    private static final long SEED = 20251020L;
+
+    private int stationsPerThousand;
+    private int chargers;
+    private int grid;
+    private int steps;
+    private int warmupSteps;
+    private GcMonitor gcMonitor;
+
+    /**
+     * Constructor for objects of class ScalingBenchmark.
+     * @param stationsPerThousand The number of stations for every thousand vehicles (at least one station).
+     * @param chargers The number of chargers per station.
+     * @param grid The side of the city.
+     * @param steps The number of measured steps of every run. Must be > 0.
+     * @param warmupSteps The number of steps run before measuring.
+     * @throws IllegalArgumentException If steps is not positive.
+     */
+    public ScalingBenchmark(int stationsPerThousand, int chargers, int grid, int steps, int warmupSteps)
+    {
+        if (steps <= 0){
+            throw new IllegalArgumentException("Non-positive number of steps: " + steps);
+        }
+        this.stationsPerThousand = stationsPerThousand;
+        this.chargers = chargers;
+        this.grid = grid;
+        this.steps = steps;
+        this.warmupSteps = warmupSteps;
+        this.gcMonitor = new GcMonitor();
+    }
+
+    /**
+     * Runs the sweep and writes the results, comparing them with a baseline if one is given.
+     * @param args Parameters as {@code name=value}, see the description of the class.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int[] fleetSizes = intList(param(args, "vehicles", "1000,10000,100000"));
+        int[] threadCounts = intList(param(args, "threads", "1,2,4," + Runtime.getRuntime().availableProcessors()));
+        String[] engines = param(args, "engines", "SERIAL,PARALLEL").split(",");
+        ScalingBenchmark benchmark = new ScalingBenchmark(Integer.parseInt(param(args, "stations", "10")),
+                                                          Integer.parseInt(param(args, "chargers", "4")),
+                                                          Integer.parseInt(param(args, "grid", "2000")),
+                                                          Integer.parseInt(param(args, "steps", "200")),
+                                                          Integer.parseInt(param(args, "warmup", "50")));
+        Metrics.setEnabled(Boolean.parseBoolean(param(args, "metrics", "false")));
+
+        List<ScalingResult> results = new ArrayList<ScalingResult>();
+        for (int vehicles : fleetSizes){
+            for (String engine : engines){
+                EngineType type = EngineType.valueOf(engine.trim());
+                if (type == EngineType.PARALLEL){
+                    for (int threads : threadCounts){
+                        results.add(benchmark.run(type, vehicles, threads));
+                    }
+                }
+                else{
+                    results.add(benchmark.run(type, vehicles, 1));
+                }
+            }
+        }
+
+        String out = param(args, "out", "");
+        PrintStream stream = out.isEmpty() ? System.out : new PrintStream(out, StandardCharsets.UTF_8.name());
+        write(results, param(args, "format", "csv"), stream);
+        if (stream != System.out){
+            stream.close();
+        }
+
+        String baseline = param(args, "baseline", "");
+        if (!baseline.isEmpty()){
+            List<String> regressions = compare(readCsv(baseline), results, Double.parseDouble(param(args, "tolerance", "10")));
+            for (String regression : regressions){
+                System.err.println(regression);
+            }
+            if (!regressions.isEmpty()){
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Runs one configuration.
+     * @param engine {@link EngineType#SERIAL} or {@link EngineType#PARALLEL}.
+     * @param vehicles The size of the fleet.
+     * @param threads The number of threads of the parallel engine; ignored by the serial one.
+     * @return The measures of the run.
+     * @throws IllegalArgumentException If the engine cannot be stepped one step at a time by this harness.
+     */
+    public ScalingResult run(EngineType engine, int vehicles, int threads)
+    {
+        if (engine != EngineType.SERIAL && engine != EngineType.PARALLEL){
+            throw new IllegalArgumentException("Engine not supported: " + engine.getName());
+        }
+        int stations = Math.max(1, (int) ((long) vehicles * stationsPerThousand / 1000));
+        ScenarioGenerator generator = new ScenarioGenerator(SEED, grid, grid);
+        generator.setNumVehicles(vehicles);
+        generator.setNumStations(stations);
+        generator.setNumChargersPerStation(chargers);
+        EVCompany company = generator.generate("Scaling");
+        EVDemo demo = new EVDemo(company, company.getVehicles(), null);
+        ParallelStepEngine parallel = null;
+        if (engine == EngineType.PARALLEL){
+            parallel = new ParallelStepEngine(demo, new ArrayList<ElectricVehicle>(company.getVehicles()), null, threads);
+        }
+        else{
+            threads = 1;
+        }
+
+        for (int step = 0; step < warmupSteps; step++){
+            step(demo, parallel, step);
+        }
+
+        System.gc();
+        resetHeapPeak();
+        gcMonitor.reset();
+        Metrics.reset();
+        long[] stepNanos = new long[steps];
+        long start = System.nanoTime();
+        for (int i = 0; i < steps; i++){
+            long stepStart = System.nanoTime();
+            step(demo, parallel, warmupSteps + i);
+            stepNanos[i] = System.nanoTime() - stepStart;
+        }
+        long elapsed = System.nanoTime() - start;
+        long heapPeak = heapPeak();
+        if (parallel != null){
+            parallel.shutdown();
+        }
+
+        if (Metrics.isEnabled()){
+            System.err.println(engine.name() + ", " + threads + " threads, " + vehicles + " vehicles");
+            System.err.println(Metrics.snapshot());
+        }
+
+        Arrays.sort(stepNanos);
+        return new ScalingResult(engine.name(), threads, vehicles, stations, chargers, grid, steps,
+                                 (double) vehicles * steps * 1e9 / elapsed,
+                                 percentile(stepNanos, 50) / 1e3, percentile(stepNanos, 99) / 1e3,
+                                 heapPeak, gcMonitor.getCount(), gcMonitor.getTotalMillis(), gcMonitor.getMaxPauseMillis());
+    }
+
+    /**
+     * Writes results in CSV, with a header line, or in JSON, as an array of objects.
+     * @param results The results.
+     * @param format "csv" or "json".
+     * @param out Where the results are written.
+     * @throws IllegalArgumentException If the format is not known.
+     */
+    public static void write(List<ScalingResult> results, String format, PrintStream out)
+    {
+        if (format.equalsIgnoreCase("csv")){
+            out.println(ScalingResult.CSV_HEADER);
+            for (ScalingResult result : results){
+                out.println(result.toCsv());
+            }
+        }
+        else if (format.equalsIgnoreCase("json")){
+            out.println("[");
+            for (int i = 0; i < results.size(); i++){
+                out.println("  " + results.get(i).toJson() + (i + 1 < results.size() ? "," : ""));
+            }
+            out.println("]");
+        }
+        else{
+            throw new IllegalArgumentException("Unknown format: " + format);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads the results of a CSV file written by {@link #write(List, String, PrintStream)}.
+     * @param file The path of the file.
+     * @return The results, in the order of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    public static List<ScalingResult> readCsv(String file) throws IOException
+    {
+        List<ScalingResult> results = new ArrayList<ScalingResult>();
+        for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)){
+            if (!line.trim().isEmpty() && !line.startsWith(ScalingResult.CSV_HEADER)){
+                results.add(ScalingResult.fromCsv(line));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Compares results with a baseline. A configuration regresses if its throughput is lower, or its
+     * 99th percentile higher, than the one of the baseline by more than the tolerance.
+     * Configurations that are not in the baseline are not compared.
+     * @param baseline The results of the baseline.
+     * @param results The new results.
+     * @param tolerancePercent The tolerance, in percent of the baseline.
+     * @return A description of every regression, empty if there are none.
+     */
+    public static List<String> compare(List<ScalingResult> baseline, List<ScalingResult> results, double tolerancePercent)
+    {
+        Map<String, ScalingResult> byKey = new HashMap<String, ScalingResult>();
+        for (ScalingResult result : baseline){
+            byKey.put(result.getKey(), result);
+        }
+        double tolerance = tolerancePercent / 100;
+        List<String> regressions = new ArrayList<String>();
+        for (ScalingResult result : results){
+            ScalingResult old = byKey.get(result.getKey());
+            if (old == null){
+                continue;
+            }
+            if (result.getVehicleStepsPerSec() < old.getVehicleStepsPerSec() * (1 - tolerance)){
+                regressions.add(String.format(Locale.ROOT, "REGRESSION %s: throughput %.1f -> %.1f vehicle-steps/s (%+.1f%%)",
+                                              result.getKey(), old.getVehicleStepsPerSec(), result.getVehicleStepsPerSec(),
+                                              change(old.getVehicleStepsPerSec(), result.getVehicleStepsPerSec())));
+            }
+            if (result.getP99StepMicros() > old.getP99StepMicros() * (1 + tolerance)){
+                regressions.add(String.format(Locale.ROOT, "REGRESSION %s: p99 step %.3f -> %.3f us (%+.1f%%)",
+                                              result.getKey(), old.getP99StepMicros(), result.getP99StepMicros(),
+                                              change(old.getP99StepMicros(), result.getP99StepMicros())));
+            }
+        }
+        return regressions;
+    }
+
+    private static void step(EVDemo demo, ParallelStepEngine parallel, int step)
+    {
+        if (parallel != null){
+            parallel.step(step);
+        }
+        else{
+            demo.step(step);
+        }
+    }
+
+    /**
+     * @return The value at the given percentile of sorted values, by the nearest-rank method.
+     */
+    private static double percentile(long[] sorted, int percent)
+    {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double change(double before, double after)
+    {
+        return before == 0 ? 0 : 100 * (after - before) / before;
+    }
+
+    private static void resetHeapPeak()
+    {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()){
+            if (pool.getType() == MemoryType.HEAP){
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * @return The sum of the peak usage of the heap pools since the last {@link #resetHeapPeak()}.
+     */
+    private static long heapPeak()
+    {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()){
+            if (pool.getType() == MemoryType.HEAP){
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static String param(String[] args, String name, String defaultValue)
+    {
+        for (String arg : args){
+            if (arg.startsWith(name + "=")){
+                return arg.substring(name.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    private static int[] intList(String values)
+    {
+        String[] parts = values.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++){
+            result[i] = Integer.parseInt(parts[i].trim());
+        }
+        return result;
+    }
+
+    /**
+     * Listens to the notifications of the garbage collectors to count the collections, add up their
+     * time and keep the longest one.
+     */
+    private static class GcMonitor implements NotificationListener
+    {
+        private static final String NOTIFICATION = "com.sun.management.gc.notification";
+
+        private long count;
+        private long totalMillis;
+        private long maxPauseMillis;
+        /** Whether or not the collectors send notifications; if not, their counters are used. */
+        private boolean notifying;
+        private long baseCount;
+        private long baseMillis;
+
+        private GcMonitor()
+        {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()){
+                if (collector instanceof NotificationEmitter){
+                    ((NotificationEmitter) collector).addNotificationListener(this, null, null);
+                    notifying = true;
+                }
+            }
+        }
+
+        private synchronized void reset()
+        {
+            count = 0;
+            totalMillis = 0;
+            maxPauseMillis = 0;
+            baseCount = collectorCount();
+            baseMillis = collectorMillis();
+        }
+
+        private synchronized long getCount()
+        {
+            return notifying ? count : collectorCount() - baseCount;
+        }
+
+        private synchronized long getTotalMillis()
+        {
+            return notifying ? totalMillis : collectorMillis() - baseMillis;
+        }
+
+        /**
+         * @return The longest collection, or -1 if the collectors do not tell it.
+         */
+        private synchronized long getMaxPauseMillis()
+        {
+            return notifying ? maxPauseMillis : -1;
+        }
+
+        @Override
+        public synchronized void handleNotification(Notification notification, Object handback)
+        {
+            if (NOTIFICATION.equals(notification.getType())){
+                CompositeData info = (CompositeData) notification.getUserData();
+                CompositeData gcInfo = (CompositeData) info.get("gcInfo");
+                long duration = (Long) gcInfo.get("duration");
+                count++;
+                totalMillis += duration;
+                maxPauseMillis = Math.max(maxPauseMillis, duration);
+            }
+        }
+
+        private static long collectorCount()
+        {
+            long total = 0;
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()){
+                total += Math.max(0, collector.getCollectionCount());
+            }
+            return total;
+        }
+
+        private static long collectorMillis()
+        {
+            long total = 0;
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()){
+                total += Math.max(0, collector.getCollectionTime());
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+import java.util.Locale;
+
+/**
+ * One row of a {@link ScalingBenchmark}: the measures of a headless run of the simulation for
+ * one engine, fleet size and number of threads, on a city grid, for a number of steps.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class ScalingResult
+{
+    /** Names of the columns of the CSV format, in order. */
+    public static final String CSV_HEADER = "engine,threads,vehicles,stations,chargers,grid,steps,"
+                                            + "vehicleStepsPerSec,p50StepMicros,p99StepMicros,"
+                                            + "heapPeakBytes,gcCount,gcTotalMillis,gcMaxPauseMillis";
+
+    private String engine;
+    private int threads;
+    private int vehicles;
+    private int stations;
+    private int chargers;
+    private int grid;
+    private int steps;
+    private double vehicleStepsPerSec;
+    private double p50StepMicros;
+    private double p99StepMicros;
+    private long heapPeakBytes;
+    private long gcCount;
+    private long gcTotalMillis;
+    private long gcMaxPauseMillis;
+
+    /**
+     * Constructor for objects of class ScalingResult.
+     * @param engine The name of the engine, see {@link EngineType}.
+     * @param threads The number of threads of the engine.
+     * @param vehicles The size of the fleet.
+     * @param stations The number of stations.
+     * @param chargers The number of chargers per station.
+     * @param grid The side of the city.
+     * @param steps The number of measured steps.
+     * @param vehicleStepsPerSec The throughput, in vehicle-steps per second.
+     * @param p50StepMicros The median time of a step, in microseconds.
+     * @param p99StepMicros The 99th percentile of the time of a step, in microseconds.
+     * @param heapPeakBytes The high-water mark of the heap during the run, in bytes.
+     * @param gcCount The number of garbage collections during the run.
+     * @param gcTotalMillis The total time of those collections, in milliseconds.
+     * @param gcMaxPauseMillis The longest of those collections, in milliseconds.
+     */
+    public ScalingResult(String engine, int threads, int vehicles, int stations, int chargers, int grid, int steps,
+                         double vehicleStepsPerSec, double p50StepMicros, double p99StepMicros,
+                         long heapPeakBytes, long gcCount, long gcTotalMillis, long gcMaxPauseMillis)
+    {
+        this.engine = engine;
+        this.threads = threads;
+        this.vehicles = vehicles;
+        this.stations = stations;
+        this.chargers = chargers;
+        this.grid = grid;
+        this.steps = steps;
+        this.vehicleStepsPerSec = vehicleStepsPerSec;
+        this.p50StepMicros = p50StepMicros;
+        this.p99StepMicros = p99StepMicros;
+        this.heapPeakBytes = heapPeakBytes;
+        this.gcCount = gcCount;
+        this.gcTotalMillis = gcTotalMillis;
+        this.gcMaxPauseMillis = gcMaxPauseMillis;
+    }
+
+    /**
+     * Reads a result from a line in the format of {@link #toCsv()}.
+     * @param line The line.
+     * @return The result.
+     * @throws IllegalArgumentException If the line does not have the format.
+     */
+    public static ScalingResult fromCsv(String line)
+    {
+        String[] fields = line.trim().split(",");
+        if (fields.length != 14){
+            throw new IllegalArgumentException("Not a scaling result: " + line);
+        }
+        try{
+            return new ScalingResult(fields[0], Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                                     Integer.parseInt(fields[3]), Integer.parseInt(fields[4]), Integer.parseInt(fields[5]),
+                                     Integer.parseInt(fields[6]), Double.parseDouble(fields[7]), Double.parseDouble(fields[8]),
+                                     Double.parseDouble(fields[9]), Long.parseLong(fields[10]), Long.parseLong(fields[11]),
+                                     Long.parseLong(fields[12]), Long.parseLong(fields[13]));
+        }
+        catch (NumberFormatException e){
+            throw new IllegalArgumentException("Not a scaling result: " + line, e);
+        }
+    }
+
+    /**
+     * @return The key that identifies the configuration of the run: engine, threads, sizes and steps.
+     */
+    public String getKey()
+    {
+        return engine + "/" + threads + "/" + vehicles + "/" + stations + "/" + chargers + "/" + grid + "/" + steps;
+    }
+
+    /**
+     * @return The name of the engine.
+     */
+    public String getEngine()
+    {
+        return engine;
+    }
+
+    /**
+     * @return The number of threads of the engine.
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * @return The size of the fleet.
+     */
+    public int getVehicles()
+    {
+        return vehicles;
+    }
+
+    /**
+     * @return The side of the city.
+     */
+    public int getGrid()
+    {
+        return grid;
+    }
+
+    /**
+     * @return The number of measured steps.
+     */
+    public int getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * @return The throughput, in vehicle-steps per second.
+     */
+    public double getVehicleStepsPerSec()
+    {
+        return vehicleStepsPerSec;
+    }
+
+    /**
+     * @return The median time of a step, in microseconds.
+     */
+    public double getP50StepMicros()
+    {
+        return p50StepMicros;
+    }
+
+    /**
+     * @return The 99th percentile of the time of a step, in microseconds.
+     */
+    public double getP99StepMicros()
+    {
+        return p99StepMicros;
+    }
+
+    /**
+     * @return The high-water mark of the heap during the run, in bytes.
+     */
+    public long getHeapPeakBytes()
+    {
+        return heapPeakBytes;
+    }
+
+    /**
+     * @return The total time of the garbage collections during the run, in milliseconds.
+     */
+    public long getGcTotalMillis()
+    {
+        return gcTotalMillis;
+    }
+
+    /**
+     * @return The result as a line of CSV, with the columns of {@link #CSV_HEADER}.
+     */
+    public String toCsv()
+    {
+        return String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%d,%d,%.1f,%.3f,%.3f,%d,%d,%d,%d",
+                             engine, threads, vehicles, stations, chargers, grid, steps,
+                             vehicleStepsPerSec, p50StepMicros, p99StepMicros,
+                             heapPeakBytes, gcCount, gcTotalMillis, gcMaxPauseMillis);
+    }
+
+    /**
+     * @return The result as a JSON object, with the names of the columns of {@link #CSV_HEADER}.
+     */
+    public String toJson()
+    {
+        return String.format(Locale.ROOT, "{\"engine\":\"%s\",\"threads\":%d,\"vehicles\":%d,\"stations\":%d,\"chargers\":%d,"
+                             + "\"grid\":%d,\"steps\":%d,\"vehicleStepsPerSec\":%.1f,\"p50StepMicros\":%.3f,\"p99StepMicros\":%.3f,"
+                             + "\"heapPeakBytes\":%d,\"gcCount\":%d,\"gcTotalMillis\":%d,\"gcMaxPauseMillis\":%d}",
+                             engine, threads, vehicles, stations, chargers, grid, steps,
+                             vehicleStepsPerSec, p50StepMicros, p99StepMicros,
+                             heapPeakBytes, gcCount, gcTotalMillis, gcMaxPauseMillis);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toCsv();
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Enumeration that defines the formats of the scenario files read by {@link ScenarioLoader}.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public enum ScenarioFormat
+{
+    /** Text with one record per line and the fields separated by commas, after a header line. */
+    CSV ("CSV"),
+    /** Little-endian binary records, split in chunks whose offsets are kept in the header. */
+    BINARY ("BINARY");
+
+    /** Descriptive name of the format. */
+    private String name;
+
+    /**
+     * Constructor for the scenario formats.
+     * @param name Descriptive name.
+     */
+    ScenarioFormat(String name){
+        this.name = name;
+    }
+
+    /**
+     * @return The descriptive name of the format.
+     */
+    public String getName(){
+        return name;
+    }
+}
@@ -0,0 +1,289 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Generates scenarios of any size for load tests: a company with its stations, their chargers and
+ * its fleet, on a city of any size, beyond the fixed scenarios of {@link DemoType}.
+ *
+ * A scenario only depends on the seed and the parameters, never on the number of threads used to
+ * build it. The vehicles and the stations are generated in chunks of fixed size, in parallel, and
+ * every chunk draws from its own {@link SplittableRandom}, split from the one of the seed in chunk
+ * order before the parallel part starts.
+ *
+ * The vehicles are named {@code EV<i>} and their plates are {@code <i>GEN}, with i padded with zeros,
+ * so plates and generation order agree. The stations
+ * are named {@code ST<i>} and charger j of a station gets {@code (j+1)*20} kWh and {@code (j+1)*0.20} per kWh,
+ * as in the demo.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class ScenarioGenerator
+{
+    /** Number of vehicles or stations generated from the same random generator. */
+    private static final int CHUNK = 4096;
+
+    private long seed;
+    private int width;
+    private int height;
+    private int numVehicles;
+    private int numStations;
+    private int numChargersPerStation;
+    private int minBatteryCapacity;
+    private int maxBatteryCapacity;
+    private SpatialDistribution distribution;
+    private int numHotSpots;
+    private double hotSpotSpread;
+    private boolean parallel;
+
+    /**
+     * Constructor for objects of class ScenarioGenerator. It generates, until changed with the setters,
+     * the size of the advanced demo (8 vehicles, 4 stations with 4 chargers each) with locations spread
+     * uniformly, in parallel.
+     * @param seed The seed of the scenario.
+     * @param width The number of columns of the city (x coordinates 0 to width - 1). Must be > 0.
+     * @param height The number of rows of the city (y coordinates 0 to height - 1). Must be > 0.
+     * @throws IllegalArgumentException If width or height are not positive.
+     */
+    public ScenarioGenerator(long seed, int width, int height)
+    {
+        if (width <= 0 || height <= 0){
+            throw new IllegalArgumentException("Non-positive city size: " + width + "x" + height);
+        }
+        this.seed = seed;
+        this.width = width;
+        this.height = height;
+        numVehicles = 8;
+        numStations = 4;
+        numChargersPerStation = 4;
+        minBatteryCapacity = 15;
+        maxBatteryCapacity = 120;
+        distribution = SpatialDistribution.UNIFORM;
+        numHotSpots = 8;
+        hotSpotSpread = Math.max(1, Math.min(width, height) / 20.0);
+        parallel = true;
+    }
+
+    /**
+     * Set the number of vehicles of the fleet.
+     * @param numVehicles Must be >= 0.
+     * @throws IllegalArgumentException If numVehicles is negative.
+     */
+    public void setNumVehicles(int numVehicles)
+    {
+        checkNotNegative(numVehicles, "vehicles");
+        this.numVehicles = numVehicles;
+    }
+
+    /**
+     * Set the number of charging stations.
+     * @param numStations Must be >= 0.
+     * @throws IllegalArgumentException If numStations is negative.
+     */
+    public void setNumStations(int numStations)
+    {
+        checkNotNegative(numStations, "stations");
+        this.numStations = numStations;
+    }
+
+    /**
+     * Set the number of chargers of every station.
+     * @param numChargersPerStation Must be >= 0.
+     * @throws IllegalArgumentException If numChargersPerStation is negative.
+     */
+    public void setNumChargersPerStation(int numChargersPerStation)
+    {
+        checkNotNegative(numChargersPerStation, "chargers per station");
+        this.numChargersPerStation = numChargersPerStation;
+    }
+
+    /**
+     * Set the range of the battery capacities of the vehicles, drawn uniformly.
+     * @param min The smallest capacity. Must be > 0.
+     * @param max The largest capacity. Must be >= min.
+     * @throws IllegalArgumentException If the range is empty or not positive.
+     */
+    public void setBatteryCapacityRange(int min, int max)
+    {
+        if (min <= 0 || max < min){
+            throw new IllegalArgumentException("Wrong battery capacity range: " + min + "-" + max);
+        }
+        this.minBatteryCapacity = min;
+        this.maxBatteryCapacity = max;
+    }
+
+    /**
+     * Set how the locations of the vehicles, their targets and the stations are spread over the city.
+     * @param distribution The spatial distribution.
+     */
+    public void setDistribution(SpatialDistribution distribution)
+    {
+        this.distribution = distribution;
+    }
+
+    /**
+     * Set the hot spots used by {@link SpatialDistribution#CLUSTERED}. Their centres are spread
+     * uniformly over the city.
+     * @param numHotSpots The number of hot spots. Must be > 0.
+     * @param spread The standard deviation, in cells, of the locations around their hot spot. Must be >= 0.
+     * @throws IllegalArgumentException If a value is out of range.
+     */
+    public void setHotSpots(int numHotSpots, double spread)
+    {
+        if (numHotSpots <= 0 || !(spread >= 0)){
+            throw new IllegalArgumentException("Wrong hot spots: " + numHotSpots + ", spread " + spread);
+        }
+        this.numHotSpots = numHotSpots;
+        this.hotSpotSpread = spread;
+    }
+
+    /**
+     * Set whether the scenario is generated in parallel. The scenario is the same either way.
+     * @param parallel True to use the common fork-join pool.
+     */
+    public void setParallel(boolean parallel)
+    {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Generates the scenario: a new company with its stations, their chargers and its fleet.
+     * @param name The name of the company.
+     * @return The new {@link EVCompany}. The stations and the fleet are registered with the bulk methods
+     * of the company, so they are kept in its usual order.
+     */
+    public EVCompany generate(String name)
+    {
+        EVCompany company = new EVCompany(name);
+        SplittableRandom root = new SplittableRandom(seed);
+        long[] hotSpots = createHotSpots(root.split());
+
+        ChargingStation[] stations = new ChargingStation[numStations];
+        SplittableRandom[] stationRandoms = splitChunks(root, numStations);
+        chunks(numStations).forEach(chunk -> createStations(stations, chunk, stationRandoms[chunk], hotSpots));
+        company.addChargingStations(Arrays.asList(stations));
+
+        ElectricVehicle[] vehicles = new ElectricVehicle[numVehicles];
+        SplittableRandom[] vehicleRandoms = splitChunks(root, numVehicles);
+        chunks(numVehicles).forEach(chunk -> createVehicles(company, vehicles, chunk, vehicleRandoms[chunk], hotSpots));
+        company.addElectricVehicles(Arrays.asList(vehicles));
+        return company;
+    }
+
+    /**
+     * Creates the stations of a chunk, with their chargers.
+     */
+    private void createStations(ChargingStation[] stations, int chunk, SplittableRandom random, long[] hotSpots)
+    {
+        int digits = digits(numStations);
+        int chargerDigits = digits(numChargersPerStation);
+        int end = Math.min(stations.length, (chunk + 1) * CHUNK);
+        for (int i = chunk * CHUNK; i < end; i++){
+            ChargingStation station = new ChargingStation("Cáceres", "ST" + pad(i, digits), Location.of(nextPoint(random, hotSpots)));
+            List<Charger> chargers = new ArrayList<Charger>(numChargersPerStation);
+            for (int j = 0; j < numChargersPerStation; j++){
+                chargers.add(new Charger(station.getId() + "_" + pad(j, chargerDigits), (j + 1) * 20, (j + 1) * 0.20f));
+            }
+            station.addChargers(chargers);
+            stations[i] = station;
+        }
+    }
+
+    /**
+     * Creates the vehicles of a chunk.
+     */
+    private void createVehicles(EVCompany company, ElectricVehicle[] vehicles, int chunk, SplittableRandom random, long[] hotSpots)
+    {
+        int digits = digits(numVehicles);
+        int end = Math.min(vehicles.length, (chunk + 1) * CHUNK);
+        for (int i = chunk * CHUNK; i < end; i++){
+            Location location = Location.of(nextPoint(random, hotSpots));
+            Location target = Location.of(nextPoint(random, hotSpots));
+            int capacity = random.nextInt(minBatteryCapacity, maxBatteryCapacity + 1);
+            String index = pad(i, digits);
+            vehicles[i] = new ElectricVehicle(company, location, target, "EV" + index, index + "GEN", capacity);
+        }
+    }
+
+    /**
+     * Draws the packed coordinates of a location, following the distribution.
+     */
+    private long nextPoint(SplittableRandom random, long[] hotSpots)
+    {
+        if (distribution == SpatialDistribution.CLUSTERED){
+            long centre = hotSpots[random.nextInt(hotSpots.length)];
+            int x = clamp(Location.packedX(centre) + (int) Math.round(random.nextGaussian() * hotSpotSpread), width);
+            int y = clamp(Location.packedY(centre) + (int) Math.round(random.nextGaussian() * hotSpotSpread), height);
+            return Location.pack(x, y);
+        }
+        return Location.pack(random.nextInt(width), random.nextInt(height));
+    }
+
+    /**
+     * Draws the centres of the hot spots.
+     */
+    private long[] createHotSpots(SplittableRandom random)
+    {
+        long[] hotSpots = new long[numHotSpots];
+        for (int i = 0; i < numHotSpots; i++){
+            hotSpots[i] = Location.pack(random.nextInt(width), random.nextInt(height));
+        }
+        return hotSpots;
+    }
+
+    /**
+     * Splits one random generator for every chunk of the given number of elements, in chunk order.
+     */
+    private SplittableRandom[] splitChunks(SplittableRandom root, int size)
+    {
+        SplittableRandom[] randoms = new SplittableRandom[(size + CHUNK - 1) / CHUNK];
+        for (int i = 0; i < randoms.length; i++){
+            randoms[i] = root.split();
+        }
+        return randoms;
+    }
+
+    /**
+     * @return The chunks of the given number of elements, as a parallel stream if the generator is parallel.
+     */
+    private IntStream chunks(int size)
+    {
+        IntStream chunks = IntStream.range(0, (size + CHUNK - 1) / CHUNK);
+        return parallel ? chunks.parallel() : chunks;
+    }
+
+    private static int clamp(int value, int size)
+    {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    /**
+     * @return The number of digits of the largest index below size.
+     */
+    private static int digits(int size)
+    {
+        return Integer.toString(Math.max(0, size - 1)).length();
+    }
+
+    /**
+     * @return The index, padded with zeros on the left to the given number of digits.
+     */
+    private static String pad(int index, int digits)
+    {
+        String text = Integer.toString(index);
+        StringBuilder builder = new StringBuilder(digits);
+        for (int i = text.length(); i < digits; i++){
+            builder.append('0');
+        }
+        return builder.append(text).toString();
+    }
+
+    private static void checkNotNegative(int value, String what)
+    {
+        if (value < 0){
+            throw new IllegalArgumentException("Negative number of " + what + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,900 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Loads a scenario (a company with its stations, their chargers and its fleet) from three files,
+ * one for the stations, one for the chargers and one for the vehicles, so real fleets can be run
+ * instead of the fixed scenarios of {@link DemoType}. Every file is either CSV or binary (see
+ * {@link ScenarioFormat}); binary files are recognised by their first bytes.
+ *
+ * The CSV files start with a header line and have one record per line:
+ * <ul>
+ * <li>stations: {@code id,city,x,y}</li>
+ * <li>chargers: {@code station,id,speed,fee}, where station is the id of the station of the charger</li>
+ * <li>vehicles: {@code name,plate,x,y,targetX,targetY,batteryCapacity}</li>
+ * </ul>
+ * A string with a comma or a double quote is written between double quotes, with its double quotes
+ * doubled. Strings cannot have line breaks in CSV, since the files are cut at them.
+ * The binary files have the same fields, little-endian, with the strings as their number of UTF-8
+ * bytes followed by the bytes. Both kinds of file can be written with
+ * {@link #write(EVCompany, ScenarioFormat, Path, Path, Path)}.
+ *
+ * The files are read through memory-mapped buffers, in chunks that are parsed in parallel: a CSV
+ * file is cut every few megabytes at the next line break, and a binary file keeps the offsets of its
+ * chunks in its header. The numbers are parsed straight from the bytes, and a string that is the
+ * same as the one of the same field in the row before, like the city of the stations or the station
+ * of the chargers, is not decoded again. The rows of every chunk are joined in file order, and the
+ * stations and the fleet are registered with the bulk methods of the company.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class ScenarioLoader
+{
+    /** First int of every binary scenario file. */
+    private static final int MAGIC = 0x45565343;
+    /** Version of the binary format. */
+    private static final int FORMAT = 1;
+    /** Kinds of file, in the order of {@code HEADERS}. */
+    private static final int STATIONS = 0;
+    private static final int CHARGERS = 1;
+    private static final int VEHICLES = 2;
+    /** Header line of the CSV files of every kind. */
+    private static final String[] HEADERS = {"id,city,x,y", "station,id,speed,fee", "name,plate,x,y,targetX,targetY,batteryCapacity"};
+    /** Number of bytes of a CSV file parsed by one thread. Lowered by the tests to have many chunks. */
+    static int csvChunk = 1 << 22;
+    /** Maximum length of a CSV line. */
+    private static final int MAX_LINE = 1 << 16;
+    /** Number of records of a binary file parsed by one thread. */
+    private static final int BINARY_CHUNK = 4096;
+
+    private Path stationsFile;
+    private Path chargersFile;
+    private Path vehiclesFile;
+    private boolean parallel;
+
+    /**
+     * Constructor for objects of class ScenarioLoader. The files are parsed in parallel until changed
+     * with {@link #setParallel(boolean)}.
+     * @param stationsFile The path of the file of the stations.
+     * @param chargersFile The path of the file of the chargers.
+     * @param vehiclesFile The path of the file of the vehicles.
+     */
+    public ScenarioLoader(Path stationsFile, Path chargersFile, Path vehiclesFile)
+    {
+        this.stationsFile = stationsFile;
+        this.chargersFile = chargersFile;
+        this.vehiclesFile = vehiclesFile;
+        this.parallel = true;
+    }
+
+    /**
+     * Set whether the chunks of the files are parsed in parallel. The scenario is the same either way.
+     * @param parallel True to use the common fork-join pool.
+     */
+    public void setParallel(boolean parallel)
+    {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Loads the scenario: a new company with the stations, their chargers and the fleet of the files.
+     * @param name The name of the company.
+     * @return The new {@link EVCompany}.
+     * @throws IOException If a file cannot be read, or has a malformed record, a charger of an unknown
+     * station or two stations with the same id.
+     */
+    public EVCompany load(String name) throws IOException
+    {
+        EVCompany company = new EVCompany(name);
+
+        List<ChargingStation> stations = read(stationsFile, STATIONS, in -> readStation(in));
+        Map<String, Integer> stationsById = new HashMap<String, Integer>();
+        for (int i = 0; i < stations.size(); i++){
+            if (stationsById.put(stations.get(i).getId(), i) != null){
+                throw new IOException("Duplicate station " + stations.get(i).getId() + " in " + stationsFile);
+            }
+        }
+
+        List<ChargerRow> chargers = read(chargersFile, CHARGERS, in -> readCharger(in, stationsById));
+        List<List<Charger>> chargersByStation = new ArrayList<List<Charger>>(stations.size());
+        for (int i = 0; i < stations.size(); i++){
+            chargersByStation.add(new ArrayList<Charger>());
+        }
+        for (ChargerRow row : chargers){
+            chargersByStation.get(row.station).add(row.charger);
+        }
+        for (int i = 0; i < stations.size(); i++){
+            stations.get(i).addChargers(chargersByStation.get(i));
+        }
+        company.addChargingStations(stations);
+
+        company.addElectricVehicles(read(vehiclesFile, VEHICLES, in -> readVehicle(in, company)));
+        return company;
+    }
+
+    /**
+     * Writes the stations, the chargers and the fleet of a company in files that {@link #load(String)}
+     * reads. The vehicles are written with their current location and their battery capacity.
+     * @param company The company.
+     * @param format The format of the files.
+     * @param stationsFile The path of the file of the stations, which is created or overwritten.
+     * @param chargersFile The path of the file of the chargers, which is created or overwritten.
+     * @param vehiclesFile The path of the file of the vehicles, which is created or overwritten.
+     * @throws IOException If a file cannot be written, or a string to write in CSV has a line break.
+     */
+    public static void write(EVCompany company, ScenarioFormat format, Path stationsFile, Path chargersFile, Path vehiclesFile) throws IOException
+    {
+        List<ChargingStation> stations = company.getCityStations();
+        try (Output out = new Output(stationsFile, format, STATIONS, stations.size())){
+            for (ChargingStation station : stations){
+                out.putString(station.getId());
+                out.putString(station.getCity());
+                out.putInt(station.getLocation().getX());
+                out.putInt(station.getLocation().getY());
+                out.endRow();
+            }
+        }
+
+        int numChargers = 0;
+        for (ChargingStation station : stations){
+            numChargers += station.getChargers().size();
+        }
+        try (Output out = new Output(chargersFile, format, CHARGERS, numChargers)){
+            for (ChargingStation station : stations){
+                for (Charger charger : station.getChargers()){
+                    out.putString(station.getId());
+                    out.putString(charger.getId());
+                    out.putInt(charger.getChargingSpeed());
+                    out.putFloat(charger.getChargingFee());
+                    out.endRow();
+                }
+            }
+        }
+
+        List<ElectricVehicle> vehicles = company.getVehicles();
+        try (Output out = new Output(vehiclesFile, format, VEHICLES, vehicles.size())){
+            for (ElectricVehicle vehicle : vehicles){
+                out.putString(vehicle.getName());
+                out.putString(vehicle.getPlate());
+                out.putInt(vehicle.getLocation().getX());
+                out.putInt(vehicle.getLocation().getY());
+                out.putInt(vehicle.getTargetLocation().getX());
+                out.putInt(vehicle.getTargetLocation().getY());
+                out.putInt(vehicle.getBatteryCapacity());
+                out.endRow();
+            }
+        }
+    }
+
+    /**
+     * Reads the rows of a file, parsing its chunks in parallel if the loader is parallel.
+     * @return The rows, in file order.
+     */
+    private <T> List<T> read(Path file, int kind, RowReader<T> reader) throws IOException
+    {
+        int chunkSize = csvChunk;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            long size = channel.size();
+            ByteBuffer start = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(start, 0);
+            boolean binary = start.position() == 4 && start.getInt(0) == MAGIC;
+
+            long[] offsets;
+            int count;
+            if (binary){
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, 20));
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                if (header.capacity() < 20 || header.getInt(4) != FORMAT || header.getInt(8) != kind || header.getInt(12) < 0){
+                    throw new IOException("Not a binary file of " + HEADERS[kind] + ": " + file);
+                }
+                count = header.getInt(12);
+                int numChunks = header.getInt(16);
+                if (numChunks != (count + BINARY_CHUNK - 1) / BINARY_CHUNK || size < 20 + 8L * (numChunks + 1)){
+                    throw new IOException("Corrupt binary file, bad chunks: " + file);
+                }
+                MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 20, 8L * (numChunks + 1));
+                table.order(ByteOrder.LITTLE_ENDIAN);
+                offsets = new long[numChunks + 1];
+                for (int chunk = 0; chunk <= numChunks; chunk++){
+                    offsets[chunk] = table.getLong(8 * chunk);
+                    long previous = chunk == 0 ? 20 + 8L * (numChunks + 1) : offsets[chunk - 1];
+                    if (offsets[chunk] < previous || offsets[chunk] > size || offsets[chunk] - previous > Integer.MAX_VALUE){
+                        throw new IOException("Corrupt binary file, bad offset: " + file);
+                    }
+                }
+            }
+            else{
+                Input.csv(channel, file, size, chunkSize, 0).checkHeader(HEADERS[kind]);
+                offsets = null;
+                count = 0;
+            }
+
+            int numChunks = binary ? offsets.length - 1 : (int) ((size + chunkSize - 1) / chunkSize);
+            List<List<T>> chunks = new ArrayList<List<T>>(Collections.nCopies(numChunks, (List<T>) null));
+            IntStream range = IntStream.range(0, numChunks);
+            try{
+                (parallel ? range.parallel() : range).forEach(chunk -> {
+                    try{
+                        Input in = binary ? Input.binary(channel, file, offsets[chunk], offsets[chunk + 1],
+                                                         Math.min(BINARY_CHUNK, count - chunk * BINARY_CHUNK))
+                                          : Input.csv(channel, file, size, chunkSize, chunk);
+                        chunks.set(chunk, readChunk(in, reader));
+                    }
+                    catch (IOException e){
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            catch (UncheckedIOException e){
+                throw e.getCause();
+            }
+
+            int total = 0;
+            for (List<T> rows : chunks){
+                total += rows.size();
+            }
+            List<T> rows = new ArrayList<T>(total);
+            for (List<T> chunk : chunks){
+                rows.addAll(chunk);
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Reads the rows of a chunk.
+     */
+    private static <T> List<T> readChunk(Input in, RowReader<T> reader) throws IOException
+    {
+        List<T> rows = new ArrayList<T>();
+        while (in.hasRow()){
+            try{
+                rows.add(reader.read(in));
+            }
+            catch (IllegalArgumentException e){
+                throw in.malformed(e.getMessage());
+            }
+        }
+        return rows;
+    }
+
+    private static ChargingStation readStation(Input in) throws IOException
+    {
+        String id = in.readString(false);
+        String city = in.readString(false);
+        int x = in.readInt(false);
+        int y = in.readInt(true);
+        return new ChargingStation(city, id, location(in, x, y));
+    }
+
+    private static ChargerRow readCharger(Input in, Map<String, Integer> stationsById) throws IOException
+    {
+        String station = in.readString(false);
+        String id = in.readString(false);
+        int speed = in.readInt(false);
+        float fee = in.readFloat(true);
+        Integer index = stationsById.get(station);
+        if (index == null){
+            throw in.malformed("unknown station " + station);
+        }
+        return new ChargerRow(index, new Charger(id, speed, fee));
+    }
+
+    private static ElectricVehicle readVehicle(Input in, EVCompany company) throws IOException
+    {
+        String name = in.readString(false);
+        String plate = in.readString(false);
+        int x = in.readInt(false);
+        int y = in.readInt(false);
+        int targetX = in.readInt(false);
+        int targetY = in.readInt(false);
+        int batteryCapacity = in.readInt(true);
+        if (batteryCapacity <= 0){
+            throw in.malformed("battery capacity " + batteryCapacity);
+        }
+        return new ElectricVehicle(company, location(in, x, y), location(in, targetX, targetY), name, plate, batteryCapacity);
+    }
+
+    /**
+     * @return The location with the given coordinates.
+     * @throws IOException If a coordinate is negative.
+     */
+    private static Location location(Input in, int x, int y) throws IOException
+    {
+        if (x < 0 || y < 0){
+            throw in.malformed("location (" + x + ", " + y + ")");
+        }
+        return Location.of(x, y);
+    }
+
+    /**
+     * Builds one object from the fields of a row.
+     */
+    private interface RowReader<T>
+    {
+        T read(Input in) throws IOException;
+    }
+
+    /**
+     * A charger read from a file, with the position of its station in the file of the stations.
+     */
+    private static class ChargerRow
+    {
+        private int station;
+        private Charger charger;
+
+        private ChargerRow(int station, Charger charger)
+        {
+            this.station = station;
+            this.charger = charger;
+        }
+    }
+
+    /**
+     * The fields of the rows of a mapped chunk of a file, CSV or binary.
+     */
+    private static class Input
+    {
+        /** Number of fields whose last string is remembered. */
+        private static final int FIELDS = 8;
+
+        private Path file;
+        private boolean binary;
+        private ByteBuffer buffer;
+        /** Position in the file of the first byte of the buffer. */
+        private long base;
+        private int position;
+        private int limit;
+        /** Whether the limit of the buffer is the end of the file. */
+        private boolean endOfFile;
+        /** Position after which no CSV row of the chunk starts. */
+        private int chunkEnd;
+        /** Number of binary rows left in the chunk. */
+        private int rowsLeft;
+        /** Field of the row read next. */
+        private int field;
+        private byte[] scratch = new byte[64];
+        /** The last string of every field, with its bytes. */
+        private String[] lastStrings = new String[FIELDS];
+        private byte[][] lastBytes = new byte[FIELDS][];
+
+        private Input(Path file, boolean binary, FileChannel channel, long from, long to) throws IOException
+        {
+            this.file = file;
+            this.binary = binary;
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from).order(ByteOrder.LITTLE_ENDIAN);
+            this.base = from;
+            this.limit = (int) (to - from);
+        }
+
+        /**
+         * @return The input of a chunk of a CSV file, at the first row that starts in it. The first
+         * chunk starts at the header line.
+         */
+        private static Input csv(FileChannel channel, Path file, long size, int chunkSize, int chunk) throws IOException
+        {
+            long start = (long) chunk * chunkSize;
+            long from = Math.max(0, start - 1);
+            long to = Math.min(size, start + chunkSize + MAX_LINE);
+            Input in = new Input(file, false, channel, from, to);
+            in.endOfFile = to == size;
+            in.position = (int) (start - from);
+            in.chunkEnd = (int) (Math.min(size, start + chunkSize) - from);
+            if (chunk > 0 && in.buffer.get(in.position - 1) != '\n'){
+                in.skipLine();
+            }
+            return in;
+        }
+
+        /**
+         * @return The input of a chunk of a binary file.
+         */
+        private static Input binary(FileChannel channel, Path file, long from, long to, int rows) throws IOException
+        {
+            Input in = new Input(file, true, channel, from, to);
+            in.endOfFile = true;
+            in.rowsLeft = rows;
+            return in;
+        }
+
+        /**
+         * Checks the header line of a CSV file, and skips it.
+         * @throws IOException If it is not the given one.
+         */
+        private void checkHeader(String header) throws IOException
+        {
+            int start = position;
+            skipLine();
+            int end = position;
+            while (end > start && (buffer.get(end - 1) == '\n' || buffer.get(end - 1) == '\r')){
+                end--;
+            }
+            if (!header.equals(decode(start, end - start, 0))){
+                throw new IOException("Not a CSV file of " + header + ": " + file);
+            }
+        }
+
+        /**
+         * Moves to the next row, skipping the empty lines of a CSV file.
+         * @return Whether or not the chunk has another row.
+         */
+        private boolean hasRow() throws IOException
+        {
+            field = 0;
+            if (binary){
+                return rowsLeft-- > 0;
+            }
+            if (base + position == 0){
+                skipLine();
+            }
+            while (position < chunkEnd){
+                byte next = buffer.get(position);
+                if (next != '\n' && next != '\r'){
+                    return true;
+                }
+                position++;
+            }
+            return false;
+        }
+
+        private int readInt(boolean last) throws IOException
+        {
+            field++;
+            if (binary){
+                ensure(4);
+                position += 4;
+                return buffer.getInt(position - 4);
+            }
+            boolean negative = peek() == '-';
+            if (negative){
+                position++;
+            }
+            long value = 0;
+            int digits = 0;
+            for (int next = peek(); next >= '0' && next <= '9'; next = peek()){
+                value = value * 10 + (next - '0');
+                if (value > 1L << 31){
+                    throw malformed("number, too large");
+                }
+                position++;
+                digits++;
+            }
+            if (digits == 0 || (!negative && value > Integer.MAX_VALUE)){
+                throw malformed("integer");
+            }
+            separator(last);
+            return (int) (negative ? -value : value);
+        }
+
+        private float readFloat(boolean last) throws IOException
+        {
+            field++;
+            if (binary){
+                ensure(4);
+                position += 4;
+                return buffer.getFloat(position - 4);
+            }
+            boolean negative = peek() == '-';
+            if (negative){
+                position++;
+            }
+            long mantissa = 0;
+            int exponent = 0;
+            int digits = 0;
+            boolean point = false;
+            for (int next = peek(); (next >= '0' && next <= '9') || (next == '.' && !point); next = peek()){
+                position++;
+                if (next == '.'){
+                    point = true;
+                }
+                else if (mantissa < 100_000_000_000_000_000L){
+                    mantissa = mantissa * 10 + (next - '0');
+                    exponent -= point ? 1 : 0;
+                    digits++;
+                }
+                else{
+                    exponent += point ? 0 : 1;
+                    digits++;
+                }
+            }
+            if (digits == 0){
+                throw malformed("decimal number");
+            }
+            if (peek() == 'e' || peek() == 'E'){
+                position++;
+                exponent += readExponent();
+            }
+            separator(last);
+            double value = exponent >= 0 ? mantissa * Math.pow(10, exponent) : mantissa / Math.pow(10, -exponent);
+            return (float) (negative ? -value : value);
+        }
+
+        private int readExponent() throws IOException
+        {
+            boolean negative = peek() == '-';
+            if (negative || peek() == '+'){
+                position++;
+            }
+            int value = 0;
+            int digits = 0;
+            for (int next = peek(); next >= '0' && next <= '9'; next = peek()){
+                value = Math.min(1000, value * 10 + (next - '0'));
+                position++;
+                digits++;
+            }
+            if (digits == 0){
+                throw malformed("exponent");
+            }
+            return negative ? -value : value;
+        }
+
+        private String readString(boolean last) throws IOException
+        {
+            int index = field++;
+            int start;
+            int length;
+            if (binary){
+                ensure(4);
+                length = buffer.getInt(position);
+                if (length < 0){
+                    throw malformed("string length " + length);
+                }
+                position += 4;
+                ensure(length);
+                start = position;
+                position += length;
+            }
+            else{
+                start = position;
+                boolean quoted = peek() == '"';
+                if (quoted){
+                    skipQuoted();
+                }
+                else{
+                    for (int next = peek(); next != ',' && next != '\n' && next != '\r' && next != -1; next = peek()){
+                        if (next == '"'){
+                            throw malformed("string, quote in an unquoted field");
+                        }
+                        position++;
+                    }
+                }
+                length = position - start;
+                separator(last);
+                if (quoted){
+                    return decodeQuoted(start, length, index);
+                }
+            }
+            return decode(start, length, index);
+        }
+
+        /**
+         * Moves past a CSV field between double quotes, whose double quotes are doubled.
+         * @throws IOException If the field has a line break or no closing quote.
+         */
+        private void skipQuoted() throws IOException
+        {
+            position++;
+            while (true){
+                int next = peek();
+                if (next == '\n' || next == '\r' || next == -1){
+                    throw malformed("string, unterminated quote");
+                }
+                position++;
+                if (next == '"'){
+                    if (peek() != '"'){
+                        return;
+                    }
+                    position++;
+                }
+            }
+        }
+
+        /**
+         * @return The string of the given bytes of the buffer, which is not decoded again if it is the
+         * same as the last one of the field.
+         */
+        private String decode(int start, int length, int index)
+        {
+            if (index < FIELDS){
+                byte[] last = lastBytes[index];
+                if (last != null && last.length == length && sameBytes(start, last)){
+                    return lastStrings[index];
+                }
+            }
+            if (scratch.length < length){
+                scratch = new byte[Math.max(length, 2 * scratch.length)];
+            }
+            buffer.get(start, scratch, 0, length);
+            String string = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            if (index < FIELDS){
+                lastBytes[index] = Arrays.copyOf(scratch, length);
+                lastStrings[index] = string;
+            }
+            return string;
+        }
+
+        /**
+         * @return The string of a CSV field between double quotes, without them and with its doubled
+         * double quotes as one. It is not decoded again if the field is the same as the last one.
+         */
+        private String decodeQuoted(int start, int length, int index)
+        {
+            if (index < FIELDS){
+                byte[] last = lastBytes[index];
+                if (last != null && last.length == length && sameBytes(start, last)){
+                    return lastStrings[index];
+                }
+            }
+            if (scratch.length < length){
+                scratch = new byte[Math.max(length, 2 * scratch.length)];
+            }
+            buffer.get(start, scratch, 0, length);
+            if (index < FIELDS){
+                lastBytes[index] = Arrays.copyOf(scratch, length);
+            }
+            int unquoted = 0;
+            for (int i = 1; i < length - 1; i++){
+                scratch[unquoted++] = scratch[i];
+                if (scratch[i] == '"'){
+                    i++;
+                }
+            }
+            String string = new String(scratch, 0, unquoted, StandardCharsets.UTF_8);
+            if (index < FIELDS){
+                lastStrings[index] = string;
+            }
+            return string;
+        }
+
+        /**
+         * @return Whether or not the buffer has the given bytes at the given position.
+         */
+        private boolean sameBytes(int start, byte[] bytes)
+        {
+            for (int i = 0; i < bytes.length; i++){
+                if (buffer.get(start + i) != bytes[i]){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return The next byte of a CSV file, or -1 at the end of the file.
+         * @throws IOException If the line does not fit in the mapped chunk.
+         */
+        private int peek() throws IOException
+        {
+            if (position < limit){
+                return buffer.get(position);
+            }
+            if (!endOfFile){
+                throw malformed("line, longer than " + MAX_LINE + " bytes");
+            }
+            return -1;
+        }
+
+        /**
+         * Skips the comma after a CSV field, or the end of the line after the last field of a row.
+         */
+        private void separator(boolean last) throws IOException
+        {
+            int next = peek();
+            if (!last){
+                if (next != ','){
+                    throw malformed("row, missing fields");
+                }
+                position++;
+                return;
+            }
+            if (next == '\r'){
+                position++;
+                next = peek();
+            }
+            if (next == '\n'){
+                position++;
+            }
+            else if (next != -1){
+                throw malformed("row, too many fields");
+            }
+        }
+
+        /**
+         * Moves to the start of the next CSV line.
+         */
+        private void skipLine() throws IOException
+        {
+            for (int next = peek(); next != '\n' && next != -1; next = peek()){
+                position++;
+            }
+            if (position < limit){
+                position++;
+            }
+        }
+
+        /**
+         * @throws IOException If the chunk has less than the given number of bytes left.
+         */
+        private void ensure(int bytes) throws IOException
+        {
+            if (limit - position < bytes){
+                throw malformed("record, truncated");
+            }
+        }
+
+        /**
+         * @return An exception for a wrong record at the current position.
+         */
+        private IOException malformed(String what)
+        {
+            return new IOException("Malformed " + what + " at byte " + (base + position) + " of " + file);
+        }
+    }
+
+    /**
+     * Writes the rows of a CSV or binary file. The binary rows are buffered and the offsets of their
+     * chunks are written in the header when the file is closed.
+     */
+    private static class Output implements AutoCloseable
+    {
+        private Writer writer;
+        private boolean firstField;
+
+        private FileChannel channel;
+        private ByteBuffer buffer;
+        private long position;
+        private int rows;
+        private long[] offsets;
+
+        private Output(Path file, ScenarioFormat format, int kind, int count) throws IOException
+        {
+            if (format == ScenarioFormat.CSV){
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                writer.write(HEADERS[kind]);
+                writer.write('\n');
+                firstField = true;
+            }
+            else{
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                           StandardOpenOption.TRUNCATE_EXISTING);
+                offsets = new long[(count + BINARY_CHUNK - 1) / BINARY_CHUNK + 1];
+                buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC);
+                buffer.putInt(FORMAT);
+                buffer.putInt(kind);
+                buffer.putInt(count);
+                buffer.putInt(offsets.length - 1);
+                for (int i = 0; i < offsets.length; i++){
+                    buffer.putLong(0);
+                }
+                position = buffer.position();
+            }
+        }
+
+        private void putString(String value) throws IOException
+        {
+            if (writer != null){
+                if (value.indexOf('\n') != -1 || value.indexOf('\r') != -1){
+                    throw new IOException("Cannot write a line break in CSV: " + value);
+                }
+                if (value.indexOf(',') != -1 || value.indexOf('"') != -1){
+                    value = '"' + value.replace("\"", "\"\"") + '"';
+                }
+                field(value);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length);
+            if (bytes.length > buffer.capacity()){
+                ByteBuffer large = ByteBuffer.wrap(bytes);
+                while (large.hasRemaining()){
+                    channel.write(large);
+                }
+            }
+            else{
+                buffer.put(bytes);
+            }
+            position += bytes.length;
+        }
+
+        private void putInt(int value) throws IOException
+        {
+            if (writer != null){
+                field(Integer.toString(value));
+                return;
+            }
+            ensure(4);
+            buffer.putInt(value);
+            position += 4;
+        }
+
+        private void putFloat(float value) throws IOException
+        {
+            if (writer != null){
+                field(Float.toString(value));
+                return;
+            }
+            ensure(4);
+            buffer.putFloat(value);
+            position += 4;
+        }
+
+        private void endRow() throws IOException
+        {
+            if (writer != null){
+                writer.write('\n');
+                firstField = true;
+                return;
+            }
+            rows++;
+            if (rows % BINARY_CHUNK == 0){
+                offsets[rows / BINARY_CHUNK] = position;
+            }
+        }
+
+        private void field(String value) throws IOException
+        {
+            if (!firstField){
+                writer.write(',');
+            }
+            writer.write(value);
+            firstField = false;
+        }
+
+        /**
+         * Writes the buffer if it has less than the given number of bytes left.
+         */
+        private void ensure(int bytes) throws IOException
+        {
+            if (buffer.remaining() < bytes){
+                buffer.flip();
+                while (buffer.hasRemaining()){
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (writer != null){
+                writer.close();
+                return;
+            }
+            try{
+                ensure(buffer.capacity());
+                offsets[offsets.length - 1] = position;
+                offsets[0] = 20 + 8L * offsets.length;
+                ByteBuffer table = ByteBuffer.allocate(8 * offsets.length).order(ByteOrder.LITTLE_ENDIAN);
+                for (long offset : offsets){
+                    table.putLong(offset);
+                }
+                table.flip();
+                for (long at = 20; table.hasRemaining(); ){
+                    at += channel.write(table, at);
+                }
+            }
+            finally{
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that a scenario written with {@link ScenarioLoader#write(EVCompany, ScenarioFormat, Path, Path, Path)}
+ * is loaded back as the same company, in both formats.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class ScenarioLoaderTest
+{
+    /** Number of bytes of the CSV chunks of the loader. */
+    private static final int CSV_CHUNK = ScenarioLoader.csvChunk;
+
+    private EVCompany company;
+    private Path stationsFile;
+    private Path chargersFile;
+    private Path vehiclesFile;
+
+    /**
+     * Default constructor for test class ScenarioLoaderTest.
+     */
+    public ScenarioLoaderTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture: a generated company, and the paths of its files.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        ScenarioGenerator generator = new ScenarioGenerator(3, 500, 500);
+        generator.setNumVehicles(10000);
+        generator.setNumStations(300);
+        generator.setNumChargersPerStation(3);
+        company = generator.generate("Loader test");
+        stationsFile = Files.createTempFile("stations", ".dat");
+        chargersFile = Files.createTempFile("chargers", ".dat");
+        vehiclesFile = Files.createTempFile("vehicles", ".dat");
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        ScenarioLoader.csvChunk = CSV_CHUNK;
+        Files.deleteIfExists(stationsFile);
+        Files.deleteIfExists(chargersFile);
+        Files.deleteIfExists(vehiclesFile);
+    }
+
+    /**
+     * Test that a CSV scenario is loaded as the company it was written from.
+     */
+    @Test
+    public void testCsvRoundTrip() throws IOException
+    {
+        ScenarioLoader.write(company, ScenarioFormat.CSV, stationsFile, chargersFile, vehiclesFile);
+        assertEquals(describe(company), describe(new ScenarioLoader(stationsFile, chargersFile, vehiclesFile).load("Loader test")));
+    }
+
+    /**
+     * Test that a binary scenario is loaded as the company it was written from, in parallel or not.
+     */
+    @Test
+    public void testBinaryRoundTrip() throws IOException
+    {
+        ScenarioLoader.write(company, ScenarioFormat.BINARY, stationsFile, chargersFile, vehiclesFile);
+        ScenarioLoader loader = new ScenarioLoader(stationsFile, chargersFile, vehiclesFile);
+        assertEquals(describe(company), describe(loader.load("Loader test")));
+        loader.setParallel(false);
+        assertEquals(describe(company), describe(loader.load("Loader test")));
+    }
+
+    /**
+     * Test that a CSV scenario cut in many small chunks, whose boundaries fall anywhere in the lines,
+     * is loaded as the company it was written from, in parallel or not.
+     */
+    @Test
+    public void testCsvChunkBoundaries() throws IOException
+    {
+        ScenarioGenerator generator = new ScenarioGenerator(5, 100, 100);
+        generator.setNumVehicles(300);
+        generator.setNumStations(30);
+        generator.setNumChargersPerStation(2);
+        company = generator.generate("Loader test");
+        ScenarioLoader.write(company, ScenarioFormat.CSV, stationsFile, chargersFile, vehiclesFile);
+        ScenarioLoader loader = new ScenarioLoader(stationsFile, chargersFile, vehiclesFile);
+        int[] chunks = {1, 7, 41, 4096};
+        for (int chunk : chunks){
+            ScenarioLoader.csvChunk = chunk;
+            assertEquals(describe(company), describe(loader.load("Loader test")));
+        }
+        loader.setParallel(false);
+        ScenarioLoader.csvChunk = 41;
+        assertEquals(describe(company), describe(loader.load("Loader test")));
+    }
+
+    /**
+     * Test that strings with commas and double quotes are loaded back from CSV as they were.
+     */
+    @Test
+    public void testCsvQuotedStrings() throws IOException
+    {
+        company = new EVCompany("Loader test");
+        ChargingStation station = new ChargingStation("Las Palmas, \"GC\"", "ST,1", new Location(3, 4));
+        station.addCharger(new Charger("\"", 20, 0.3f));
+        company.addChargingStation(station);
+        company.addElectricVehicle(new ElectricVehicle(company, new Location(1, 1), new Location(9, 9), "EV \"one\", the first", ",", 100));
+        company.addElectricVehicle(new ElectricVehicle(company, new Location(2, 2), new Location(8, 8), "\"\"", "\"A,B\"", 80));
+        ScenarioLoader.write(company, ScenarioFormat.CSV, stationsFile, chargersFile, vehiclesFile);
+        ScenarioLoader.csvChunk = 5;
+        assertEquals(describe(company), describe(new ScenarioLoader(stationsFile, chargersFile, vehiclesFile).load("Loader test")));
+    }
+
+    /**
+     * Test that a string with a line break is not written in CSV.
+     */
+    @Test(expected = IOException.class)
+    public void testCsvLineBreakIsRejected() throws IOException
+    {
+        company.addElectricVehicle(new ElectricVehicle(company, new Location(1, 1), new Location(9, 9), "EV\n2", "2BBB", 100));
+        ScenarioLoader.write(company, ScenarioFormat.CSV, stationsFile, chargersFile, vehiclesFile);
+    }
+
+    /**
+     * Test that a CSV row with a wrong number is rejected.
+     */
+    @Test(expected = IOException.class)
+    public void testMalformedCsvIsRejected() throws IOException
+    {
+        ScenarioLoader.write(company, ScenarioFormat.CSV, stationsFile, chargersFile, vehiclesFile);
+        Files.write(vehiclesFile, "name,plate,x,y,targetX,targetY,batteryCapacity\r\nEV1,1AAA,3,4,5,x6,100\r\n".getBytes(StandardCharsets.UTF_8));
+        new ScenarioLoader(stationsFile, chargersFile, vehiclesFile).load("Loader test");
+    }
+
+    /**
+     * @return The information of every vehicle and every station of a company, with their chargers.
+     */
+    private static String describe(EVCompany company)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (ElectricVehicle vehicle : company.getVehicles()){
+            builder.append(vehicle.getName()).append(" | ").append(vehicle).append('\n');
+        }
+        for (ChargingStation station : company.getCityStations()){
+            builder.append(station.getCompleteInfo()).append('\n');
+        }
+        return builder.toString();
+    }
+}
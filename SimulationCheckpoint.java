@@ -0,0 +1,600 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * A checkpoint of a simulation: the whole state of an {@link EVCompany} (its vehicles, its stations,
+ * their chargers and the {@link RechargeLedger} of every charger) together with the order in which the
+ * vehicles act and the next step to run, so a long run can be stopped and resumed later.
+ *
+ * The checkpoint is written to a compact binary file through memory-mapped windows of a
+ * {@link FileChannel}: the size of every part of the file is calculated first, and then every field
+ * is put straight into the mapped pages, with no intermediate buffers or object streams. The vehicles
+ * are split in chunks whose positions are kept at the beginning of the file, so the chunks are written
+ * and read in parallel. The ledgers are written as their four columns, so a recharge takes 16 bytes
+ * and the vehicle it refers to is kept by id.
+ *
+ * Reading a checkpoint rebuilds the objects directly, without replaying any step: the stations and
+ * the vehicles are registered with the bulk methods of the company, every charger gets its occupation
+ * state back, and every vehicle keeps its planned route, so the resumed run is exactly the same as
+ * the one that was stopped. The {@link QueuePolicy} of the company and the statistics of its station
+ * queues are not saved, so a checkpoint cannot be written while vehicles wait in them.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class SimulationCheckpoint
+{
+    /** First and last int of every checkpoint file. */
+    private static final int MAGIC = 0x4556434B;
+    /** Version of the format. */
+    private static final int FORMAT = 4;
+    /** Bits of the route state of a vehicle: its route has to be calculated again now, or after its next move. */
+    private static final int ROUTE_DIRTY = 1;
+    private static final int ROUTE_AFTER_MOVE = 2;
+    /** Maximum size of a mapped window of the file. */
+    private static final int WINDOW = 1 << 26;
+    /** Number of vehicles written or read together by one thread. */
+    private static final int CHUNK = 4096;
+
+    private EVCompany company;
+    private List<ElectricVehicle> fleet;
+    private int step;
+
+    /**
+     * Constructor for objects of class SimulationCheckpoint.
+     * @param company The company of the simulation.
+     * @param fleet The vehicles of the company, in the order in which they act.
+     * @param step The next step to run.
+     */
+    public SimulationCheckpoint(EVCompany company, List<ElectricVehicle> fleet, int step)
+    {
+        this.company = company;
+        this.fleet = fleet;
+        this.step = step;
+    }
+
+    /**
+     * @return The company of the simulation.
+     */
+    public EVCompany getCompany()
+    {
+        return company;
+    }
+
+    /**
+     * @return The vehicles of the company, in the order in which they act.
+     */
+    public List<ElectricVehicle> getFleet()
+    {
+        return fleet;
+    }
+
+    /**
+     * @return The next step to run.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * Writes the checkpoint to a file, which is created or overwritten. It must be called between two
+     * steps, since the chargers in use are only meaningful then.
+     * @param file The path of the file.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalArgumentException If a vehicle of the fleet is not a vehicle of the company.
+     * @throws IllegalStateException If there are vehicles waiting in the station queues, which are not saved.
+     */
+    public void write(Path file) throws IOException
+    {
+        if (company.getNumberOfWaitingVehicles() > 0){
+            throw new IllegalStateException(company.getNumberOfWaitingVehicles() + " vehicles wait in the station queues");
+        }
+        List<ElectricVehicle> vehicles = company.getVehicles();
+        Positions positions = new Positions(vehicles, company.getVehicleIdLimit());
+
+        int numChunks = (vehicles.size() + CHUNK - 1) / CHUNK;
+        long[] chunkOffsets = new long[numChunks + 1];
+        IntStream.range(0, numChunks).parallel().forEach(chunk -> chunkOffsets[chunk + 1] = chunkSize(vehicles, chunk));
+        chunkOffsets[0] = 4 * 4 + stringSize(company.getName()) + 4 + 8L * (numChunks + 1);
+        for (int chunk = 0; chunk < numChunks; chunk++){
+            chunkOffsets[chunk + 1] += chunkOffsets[chunk];
+        }
+        long tailOffset = chunkOffsets[numChunks];
+        long size = tailOffset + tailSize();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            channel.write(ByteBuffer.allocate(1), size - 1);         //sets the size, so the windows can be mapped at once
+
+            MappedOutput header = new MappedOutput(channel, 0, chunkOffsets[0]);
+            header.putInt(MAGIC);
+            header.putInt(FORMAT);
+            header.putInt(step);
+            header.putString(company.getName());
+            header.putInt(vehicles.size());
+            for (long offset : chunkOffsets){
+                header.putLong(offset);
+            }
+            header.force();
+
+            try{
+                IntStream.range(0, numChunks).parallel().forEach(chunk -> {
+                    try{
+                        writeChunk(new MappedOutput(channel, chunkOffsets[chunk], chunkOffsets[chunk + 1] - chunkOffsets[chunk]),
+                                   vehicles, chunk);
+                    }
+                    catch (IOException e){
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            catch (UncheckedIOException e){
+                throw e.getCause();
+            }
+
+            MappedOutput out = new MappedOutput(channel, tailOffset, size - tailOffset);
+            out.putInt(fleet.size());
+            for (int i = 0; i < fleet.size(); i++){
+                out.putInt(positions.of(fleet.get(i)));
+            }
+            List<ChargingStation> stations = company.getCityStations();
+            out.putInt(stations.size());
+            for (ChargingStation station : stations){
+                out.putString(station.getCity());
+                out.putString(station.getId());
+                out.putLong(station.getLocation().getPacked());
+                List<Charger> chargers = station.getChargers();
+                out.putInt(chargers.size());
+                for (Charger charger : chargers){
+                    out.putString(charger.getId());
+                    out.putInt(charger.getChargingSpeed());
+                    out.putFloat(charger.getChargingFee());
+                    out.putFloat(charger.getAmountCollected());
+                    out.putByte(charger.getChargerFree() ? 1 : 0);
+                    RechargeLedger ledger = charger.getLedger();
+                    out.putInt(ledger.size());
+                    for (int i = 0; i < ledger.size(); i++){
+                        out.putInt(ledger.getVehicleId(i));
+                        out.putInt(ledger.getStep(i));
+                        out.putInt(ledger.getKwh(i));
+                        out.putInt(ledger.getFeeFixed(i));
+                    }
+                }
+            }
+            out.putInt(MAGIC);
+            out.force();
+        }
+    }
+
+    /**
+     * Reads a checkpoint written by {@link #write(Path)}.
+     * @param file The path of the file.
+     * @return The checkpoint, with a new company in the same state as the one that was written.
+     * @throws IOException If the file cannot be read or is not a checkpoint.
+     */
+    public static SimulationCheckpoint read(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            long size = channel.size();
+            MappedInput in = new MappedInput(channel, 0, size);
+            if (size < 4 || in.getInt() != MAGIC){
+                throw new IOException("Not a checkpoint: " + file);
+            }
+            int format = in.getInt();
+            if (format != FORMAT){
+                throw new IOException("Unknown checkpoint format " + format + ": " + file);
+            }
+            int step = in.getInt();
+            EVCompany company = new EVCompany(in.getString());
+
+            ElectricVehicle[] vehicles = new ElectricVehicle[in.getCount()];
+            byte[] routeStates = new byte[vehicles.length];
+            int numChunks = (vehicles.length + CHUNK - 1) / CHUNK;
+            long[] chunkOffsets = new long[numChunks + 1];
+            for (int chunk = 0; chunk <= numChunks; chunk++){
+                chunkOffsets[chunk] = in.getLong();
+                if (chunkOffsets[chunk] < in.position() || chunkOffsets[chunk] > size
+                    || (chunk > 0 && chunkOffsets[chunk] < chunkOffsets[chunk - 1])){
+                    throw new IOException("Corrupt checkpoint, bad offset: " + file);
+                }
+            }
+            try{
+                IntStream.range(0, numChunks).parallel().forEach(chunk -> {
+                    try{
+                        readChunk(new MappedInput(channel, chunkOffsets[chunk], chunkOffsets[chunk + 1] - chunkOffsets[chunk]),
+                                  company, vehicles, routeStates, chunk);
+                    }
+                    catch (IOException e){
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            catch (UncheckedIOException e){
+                throw e.getCause();
+            }
+
+            in = new MappedInput(channel, chunkOffsets[numChunks], size - chunkOffsets[numChunks]);
+            int fleetSize = in.getCount();
+            List<ElectricVehicle> fleet = new ArrayList<ElectricVehicle>(Math.min(fleetSize, vehicles.length));
+            for (int i = 0; i < fleetSize; i++){
+                fleet.add(vehicle(vehicles, in.getInt()));
+            }
+
+            int numStations = in.getCount();
+            List<ChargingStation> stations = new ArrayList<ChargingStation>();
+            for (int s = 0; s < numStations; s++){
+                String city = in.getString();
+                String id = in.getString();
+                ChargingStation station = new ChargingStation(city, id, Location.of(in.getLong()));
+                int numChargers = in.getCount();
+                List<Charger> chargers = new ArrayList<Charger>();
+                for (int c = 0; c < numChargers; c++){
+                    Charger charger = new Charger(in.getString(), in.getInt(), in.getFloat());
+                    charger.setAmountCollected(in.getFloat());
+                    charger.setChargerFree(in.getByte() != 0);
+                    int numRecharged = in.getCount();
+                    RechargeLedger ledger = new RechargeLedger();
+                    for (int r = 0; r < numRecharged; r++){
+                        ledger.addFixed(in.getInt(), in.getInt(), in.getInt(), in.getInt());
+                    }
+                    charger.setLedger(ledger);
+                    chargers.add(charger);
+                }
+                station.addChargers(chargers);
+                stations.add(station);
+            }
+            if (in.getInt() != MAGIC){
+                throw new IOException("Corrupt checkpoint: " + file);
+            }
+
+            company.addChargingStations(stations);
+            company.addElectricVehicles(Arrays.asList(vehicles));
+            for (int i = 0; i < vehicles.length; i++){
+                vehicles[i].restoreRoute((routeStates[i] & ROUTE_DIRTY) != 0, (routeStates[i] & ROUTE_AFTER_MOVE) != 0);
+            }
+            return new SimulationCheckpoint(company, fleet, step);
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException e){
+            throw new IOException("Corrupt checkpoint: " + file, e);
+        }
+    }
+
+    /**
+     * Writes the vehicles of a chunk.
+     */
+    private static void writeChunk(MappedOutput out, List<ElectricVehicle> vehicles, int chunk) throws IOException
+    {
+        int end = Math.min(vehicles.size(), (chunk + 1) * CHUNK);
+        for (int i = chunk * CHUNK; i < end; i++){
+            ElectricVehicle vehicle = vehicles.get(i);
+            out.putInt(vehicle.getId());
+            out.putString(vehicle.getPlate());
+            out.putString(vehicle.getName());
+            out.putInt(vehicle.getBatteryCapacity());
+            out.putInt(vehicle.getBatteryLevel());
+            out.putLong(vehicle.getLocation().getPacked());
+            out.putLong(vehicle.getTargetLocation().getPacked());
+            out.putLong(vehicle.hasRechargingLocation() ? vehicle.getRechargingLocation().getPacked() : Location.NO_LOCATION);
+            out.putInt(vehicle.getArrivingStep());
+            out.putInt(vehicle.getIdleCount());
+            out.putInt(vehicle.getKwsCharged());
+            out.putInt(vehicle.getChargesCount());
+            out.putFloat(vehicle.getChargestCost());
+            out.putByte((vehicle.isRouteDirty() ? ROUTE_DIRTY : 0) | (vehicle.isReplanAfterMove() ? ROUTE_AFTER_MOVE : 0));
+        }
+        out.force();
+    }
+
+    /**
+     * Reads the vehicles of a chunk. They belong to the given company, but are not added to it yet.
+     */
+    private static void readChunk(MappedInput in, EVCompany company, ElectricVehicle[] vehicles, byte[] routeStates, int chunk)
+        throws IOException
+    {
+        int end = Math.min(vehicles.length, (chunk + 1) * CHUNK);
+        for (int i = chunk * CHUNK; i < end; i++){
+            int id = in.getInt();
+            String plate = in.getString();
+            String name = in.getString();
+            int batteryCapacity = in.getInt();
+            int batteryLevel = in.getInt();
+            Location location = Location.of(in.getLong());
+            Location target = Location.of(in.getLong());
+            long recharging = in.getLong();
+            ElectricVehicle vehicle = new ElectricVehicle(company, location, target, name, plate, batteryCapacity);
+            vehicle.setId(id);
+            vehicle.setBatteryLevel(batteryLevel);
+            vehicle.setRechargingLocation(recharging == Location.NO_LOCATION ? null : Location.of(recharging));
+            vehicle.setArrivingStep(in.getInt());
+            vehicle.setIdleCount(in.getInt());
+            vehicle.setKwsCharged(in.getInt());
+            vehicle.setChargeCount(in.getInt());
+            vehicle.setChargestCost(in.getFloat());
+            routeStates[i] = in.getByte();
+            vehicles[i] = vehicle;
+        }
+    }
+
+    /**
+     * @return The exact size in bytes of the vehicles of a chunk.
+     */
+    private static long chunkSize(List<ElectricVehicle> vehicles, int chunk)
+    {
+        long size = 0;
+        int end = Math.min(vehicles.size(), (chunk + 1) * CHUNK);
+        for (int i = chunk * CHUNK; i < end; i++){
+            ElectricVehicle vehicle = vehicles.get(i);
+            size += 4 + stringSize(vehicle.getPlate()) + stringSize(vehicle.getName()) + 2 * 4 + 3 * 8 + 4 * 4 + 4 + 1;
+        }
+        return size;
+    }
+
+    /**
+     * @return The exact size in bytes of what follows the vehicles: the fleet, the stations and the final mark.
+     */
+    private long tailSize()
+    {
+        long size = 4 + 4L * fleet.size() + 4;
+        for (ChargingStation station : company.getCityStations()){
+            size += stringSize(station.getCity()) + stringSize(station.getId()) + 8 + 4;
+            for (Charger charger : station.getChargers()){
+                size += stringSize(charger.getId()) + 4 + 4 + 4 + 1 + 4 + 16L * charger.getLedger().size();
+            }
+        }
+        return size + 4;
+    }
+
+    /**
+     * @return The number of bytes of a string in the file: its length and its characters in UTF-8,
+     * taken from the encoded bytes, as an unpaired surrogate is written as one '?'.
+     */
+    private static int stringSize(String string)
+    {
+        return 4 + string.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+
+    private static ElectricVehicle vehicle(ElectricVehicle[] vehicles, int position) throws IOException
+    {
+        if (position < 0 || position >= vehicles.length){
+            throw new IOException("Corrupt checkpoint, no vehicle " + position);
+        }
+        return vehicles[position];
+    }
+
+    /**
+     * The positions of the vehicles in the company, found by their ids. A vehicle whose id is not
+     * unique, for example one added to the list of the company by hand, is looked up by identity.
+     */
+    private static class Positions
+    {
+        private List<ElectricVehicle> vehicles;
+        private int[] byId;
+        private Map<ElectricVehicle, Integer> byIdentity;
+
+        private Positions(List<ElectricVehicle> vehicles, int idLimit)
+        {
+            this.vehicles = vehicles;
+            byId = new int[idLimit];
+            Arrays.fill(byId, -1);
+            for (int i = 0; i < vehicles.size(); i++){
+                int id = vehicles.get(i).getId();
+                if (id >= 0 && id < idLimit && byId[id] == -1){
+                    byId[id] = i;
+                }
+            }
+        }
+
+        /**
+         * @return The position of a vehicle in the company.
+         * @throws IllegalArgumentException If the vehicle is not in the company.
+         */
+        private int of(ElectricVehicle vehicle)
+        {
+            int id = vehicle.getId();
+            if (id >= 0 && id < byId.length && byId[id] != -1 && vehicles.get(byId[id]) == vehicle){
+                return byId[id];
+            }
+            if (byIdentity == null){
+                byIdentity = new IdentityHashMap<ElectricVehicle, Integer>();
+                for (int i = 0; i < vehicles.size(); i++){
+                    byIdentity.put(vehicles.get(i), i);
+                }
+            }
+            Integer position = byIdentity.get(vehicle);
+            if (position == null){
+                throw new IllegalArgumentException("Vehicle not in the company: " + vehicle.getPlate());
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Writes a region of a file through windows mapped one after another.
+     */
+    private static class MappedOutput
+    {
+        private FileChannel channel;
+        private long end;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        /**
+         * @param start The position of the region in the file.
+         * @param length The length of the region.
+         */
+        private MappedOutput(FileChannel channel, long start, long length) throws IOException
+        {
+            this.channel = channel;
+            this.end = start + length;
+            map(start);
+        }
+
+        private void map(long position) throws IOException
+        {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(WINDOW, end - position));
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * Maps the next window if the current one has less than the given number of bytes left.
+         */
+        private void ensure(int bytes) throws IOException
+        {
+            if (window.remaining() < bytes){
+                window.force();
+                map(windowStart + window.position());
+            }
+        }
+
+        private void putByte(int value) throws IOException
+        {
+            ensure(1);
+            window.put((byte) value);
+        }
+
+        private void putInt(int value) throws IOException
+        {
+            ensure(4);
+            window.putInt(value);
+        }
+
+        private void putLong(long value) throws IOException
+        {
+            ensure(8);
+            window.putLong(value);
+        }
+
+        private void putFloat(float value) throws IOException
+        {
+            ensure(4);
+            window.putFloat(value);
+        }
+
+        private void putString(String value) throws IOException
+        {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length);
+            window.put(bytes);
+        }
+
+        private void force()
+        {
+            window.force();
+        }
+    }
+
+    /**
+     * Reads a region of a file through windows mapped one after another.
+     */
+    private static class MappedInput
+    {
+        private FileChannel channel;
+        private long end;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        /**
+         * @param start The position of the region in the file.
+         * @param length The length of the region.
+         */
+        private MappedInput(FileChannel channel, long start, long length) throws IOException
+        {
+            this.channel = channel;
+            this.end = start + length;
+            map(start);
+        }
+
+        private void map(long position) throws IOException
+        {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, end - position));
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * @return The position in the file of the next byte to read.
+         */
+        private long position()
+        {
+            return windowStart + window.position();
+        }
+
+        /**
+         * Maps the next window if the current one has less than the given number of bytes left.
+         * @throws BufferUnderflowException If the region has less than the given number of bytes left.
+         */
+        private void ensure(int bytes) throws IOException
+        {
+            if (window.remaining() < bytes){
+                long position = position();
+                if (end - position < bytes){
+                    throw new BufferUnderflowException();
+                }
+                map(position);
+            }
+        }
+
+        private byte getByte() throws IOException
+        {
+            ensure(1);
+            return window.get();
+        }
+
+        private int getInt() throws IOException
+        {
+            ensure(4);
+            return window.getInt();
+        }
+
+        private long getLong() throws IOException
+        {
+            ensure(8);
+            return window.getLong();
+        }
+
+        private float getFloat() throws IOException
+        {
+            ensure(4);
+            return window.getFloat();
+        }
+
+        /**
+         * @return The next int, which must be a number of elements.
+         * @throws IOException If it is negative.
+         */
+        private int getCount() throws IOException
+        {
+            int count = getInt();
+            if (count < 0){
+                throw new IOException("Corrupt checkpoint, negative count " + count);
+            }
+            return count;
+        }
+
+        private String getString() throws IOException
+        {
+            int length = getCount();
+            ensure(length);
+            byte[] bytes = new byte[length];
+            window.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+import static org.junit.Assert.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that a simulation saved with {@link SimulationCheckpoint} in the middle of a run and
+ * resumed from the file ends exactly as the run that was not stopped.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class SimulationCheckpointTest
+{
+    private static final int STOP_STEP = 40;
+    private static final int STEPS = 120;
+
+    private EVCompany company;
+    private EVDemo demo;
+    private Path file;
+
+    /**
+     * Default constructor for test class SimulationCheckpointTest.
+     */
+    public SimulationCheckpointTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture: a generated city where the vehicles have to recharge, stepped
+     * without step information up to the step where it is saved.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        ScenarioGenerator generator = new ScenarioGenerator(7, 60, 60);
+        generator.setNumVehicles(300);
+        generator.setNumStations(6);
+        generator.setNumChargersPerStation(2);
+        generator.setBatteryCapacityRange(60, 200);
+        company = generator.generate("Checkpoint test");
+        demo = new EVDemo(company, company.getVehicles(), null);
+        demo.runSteps(0, STOP_STEP);
+        file = Files.createTempFile("checkpoint", ".bin");
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Test that the restored company is in the same state as the saved one.
+     */
+    @Test
+    public void testRestoreKeepsState() throws IOException
+    {
+        demo.checkpoint(file, STOP_STEP);
+        SimulationCheckpoint checkpoint = SimulationCheckpoint.read(file);
+
+        assertEquals(STOP_STEP, checkpoint.getStep());
+        assertEquals(company.getName(), checkpoint.getCompany().getName());
+        assertEquals(describe(company), describe(checkpoint.getCompany()));
+        assertEquals(company.getTotalRecharges(), checkpoint.getCompany().getTotalRecharges());
+        assertEquals(company.getTotalRevenue(), checkpoint.getCompany().getTotalRevenue(), 1e-6);
+        assertTrue("The scenario should recharge before the checkpoint", company.getTotalRecharges() > 0);
+    }
+
+    /**
+     * Test that the resumed run ends as the run that was not stopped.
+     */
+    @Test
+    public void testResumedRunMatchesUninterruptedRun() throws IOException
+    {
+        demo.checkpoint(file, STOP_STEP);
+        demo.runSteps(STOP_STEP, STEPS);
+
+        SimulationCheckpoint checkpoint = SimulationCheckpoint.read(file);
+        EVDemo resumed = new EVDemo(checkpoint.getCompany(), checkpoint.getFleet(), null);
+        resumed.runSteps(checkpoint.getStep(), STEPS);
+
+        assertEquals(describe(company), describe(checkpoint.getCompany()));
+        assertEquals(company.getTotalRecharges(), checkpoint.getCompany().getTotalRecharges());
+    }
+
+    /**
+     * Test that names with characters of every UTF-8 length, and with a lone surrogate, which is
+     * written as '?', are sized as they are written: the file is as long as with a '?' in its place.
+     */
+    @Test
+    public void testNamesOfEveryEncodedLength() throws IOException
+    {
+        String name = "Cáceres \u20AC \uD83D\uDE97 \uD800 end";
+        EVCompany named = new EVCompany(name);
+        ChargingStation station = new ChargingStation(name, "ST\uDC00", new Location(3, 3));
+        station.addCharger(new Charger(name, 40, 0.2f));
+        named.addChargingStation(station);
+        named.addElectricVehicle(new ElectricVehicle(named, new Location(1, 1), new Location(9, 9), name, "\uD83D0000AAA", 60));
+        new EVDemo(named, named.getVehicles(), null).checkpoint(file, 0);
+
+        SimulationCheckpoint checkpoint = SimulationCheckpoint.read(file);
+        String written = new String(name.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+        assertEquals(written, checkpoint.getCompany().getName());
+        assertEquals(written, checkpoint.getFleet().get(0).getName());
+        assertEquals("?0000AAA", checkpoint.getFleet().get(0).getPlate());
+        assertEquals("ST?", checkpoint.getCompany().getCityStations().get(0).getId());
+        assertEquals(written, checkpoint.getCompany().getCityStations().get(0).getChargers().get(0).getId());
+
+        long size = Files.size(file);
+        EVCompany replaced = new EVCompany(written);
+        ChargingStation replacedStation = new ChargingStation(written, "ST?", new Location(3, 3));
+        replacedStation.addCharger(new Charger(written, 40, 0.2f));
+        replaced.addChargingStation(replacedStation);
+        replaced.addElectricVehicle(new ElectricVehicle(replaced, new Location(1, 1), new Location(9, 9), written, "?0000AAA", 60));
+        new EVDemo(replaced, replaced.getVehicles(), null).checkpoint(file, 0);
+        assertEquals(Files.size(file), size);
+    }
+
+    /**
+     * Test that a file that is not a checkpoint is rejected.
+     */
+    @Test(expected = IOException.class)
+    public void testReadRejectsOtherFiles() throws IOException
+    {
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        SimulationCheckpoint.read(file);
+    }
+
+    /**
+     * @return The complete information of every vehicle and every station of a company, with the
+     * planned routes of the vehicles.
+     */
+    private static String describe(EVCompany company)
+    {
+        StringBuilder builder = new StringBuilder();
+        List<ElectricVehicle> vehicles = company.getVehicles();
+        for (ElectricVehicle vehicle : vehicles){
+            builder.append(vehicle.getId()).append(" | ").append(vehicle).append(" | ").append(vehicle.isRouteDirty()).append(" ").append(vehicle.isReplanAfterMove()).append('\n');
+        }
+        for (ChargingStation station : company.getCityStations()){
+            builder.append(station.getCompleteInfo());
+            for (Charger charger : station.getChargers()){
+                builder.append(charger.getChargerFree()).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,55 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Adds many elements at once to a list kept in order by a comparator, as the one-by-one
+ * registration methods of {@link EVCompany} and {@link ChargingStation} do.
+ *
+ * Those methods insert every new element before the first element that is smaller than it, so the
+ * list ends up in descending order of the comparator, and elements that compare as equal keep the
+ * order in which they were added. That is exactly a stable sort by the reversed comparator of the
+ * old elements followed by the new ones, which is what this class does: one sort instead of a
+ * linear walk and a shift per element. Large inputs are sorted in parallel; the parallel sort is
+ * stable too, so the result is the same.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class SortedBulkLoader
+{
+    /** Number of elements from which the sort is done in parallel. */
+    public static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    /**
+     * Adds the given elements to a list kept in order by a comparator.
+     * @param list The list, in the order produced by adding its elements one by one.
+     * @param added The elements to add, in the order in which they would be added one by one.
+     * @param comparator The comparator that orders the list.
+     */
+    public static <T> void addAll(List<T> list, Collection<? extends T> added, Comparator<? super T> comparator)
+    {
+        int size = list.size();
+        @SuppressWarnings("unchecked")
+        T[] all = (T[]) new Object[size + added.size()];
+        int i = 0;
+        for (T element : list){
+            all[i++] = element;
+        }
+        for (T element : added){
+            all[i++] = element;
+        }
+
+        Comparator<? super T> descending = Collections.reverseOrder(comparator);
+        if (all.length >= PARALLEL_THRESHOLD){
+            Arrays.parallelSort(all, descending);
+        }
+        else{
+            Arrays.sort(all, descending);
+        }
+
+        list.clear();
+        list.addAll(Arrays.asList(all));
+    }
+}
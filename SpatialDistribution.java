@@ -0,0 +1,30 @@
+/**
+ * Enumeration that defines how a {@link ScenarioGenerator} spreads the locations over the city.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public enum SpatialDistribution
+{
+    /** Every cell of the city is equally likely. */
+    UNIFORM ("UNIFORM"),
+    /** The locations gather around a few hot spots, with a normal spread around each one. */
+    CLUSTERED ("CLUSTERED");
+
+    /** Descriptive name of the distribution. */
+    private String name;
+
+    /**
+     * Constructor for the spatial distributions.
+     * @param name Descriptive name.
+     */
+    SpatialDistribution(String name){
+        this.name = name;
+    }
+
+    /**
+     * @return The descriptive name of the distribution.
+     */
+    public String getName(){
+        return name;
+    }
+}
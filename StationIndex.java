@@ -0,0 +1,272 @@
+import java.util.List;
+
+/**
+ * A k-d tree over the {@link Location}s of a list of {@link ChargingStation}s, used to find the
+ * best station to recharge on the way to a target without looking at every station.
+ *
+ * The best station is the one that minimizes {@code distance(from, station) + distance(station, target)}
+ * among the stations that are reachable (at most {@code reach} steps away) and not at {@code from}
+ * itself. If several stations tie, the first one of the list wins, exactly as the linear scan of
+ * {@link ElectricVehicle#calculateRechargingPosition()} used to do.
+ *
+ * The search is a branch-and-bound: every node of the tree keeps the bounding box of its stations
+ * and the smallest position in the list among them, so whole subtrees are discarded when they are
+ * out of reach or cannot beat the best station found so far. Searches do not allocate and can be
+ * run from several threads at once.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class StationIndex
+{
+    /** Value returned by the searches when no station is found. */
+    public static final int NOT_FOUND = -1;
+    /** Maximum number of stations in a leaf of the tree. */
+    private static final int BUCKET = 8;
+
+    /** The locations of the stations, in the order of the list. */
+    private Location[] locations;
+    /** Coordinates of the stations, in the order of the tree. */
+    private int[] x;
+    private int[] y;
+    /** Position in the list of every station, in the order of the tree. */
+    private int[] position;
+
+    /** Range [from, to) of stations of every node, in the order of the tree. */
+    private int[] nodeFrom;
+    private int[] nodeTo;
+    /** Children of every node, or -1 for the leaves. */
+    private int[] left;
+    private int[] right;
+    /** Bounding box of the stations of every node. */
+    private int[] minX;
+    private int[] maxX;
+    private int[] minY;
+    private int[] maxY;
+    /** Smallest position in the list among the stations of every node. */
+    private int[] minPosition;
+    private int numNodes;
+
+    /**
+     * Constructor for objects of class StationIndex.
+     * @param stations The stations to index. The positions returned by the searches refer to this list.
+     */
+    public StationIndex(List<ChargingStation> stations)
+    {
+        int size = stations.size();
+        locations = new Location[size];
+        x = new int[size];
+        y = new int[size];
+        position = new int[size];
+        for (int i = 0; i < size; i++){
+            Location location = stations.get(i).getLocation();
+            locations[i] = location;
+            x[i] = location.getX();
+            y[i] = location.getY();
+            position[i] = i;
+        }
+
+        int capacity = 2 * (size / (BUCKET / 2) + 1);
+        nodeFrom = new int[capacity];
+        nodeTo = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        minX = new int[capacity];
+        maxX = new int[capacity];
+        minY = new int[capacity];
+        maxY = new int[capacity];
+        minPosition = new int[capacity];
+        numNodes = 0;
+        if (size > 0){
+            build(0, size);
+        }
+    }
+
+    /**
+     * @return The number of indexed stations.
+     */
+    public int size()
+    {
+        return locations.length;
+    }
+
+    /**
+     * Finds the best station to recharge on the way from one location to a target.
+     * @param from The {@link Location} of the vehicle.
+     * @param target The {@link Location} the vehicle is heading to.
+     * @param reach The maximum number of steps the vehicle can move.
+     * @return The {@link Location} of the best station, or {@code null} if no station can be reached.
+     */
+    public Location findBestDetour(Location from, Location target, int reach)
+    {
+        int found = findBestDetour(from.getX(), from.getY(), target.getX(), target.getY(), reach);
+        return found == NOT_FOUND ? null : locations[found];
+    }
+
+    /**
+     * Finds the best station to recharge on the way from one point to a target.
+     * @param fromX The x coordinate of the vehicle.
+     * @param fromY The y coordinate of the vehicle.
+     * @param targetX The x coordinate the vehicle is heading to.
+     * @param targetY The y coordinate the vehicle is heading to.
+     * @param reach The maximum number of steps the vehicle can move.
+     * @return The position in the list of the best station, or {@link #NOT_FOUND}.
+     */
+    public int findBestDetour(int fromX, int fromY, int targetX, int targetY, int reach)
+    {
+        if (numNodes == 0 || reach <= 0){
+            return NOT_FOUND;
+        }
+        int direct = distance(fromX, fromY, targetX, targetY);
+        long best = search(0, fromX, fromY, targetX, targetY, reach, direct, Long.MAX_VALUE);
+        return best == Long.MAX_VALUE ? NOT_FOUND : (int) best;
+    }
+
+    /**
+     * Searches a subtree.
+     * @param node The root of the subtree.
+     * @param best The best station found so far, packed as (detour << 32) | position.
+     * @return The best station found, packed in the same way.
+     */
+    private long search(int node, int fromX, int fromY, int targetX, int targetY, int reach, int direct, long best)
+    {
+        int toBox = boxDistance(node, fromX, fromY);
+        if (toBox > reach){
+            return best;
+        }
+        int bound = Math.max(direct, toBox + boxDistance(node, targetX, targetY));
+        if (pack(bound, minPosition[node]) > best){
+            return best;
+        }
+
+        if (left[node] == -1){
+            for (int i = nodeFrom[node]; i < nodeTo[node]; i++){
+                int toStation = distance(fromX, fromY, x[i], y[i]);
+                if (toStation != 0 && toStation <= reach){
+                    long candidate = pack(toStation + distance(x[i], y[i], targetX, targetY), position[i]);
+                    if (candidate < best){
+                        best = candidate;
+                    }
+                }
+            }
+        }
+        else{
+            int first = left[node];
+            int second = right[node];
+            if (boxDistance(second, fromX, fromY) < boxDistance(first, fromX, fromY)){
+                first = right[node];
+                second = left[node];
+            }
+            best = search(first, fromX, fromY, targetX, targetY, reach, direct, best);
+            best = search(second, fromX, fromY, targetX, targetY, reach, direct, best);
+        }
+        return best;
+    }
+
+    /**
+     * Builds the subtree of the stations [from, to), splitting by the widest coordinate.
+     * @return The new node.
+     */
+    private int build(int from, int to)
+    {
+        int node = numNodes++;
+        nodeFrom[node] = from;
+        nodeTo[node] = to;
+        minX[node] = Integer.MAX_VALUE;
+        maxX[node] = Integer.MIN_VALUE;
+        minY[node] = Integer.MAX_VALUE;
+        maxY[node] = Integer.MIN_VALUE;
+        minPosition[node] = Integer.MAX_VALUE;
+        for (int i = from; i < to; i++){
+            minX[node] = Math.min(minX[node], x[i]);
+            maxX[node] = Math.max(maxX[node], x[i]);
+            minY[node] = Math.min(minY[node], y[i]);
+            maxY[node] = Math.max(maxY[node], y[i]);
+            minPosition[node] = Math.min(minPosition[node], position[i]);
+        }
+
+        if (to - from <= BUCKET){
+            left[node] = -1;
+            right[node] = -1;
+        }
+        else{
+            int middle = (from + to) >>> 1;
+            select(from, to, middle, maxX[node] - minX[node] >= maxY[node] - minY[node]);
+            left[node] = build(from, middle);
+            right[node] = build(middle, to);
+        }
+        return node;
+    }
+
+    /**
+     * Reorders the stations [from, to) so that the k-th one is in its sorted place by one coordinate,
+     * with no greater station before it and no smaller one after it.
+     * @param byX Whether the x or the y coordinate is used.
+     */
+    private void select(int from, int to, int k, boolean byX)
+    {
+        int[] key = byX ? x : y;
+        int low = from;
+        int high = to - 1;
+        while (low < high){
+            int pivot = key[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j){
+                while (key[i] < pivot){
+                    i++;
+                }
+                while (key[j] > pivot){
+                    j--;
+                }
+                if (i <= j){
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j){
+                high = j;
+            }
+            else if (k >= i){
+                low = i;
+            }
+            else{
+                return;
+            }
+        }
+    }
+
+    /**
+     * Swaps two stations in the order of the tree.
+     */
+    private void swap(int i, int j)
+    {
+        int t = x[i]; x[i] = x[j]; x[j] = t;
+        t = y[i]; y[i] = y[j]; y[j] = t;
+        t = position[i]; position[i] = position[j]; position[j] = t;
+    }
+
+    /**
+     * The Chebyshev distance from a point to the bounding box of a node, 0 if the point is inside.
+     */
+    private int boxDistance(int node, int px, int py)
+    {
+        int dx = Math.max(0, Math.max(minX[node] - px, px - maxX[node]));
+        int dy = Math.max(0, Math.max(minY[node] - py, py - maxY[node]));
+        return Math.max(dx, dy);
+    }
+
+    /**
+     * Packs a detour and a position so that the packed values compare as the (detour, position) pairs.
+     */
+    private static long pack(int detour, int position)
+    {
+        return ((long) detour << 32) | position;
+    }
+
+    /**
+     * The Chebyshev distance between two points, as {@link Location#distance(Location)}.
+     */
+    private static int distance(int x1, int y1, int x2, int y2)
+    {
+        return Math.max(Math.abs(x2 - x1), Math.abs(y2 - y1));
+    }
+}
@@ -0,0 +1,134 @@
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that the searches of a {@link StationIndex} find the same station as a linear scan of the
+ * stations, ties included, on random station sets.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class StationIndexTest
+{
+    private static final int QUERIES = 2000;
+
+    private Random random;
+
+    /**
+     * Default constructor for test class StationIndexTest.
+     */
+    public StationIndexTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        random = new Random(42);
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+    }
+
+    /**
+     * Test random stations spread over grids of several sizes.
+     */
+    @Test
+    public void testMatchesLinearScan()
+    {
+        int[] sizes = {1, 7, 8, 9, 100, 1000, 20000};
+        for (int size : sizes){
+            assertMatches(randomStations(size, 500), 500);
+        }
+    }
+
+    /**
+     * Test stations packed in a small grid, where many of them are at the same location or tie.
+     */
+    @Test
+    public void testTiesGoToTheFirstStation()
+    {
+        assertMatches(randomStations(3000, 12), 12);
+    }
+
+    /**
+     * Test that nothing is found with no stations, with no reach, or when the only station is where the vehicle is.
+     */
+    @Test
+    public void testNotFound()
+    {
+        StationIndex empty = new StationIndex(new ArrayList<ChargingStation>());
+        assertNull(empty.findBestDetour(new Location(1, 1), new Location(9, 9), 100));
+
+        List<ChargingStation> stations = new ArrayList<ChargingStation>();
+        stations.add(new ChargingStation("City", "ST0", new Location(3, 3)));
+        StationIndex index = new StationIndex(stations);
+        assertNull(index.findBestDetour(new Location(1, 1), new Location(9, 9), 0));
+        assertNull(index.findBestDetour(new Location(1, 1), new Location(9, 9), 1));
+        assertNull(index.findBestDetour(new Location(3, 3), new Location(9, 9), 100));
+        assertEquals(new Location(3, 3), index.findBestDetour(new Location(1, 1), new Location(9, 9), 2));
+    }
+
+    /**
+     * Runs random queries on the stations and checks every answer against a linear scan.
+     */
+    private void assertMatches(List<ChargingStation> stations, int gridSize)
+    {
+        StationIndex index = new StationIndex(stations);
+        assertEquals(stations.size(), index.size());
+        for (int q = 0; q < QUERIES; q++){
+            int fromX = random.nextInt(gridSize);
+            int fromY = random.nextInt(gridSize);
+            int targetX = random.nextInt(gridSize);
+            int targetY = random.nextInt(gridSize);
+            int reach = random.nextInt(gridSize);
+            assertEquals(linearScan(stations, fromX, fromY, targetX, targetY, reach),
+                         index.findBestDetour(fromX, fromY, targetX, targetY, reach));
+        }
+    }
+
+    /**
+     * The search as {@link ElectricVehicle#calculateRechargingPosition()} did it before the index:
+     * the first reachable station, not at the vehicle's location, with the shortest detour.
+     */
+    private static int linearScan(List<ChargingStation> stations, int fromX, int fromY, int targetX, int targetY, int reach)
+    {
+        Location from = new Location(fromX, fromY);
+        Location target = new Location(targetX, targetY);
+        int found = StationIndex.NOT_FOUND;
+        int optimal = Integer.MAX_VALUE;
+        for (int i = 0; i < stations.size(); i++){
+            Location station = stations.get(i).getLocation();
+            int toStation = from.distance(station);
+            int detour = toStation + station.distance(target);
+            if (detour < optimal && toStation <= reach && toStation != 0){
+                optimal = detour;
+                found = i;
+            }
+        }
+        return found;
+    }
+
+    private List<ChargingStation> randomStations(int size, int gridSize)
+    {
+        List<ChargingStation> stations = new ArrayList<ChargingStation>();
+        for (int i = 0; i < size; i++){
+            stations.add(new ChargingStation("City", "ST" + i, new Location(random.nextInt(gridSize), random.nextInt(gridSize))));
+        }
+        return stations;
+    }
+}
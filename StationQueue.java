@@ -0,0 +1,399 @@
+import java.util.Arrays;
+
+/**
+ * The vehicles waiting for a free {@link Charger} at a {@link ChargingStation}, in the order given
+ * by a {@link QueuePolicy}, together with the statistics of the queue.
+ *
+ * The queue is an indexed binary min-heap: every waiting vehicle has a priority (0 for FIFO, its
+ * battery level or the kWh it needs) and an arrival number that breaks the ties, and every vehicle
+ * keeps its own position in the heap, so adding, admitting or removing a vehicle takes O(log n) and
+ * finding out whether a vehicle is waiting takes constant time.
+ *
+ * The policy only decides which vehicle gets the next free charger. A charger is held for exactly one
+ * step, however many kWh it gives, so no policy changes how many vehicles are admitted per step.
+ *
+ * The statistics are the number of vehicles that joined and left the queue, its length on the steps
+ * on which it was not empty (sampled by {@link EVCompany} before the vehicles are admitted), and the
+ * number of steps the admitted vehicles waited.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class StationQueue
+{
+    /** Number of vehicles the heap starts with. */
+    private static final int INITIAL_CAPACITY = 8;
+
+    private QueuePolicy policy;
+    /** The heap of waiting vehicles, with their priorities, arrival numbers and arrival steps. */
+    private ElectricVehicle[] vehicles;
+    private int[] priorities;
+    private long[] arrivals;
+    private int[] arrivalSteps;
+    private int size;
+    /** Arrival number of the next vehicle that joins the queue. */
+    private long nextArrival;
+    /** Statistics of the queue. */
+    private long enqueued;
+    private long admitted;
+    private int maxLength;
+    private long lengthSum;
+    private int queuedSteps;
+    private long totalWait;
+    private int maxWait;
+
+    /**
+     * Constructor for objects of class StationQueue.
+     * @param policy The order in which the vehicles are admitted. Must not be null.
+     */
+    public StationQueue(QueuePolicy policy)
+    {
+        this.policy = policy;
+        vehicles = new ElectricVehicle[INITIAL_CAPACITY];
+        priorities = new int[INITIAL_CAPACITY];
+        arrivals = new long[INITIAL_CAPACITY];
+        arrivalSteps = new int[INITIAL_CAPACITY];
+        size = 0;
+        nextArrival = 0;
+    }
+
+    /**
+     * @return The order in which the vehicles are admitted.
+     */
+    public QueuePolicy getPolicy()
+    {
+        return policy;
+    }
+
+    /**
+     * Changes the order in which the vehicles are admitted. The statistics are kept.
+     * @param policy The new order. Must not be null.
+     * @throws IllegalStateException If there are vehicles waiting.
+     */
+    public void setPolicy(QueuePolicy policy)
+    {
+        if (size > 0){
+            throw new IllegalStateException("The policy cannot change while " + size + " vehicles wait");
+        }
+        this.policy = policy;
+    }
+
+    /**
+     * @return The number of vehicles waiting.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return Whether or not no vehicle is waiting.
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * @param vehicle A vehicle.
+     * @return Whether or not the vehicle is waiting in this queue.
+     */
+    public boolean contains(ElectricVehicle vehicle)
+    {
+        int index = vehicle.getQueueIndex();
+        return index >= 0 && index < size && vehicles[index] == vehicle;
+    }
+
+    /**
+     * @return The vehicle that will be admitted next, or null if no vehicle is waiting.
+     */
+    public ElectricVehicle peek()
+    {
+        return size == 0 ? null : vehicles[0];
+    }
+
+    /**
+     * Adds a vehicle to the queue. Its priority is taken now, since a waiting vehicle does not change.
+     * @param vehicle The vehicle.
+     * @param step The step on which the vehicle arrived.
+     * @throws IllegalArgumentException If the vehicle is already waiting in a queue.
+     */
+    public void add(ElectricVehicle vehicle, int step)
+    {
+        if (vehicle.getQueueIndex() != -1){
+            throw new IllegalArgumentException("Vehicle already waiting: " + vehicle.getPlate());
+        }
+        if (size == vehicles.length){
+            vehicles = Arrays.copyOf(vehicles, 2 * size);
+            priorities = Arrays.copyOf(priorities, 2 * size);
+            arrivals = Arrays.copyOf(arrivals, 2 * size);
+            arrivalSteps = Arrays.copyOf(arrivalSteps, 2 * size);
+        }
+        int i = size++;
+        vehicles[i] = vehicle;
+        priorities[i] = priority(vehicle);
+        arrivals[i] = nextArrival++;
+        arrivalSteps[i] = step;
+        vehicle.setQueueIndex(i);
+        siftUp(i);
+        enqueued++;
+        maxLength = Math.max(maxLength, size);
+    }
+
+    /**
+     * Removes the vehicle that has to be admitted first, and records how long it waited.
+     * @param step The step on which the vehicle is admitted.
+     * @return The vehicle, or null if no vehicle is waiting.
+     */
+    public ElectricVehicle poll(int step)
+    {
+        if (size == 0){
+            return null;
+        }
+        ElectricVehicle first = vehicles[0];
+        int wait = step - arrivalSteps[0];
+        removeAt(0);
+        admitted++;
+        totalWait += wait;
+        maxWait = Math.max(maxWait, wait);
+        return first;
+    }
+
+    /**
+     * Removes a vehicle that leaves the queue without being admitted.
+     * @param vehicle The vehicle.
+     * @return Whether or not the vehicle was waiting in this queue.
+     */
+    public boolean remove(ElectricVehicle vehicle)
+    {
+        if (!contains(vehicle)){
+            return false;
+        }
+        removeAt(vehicle.getQueueIndex());
+        return true;
+    }
+
+    /**
+     * Takes every waiting vehicle out of the queue without admitting it. The statistics are kept.
+     * Used by {@link EVCompany#clearQueues()}, which also stops visiting the station.
+     */
+    void clear()
+    {
+        for (int i = 0; i < size; i++){
+            vehicles[i].setQueueIndex(-1);
+            vehicles[i].leaveQueue();
+            vehicles[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Adds the current length to the statistics. Called by {@link EVCompany} on every step on which
+     * the queue is not empty, before its vehicles are admitted.
+     */
+    void recordLength()
+    {
+        lengthSum += size;
+        queuedSteps++;
+    }
+
+    /**
+     * @return The number of vehicles that have joined the queue.
+     */
+    public long getEnqueued()
+    {
+        return enqueued;
+    }
+
+    /**
+     * @return The number of vehicles that have been admitted to a charger.
+     */
+    public long getAdmitted()
+    {
+        return admitted;
+    }
+
+    /**
+     * @return The greatest number of vehicles that have waited at the same time.
+     */
+    public int getMaxLength()
+    {
+        return maxLength;
+    }
+
+    /**
+     * @return The number of steps on which the queue was not empty when the chargers were freed.
+     */
+    public int getQueuedSteps()
+    {
+        return queuedSteps;
+    }
+
+    /**
+     * @return The mean number of vehicles waiting on the steps on which the queue was not empty, or 0 if it never was.
+     */
+    public double getMeanLength()
+    {
+        return queuedSteps == 0 ? 0 : (double) lengthSum / queuedSteps;
+    }
+
+    /**
+     * @return The steps waited by all the admitted vehicles.
+     */
+    public long getTotalWait()
+    {
+        return totalWait;
+    }
+
+    /**
+     * @return The mean number of steps waited by the admitted vehicles, or 0 if none was admitted.
+     */
+    public double getMeanWait()
+    {
+        return admitted == 0 ? 0 : (double) totalWait / admitted;
+    }
+
+    /**
+     * @return The greatest number of steps waited by an admitted vehicle.
+     */
+    public int getMaxWait()
+    {
+        return maxWait;
+    }
+
+    /**
+     * @return A string with the policy, the vehicles waiting and the statistics of the queue.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+
+        appendInfo(builder);
+
+        return builder.toString();
+    }
+
+    /**
+     * Appends the representation given by {@link #toString()}. Used by {@link ReportWriter}.
+     * @param builder Where the representation is appended.
+     */
+    void appendInfo(StringBuilder builder)
+    {
+        builder.append(policy.getName()).append(", ");
+        builder.append(size).append(" waiting, ");
+        builder.append(enqueued).append(" queued, ");
+        builder.append(admitted).append(" admitted, length ");
+        builder.append(getMeanLength()).append(" mean ");
+        builder.append(maxLength).append(" max, wait ");
+        builder.append(getMeanWait()).append(" mean ");
+        builder.append(maxWait).append(" max");
+    }
+
+    /**
+     * @return The priority of a vehicle under the policy of the queue: the lower, the sooner it is admitted.
+     */
+    private int priority(ElectricVehicle vehicle)
+    {
+        switch (policy){
+            case LOWEST_BATTERY:
+                return vehicle.getBatteryLevel();
+            case SHORTEST_SESSION:
+                return vehicle.getBatteryCapacity() - vehicle.getBatteryLevel();
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Removes the vehicle at a position of the heap, moving the last one into its place.
+     */
+    private void removeAt(int i)
+    {
+        vehicles[i].setQueueIndex(-1);
+        int last = --size;
+        if (i != last){
+            move(last, i);
+            vehicles[last] = null;
+            if (!siftUp(i)){
+                siftDown(i);
+            }
+        }
+        else{
+            vehicles[last] = null;
+        }
+    }
+
+    /**
+     * Moves the entry at a position of the heap up while it goes before its parent.
+     * @return Whether or not the entry moved.
+     */
+    private boolean siftUp(int i)
+    {
+        int start = i;
+        while (i > 0){
+            int parent = (i - 1) >>> 1;
+            if (!before(i, parent)){
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+        return i != start;
+    }
+
+    /**
+     * Moves the entry at a position of the heap down while one of its children goes before it.
+     */
+    private void siftDown(int i)
+    {
+        int child = 2 * i + 1;
+        while (child < size){
+            if (child + 1 < size && before(child + 1, child)){
+                child++;
+            }
+            if (!before(child, i)){
+                break;
+            }
+            swap(i, child);
+            i = child;
+            child = 2 * i + 1;
+        }
+    }
+
+    /**
+     * @return Whether or not the entry at position i of the heap goes before the one at position j.
+     */
+    private boolean before(int i, int j)
+    {
+        if (priorities[i] != priorities[j]){
+            return priorities[i] < priorities[j];
+        }
+        return arrivals[i] < arrivals[j];
+    }
+
+    private void swap(int i, int j)
+    {
+        ElectricVehicle vehicle = vehicles[i];
+        int priority = priorities[i];
+        long arrival = arrivals[i];
+        int arrivalStep = arrivalSteps[i];
+        move(j, i);
+        vehicles[j] = vehicle;
+        priorities[j] = priority;
+        arrivals[j] = arrival;
+        arrivalSteps[j] = arrivalStep;
+        vehicle.setQueueIndex(j);
+    }
+
+    /**
+     * Copies the entry at position from of the heap to position to.
+     */
+    private void move(int from, int to)
+    {
+        vehicles[to] = vehicles[from];
+        priorities[to] = priorities[from];
+        arrivals[to] = arrivals[from];
+        arrivalSteps[to] = arrivalSteps[from];
+        vehicles[to].setQueueIndex(to);
+    }
+}
@@ -0,0 +1,212 @@
+import static org.junit.Assert.*;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that a {@link StationQueue} admits its vehicles in the order of its {@link QueuePolicy}, and
+ * that a congested city run with station queues ends the same with the serial, parallel and
+ * event-driven engines.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class StationQueueTest
+{
+    private static final int STEPS = 150;
+
+    private EVCompany company;
+    private ElectricVehicle[] vehicles;
+
+    /**
+     * Default constructor for test class StationQueueTest.
+     */
+    public StationQueueTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture: a company with four vehicles that need 40, 10, 30 and 10 kWh.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        company = new EVCompany("Queue test");
+        int[] needed = {40, 10, 30, 10};
+        vehicles = new ElectricVehicle[needed.length];
+        for (int i = 0; i < needed.length; i++){
+            vehicles[i] = new ElectricVehicle(company, new Location(1, 1), new Location(5, 5), "EV" + i, "000" + i + "AAA", 100);
+            vehicles[i].setBatteryLevel(100 - needed[i]);
+            company.addElectricVehicle(vehicles[i]);
+        }
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+    }
+
+    /**
+     * Test the order of admission of every policy, with ties broken by order of arrival.
+     */
+    @Test
+    public void testPolicies()
+    {
+        assertAdmissionOrder(QueuePolicy.FIFO, 0, 1, 2, 3);
+        assertAdmissionOrder(QueuePolicy.LOWEST_BATTERY, 0, 2, 1, 3);
+        assertAdmissionOrder(QueuePolicy.SHORTEST_SESSION, 1, 3, 2, 0);
+    }
+
+    /**
+     * Test removals from the middle of the heap and the wait statistics.
+     */
+    @Test
+    public void testRemoveAndStatistics()
+    {
+        StationQueue queue = new StationQueue(QueuePolicy.SHORTEST_SESSION);
+        for (int i = 0; i < vehicles.length; i++){
+            queue.add(vehicles[i], i);
+        }
+        assertTrue(queue.remove(vehicles[3]));
+        assertFalse(queue.remove(vehicles[3]));
+        assertFalse(queue.contains(vehicles[3]));
+        assertTrue(queue.contains(vehicles[2]));
+        assertEquals(3, queue.size());
+
+        assertSame(vehicles[1], queue.poll(5));
+        assertSame(vehicles[2], queue.poll(6));
+        assertSame(vehicles[0], queue.poll(10));
+        assertNull(queue.poll(10));
+        assertEquals(4, queue.getEnqueued());
+        assertEquals(3, queue.getAdmitted());
+        assertEquals(4, queue.getMaxLength());
+        assertEquals(10, queue.getMaxWait());
+        assertEquals((4 + 4 + 10) / 3.0, queue.getMeanWait(), 1e-9);
+    }
+
+    /**
+     * Test that the engines agree on a run where many vehicles wait for few chargers.
+     */
+    @Test
+    public void testEnginesAgreeWithQueues()
+    {
+        EVCompany serial = congestedCompany();
+        new EVDemo(serial, serial.getVehicles(), null).runSteps(0, STEPS);
+
+        EVCompany parallel = congestedCompany();
+        EVDemo demo = new EVDemo(parallel, parallel.getVehicles(), null);
+        ParallelStepEngine engine = new ParallelStepEngine(demo, parallel.getVehicles(), null, 2);
+        for (int step = 0; step < STEPS; step++){
+            engine.step(step);
+        }
+        engine.shutdown();
+
+        EVCompany eventDriven = congestedCompany();
+        new EventDrivenEngine(new EVDemo(eventDriven, eventDriven.getVehicles(), null), eventDriven.getVehicles()).run(0, STEPS);
+
+        long admitted = 0;
+        for (ChargingStation station : serial.getCityStations()){
+            admitted += station.getQueue() == null ? 0 : station.getQueue().getAdmitted();
+        }
+        assertTrue("The scenario should make vehicles wait", admitted > 0);
+        assertEquals(describe(serial), describe(parallel));
+        assertEquals(describe(serial), describe(eventDriven));
+    }
+
+    /**
+     * Test that clearing the queues of a company leaves no vehicle waiting, and that the vehicles
+     * can join a queue again.
+     */
+    @Test
+    public void testClearQueues()
+    {
+        EVCompany queued = congestedCompany();
+        new EVDemo(queued, queued.getVehicles(), null).runSteps(0, 20);
+        assertTrue("The scenario should make vehicles wait", queued.getNumberOfWaitingVehicles() > 0);
+        queued.clearQueues();
+        assertEquals(0, queued.getNumberOfWaitingVehicles());
+        for (ChargingStation station : queued.getCityStations()){
+            assertTrue(station.getQueue() == null || station.getQueue().isEmpty());
+        }
+        for (ElectricVehicle vehicle : queued.getVehicles()){
+            assertFalse(vehicle.isWaiting());
+        }
+        queued.setQueuePolicy(QueuePolicy.LOWEST_BATTERY);
+        new EVDemo(queued, queued.getVehicles(), null).runSteps(20, 40);
+    }
+
+    /**
+     * Test that a company cannot have both a queue policy and the columnar engine, whichever comes first.
+     */
+    @Test
+    public void testColumnarEngineIsRejected()
+    {
+        EVCompany queued = congestedCompany();
+        try{
+            new ColumnarStepEngine(new EVDemo(queued, queued.getVehicles(), null), queued.getVehicles(), queued, null);
+            fail("A columnar engine was created for a company with a queue policy");
+        }
+        catch (UnsupportedOperationException e){
+            //expected
+        }
+
+        company.setQueuePolicy(null);
+        new ColumnarStepEngine(new EVDemo(company, company.getVehicles(), null), company.getVehicles(), company, null);
+        try{
+            company.setQueuePolicy(QueuePolicy.FIFO);
+            fail("A queue policy was set on a company run by a columnar engine");
+        }
+        catch (UnsupportedOperationException e){
+            //expected
+        }
+        assertNull(company.getQueuePolicy());
+    }
+
+    private void assertAdmissionOrder(QueuePolicy policy, int... order)
+    {
+        StationQueue queue = new StationQueue(policy);
+        for (int i = 0; i < vehicles.length; i++){
+            queue.add(vehicles[i], 0);
+        }
+        for (int i = 0; i < order.length; i++){
+            assertSame(vehicles[order[i]], queue.poll(1));
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    /**
+     * @return A generated city with many vehicles and one charger per station, whose vehicles wait in FIFO queues.
+     */
+    private static EVCompany congestedCompany()
+    {
+        ScenarioGenerator generator = new ScenarioGenerator(11, 30, 30);
+        generator.setNumVehicles(400);
+        generator.setNumStations(4);
+        generator.setNumChargersPerStation(1);
+        generator.setBatteryCapacityRange(40, 120);
+        EVCompany company = generator.generate("Queue test");
+        company.setQueuePolicy(QueuePolicy.FIFO);
+        return company;
+    }
+
+    /**
+     * @return The information of every vehicle and the complete information and queue of every station of a company.
+     */
+    private static String describe(EVCompany company)
+    {
+        StringBuilder builder = new StringBuilder();
+        List<ElectricVehicle> vehicles = company.getVehicles();
+        for (ElectricVehicle vehicle : vehicles){
+            builder.append(vehicle).append(" | ").append(vehicle.isWaiting()).append('\n');
+        }
+        for (ChargingStation station : company.getCityStations()){
+            builder.append(station.getCompleteInfo()).append(station.getQueue()).append('\n');
+        }
+        return builder.toString();
+    }
+}
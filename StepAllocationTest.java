@@ -0,0 +1,209 @@
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that the steady-state step path of {@link EVDemo#step(int)} does not allocate.
+ * A city larger than the demo one is stepped once to warm everything up (classes, caches,
+ * indexes, charger lists), put back in its starting state, and stepped again a few times while the
+ * bytes allocated by the thread are measured with the {@code ThreadMXBean} of the platform.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class StepAllocationTest
+{
+    private static final int SIDE = 100;
+    private static final int NUM_STATIONS = 16;
+    private static final int NUM_CHARGERS = 3;
+    private static final int NUM_VEHICLES = 200;
+    private static final int STEPS = 150;
+    /** Number of runs before the measured ones, so the JIT has settled when the bytes are counted. */
+    private static final int WARMUP_RUNS = 3;
+    /** Number of measured runs, of which the one that allocates the least is taken. */
+    private static final int MEASURED_RUNS = 3;
+
+    private EVCompany company;
+    private List<ElectricVehicle> vehicles;
+    private List<Location> startLocations;
+    private EVDemo demo;
+    private com.sun.management.ThreadMXBean threads;
+
+    /**
+     * Default constructor for test class StepAllocationTest.
+     */
+    public StepAllocationTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture: a company with stations spread over the city and a fleet that
+     * needs to recharge on the way, stepped without step information.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        company = new EVCompany("Allocation test");
+        List<ChargingStation> stations = new ArrayList<ChargingStation>();
+        for (int i = 0; i < NUM_STATIONS; i++){
+            Location location = Location.of((i % 4) * 30 + 5, (i / 4) * 30 + 5);
+            ChargingStation station = new ChargingStation("Cáceres", "CC" + (100 + i), location);
+            List<Charger> chargers = new ArrayList<Charger>();
+            for (int j = 0; j < NUM_CHARGERS; j++){
+                chargers.add(new Charger(station.getId() + "_0" + j, (j + 1) * 20, (j + 1) * 0.20f));
+            }
+            station.addChargers(chargers);
+            stations.add(station);
+        }
+        company.addChargingStations(stations);
+
+        vehicles = new ArrayList<ElectricVehicle>();
+        startLocations = new ArrayList<Location>();
+        long seed = 12345;
+        for (int i = 0; i < NUM_VEHICLES; i++){
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            int x = (int) ((seed >>> 33) % SIDE);
+            int y = (int) ((seed >>> 45) % SIDE);
+            Location start = Location.of(x, y);
+            Location target = Location.of(SIDE - 1 - x, SIDE - 1 - y);
+            vehicles.add(new ElectricVehicle(company, start, target, "EV" + i, i + "TST", 150 + 5 * (i % 40)));
+            startLocations.add(start);
+        }
+        company.addElectricVehicles(vehicles);
+        demo = new EVDemo(company, vehicles, null);
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    /**
+     * Test that stepping the fleet, with moves, route planning and recharges, allocates nothing
+     * once everything has been warmed up.
+     */
+    @Test
+    public void testStepDoesNotAllocate()
+    {
+        runSteps();
+        int recharges = countRecharges();
+        assertTrue("The scenario should recharge", recharges > 0);
+        warmUp();
+        long allocated = leastAllocatedBytes();
+
+        assertEquals("The second run should repeat the first one", recharges, countRecharges());
+        assertEquals("The company should count the recharges of the last run only", recharges, company.getTotalRecharges());
+        assertEquals("Bytes allocated in " + STEPS + " steps", 0, allocated);
+    }
+
+    /**
+     * Test that recording the {@link Metrics} of the steps allocates nothing either, and that
+     * the metrics see the recharges.
+     */
+    @Test
+    public void testStepWithMetricsDoesNotAllocate()
+    {
+        Metrics.setEnabled(true);
+        warmUp();
+        long allocated = leastAllocatedBytes();
+
+        assertEquals("Bytes allocated in " + STEPS + " steps", 0, allocated);
+        assertEquals(STEPS, Metrics.getHistogram(MetricPhase.STEP).getCount());
+        assertEquals(countRecharges(), Metrics.getCount(MetricCounter.RECHARGES));
+    }
+
+    /**
+     * Runs the steps a few times, restarting before and after every run, so the state is the starting one
+     * and the hot methods are compiled.
+     */
+    private void warmUp()
+    {
+        restart();
+        for (int run = 0; run < WARMUP_RUNS; run++){
+            runSteps();
+            restart();
+        }
+    }
+
+    /**
+     * Runs the steps a few more times from the starting state, counting the bytes allocated by every
+     * run. The JIT may still replace some compiled code during a run, which makes the virtual machine
+     * allocate a few bytes once; an allocation of the step path would show in every run instead.
+     * The metrics are reset before every run, so they hold the last one.
+     * @return The fewest bytes allocated by one of the runs.
+     */
+    private long leastAllocatedBytes()
+    {
+        long least = Long.MAX_VALUE;
+        for (int run = 0; run < MEASURED_RUNS; run++){
+            restart();
+            Metrics.reset();
+            long overhead = allocatedBytes() - allocatedBytes();
+            long before = allocatedBytes();
+            runSteps();
+            least = Math.min(least, allocatedBytes() - before + overhead);
+        }
+        return least;
+    }
+
+    private void runSteps()
+    {
+        for (int step = 0; step < STEPS; step++){
+            demo.step(step);
+        }
+    }
+
+    /**
+     * Puts the vehicles back in their starting state and empties the recharge ledgers of the chargers,
+     * which keep their capacity, so the second run grows nothing.
+     */
+    private void restart()
+    {
+        for (int i = 0; i < NUM_VEHICLES; i++){
+            ElectricVehicle vehicle = vehicles.get(i);
+            vehicle.setLocation(startLocations.get(i));
+            vehicle.setBatteryLevel(vehicle.getBatteryCapacity());
+            vehicle.setIdleCount(0);
+            vehicle.setArrivingStep(-1);
+            vehicle.setRechargingLocation(null);
+        }
+        company.clearQueues();
+        for (ChargingStation station : company.getCityStations()){
+            for (Charger charger : station.getChargers()){
+                charger.clearRecharges();
+            }
+        }
+    }
+
+    private int countRecharges()
+    {
+        int recharges = 0;
+        for (ChargingStation station : company.getCityStations()){
+            for (Charger charger : station.getChargers()){
+                recharges += charger.getLedger().size();
+            }
+        }
+        return recharges;
+    }
+
+    private long allocatedBytes()
+    {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
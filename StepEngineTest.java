@@ -0,0 +1,150 @@
+import static org.junit.Assert.*;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that the serial, parallel, event-driven and columnar engines end generated runs in the same
+ * state and count the same events, which needs every engine to calculate the routes the way the
+ * serial one does.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class StepEngineTest
+{
+    private static final int STEPS = 200;
+
+    /**
+     * Default constructor for test class StepEngineTest.
+     */
+    public StepEngineTest()
+    {
+    }
+
+    /**
+     * Sets up the test fixture.
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp()
+    {
+    }
+
+    /**
+     * Tears down the test fixture.
+     * Called after every test case method.
+     */
+    @After
+    public void tearDown()
+    {
+    }
+
+    /**
+     * Test generated cities where vehicles recharge several times, and leave stations that are then
+     * the best detour again. The engines must also count the same idle steps and recharges.
+     */
+    @Test
+    public void testEnginesAgree()
+    {
+        for (long seed = 5; seed <= 7; seed++){
+            String serial = run(seed, EngineType.SERIAL);
+            assertEquals(serial, run(seed, EngineType.PARALLEL));
+            assertEquals(serial, run(seed, EngineType.EVENT_DRIVEN));
+            assertEquals(serial, run(seed, EngineType.COLUMNAR));
+        }
+    }
+
+    /**
+     * Test that closing a demo stops the writer thread of the step logger it started.
+     */
+    @Test
+    public void testCloseStopsStepLogger()
+    {
+        int before = countThreads("step-logger");
+        EVDemo demo = new EVDemo();
+        assertEquals(before + 1, countThreads("step-logger"));
+        demo.close();
+        assertEquals(before, countThreads("step-logger"));
+    }
+
+    /**
+     * @return The number of live threads with a name.
+     */
+    private static int countThreads(String name)
+    {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()){
+            if (thread.getName().equals(name) && thread.isAlive()){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Runs a generated city with an engine and the {@link Metrics} on.
+     * @return The final state of the city and the idle steps and recharges counted.
+     */
+    private static String run(long seed, EngineType type)
+    {
+        EVCompany company = generate(seed);
+        EVDemo demo = new EVDemo(company, company.getVehicles(), null);
+        Metrics.setEnabled(true);
+        Metrics.reset();
+        if (type == EngineType.PARALLEL){
+            ParallelStepEngine engine = new ParallelStepEngine(demo, company.getVehicles(), null, 2);
+            for (int step = 0; step < STEPS; step++){
+                engine.step(step);
+            }
+            engine.shutdown();
+        }
+        else if (type == EngineType.EVENT_DRIVEN){
+            new EventDrivenEngine(demo, company.getVehicles()).run(0, STEPS);
+        }
+        else if (type == EngineType.COLUMNAR){
+            ColumnarStepEngine engine = new ColumnarStepEngine(demo, company.getVehicles(), company, null);
+            StationIndex index = company.getStationIndex();
+            for (int step = 0; step < STEPS; step++){
+                engine.run(step, step + 1);
+            }
+            assertTrue("The columnar steps should keep the station index", index == company.getStationIndex());
+        }
+        else{
+            for (int step = 0; step < STEPS; step++){
+                demo.step(step);
+            }
+        }
+        Metrics.setEnabled(false);
+        return describe(company) + Metrics.getCount(MetricCounter.IDLE_INCREMENTS) + " idle, "
+               + Metrics.getCount(MetricCounter.RECHARGES) + " recharges";
+    }
+
+    /**
+     * @return A generated city with few stations, so many vehicles need several recharges.
+     */
+    private static EVCompany generate(long seed)
+    {
+        ScenarioGenerator generator = new ScenarioGenerator(seed, 60, 60);
+        generator.setNumVehicles(300);
+        generator.setNumStations(6);
+        generator.setNumChargersPerStation(2);
+        return generator.generate("Engine test");
+    }
+
+    /**
+     * @return The information of every vehicle and the complete information of every station of a company.
+     */
+    private static String describe(EVCompany company)
+    {
+        StringBuilder builder = new StringBuilder();
+        List<ElectricVehicle> vehicles = company.getVehicles();
+        for (ElectricVehicle vehicle : vehicles){
+            builder.append(vehicle).append(" | ").append(vehicle.getIdleCount()).append('\n');
+        }
+        for (ChargingStation station : company.getCityStations()){
+            builder.append(station.getCompleteInfo()).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,69 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder event for one step of the simulation, from its beginning to its end, so
+ * a recording shows the steps next to the JIT and GC activity of the virtual machine.
+ *
+ * The event is enabled by default with no threshold, since there is only one per step. Like the
+ * other events of the simulation it can be turned off or given a threshold in the settings of a
+ * recording, for example with {@code -XX:StartFlightRecording:ev.Step#threshold=5ms} or
+ * {@code recording.enable(StepEvent.class).withThreshold(duration)}.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+@Name("ev.Step")
+@Label("Simulation Step")
+@Category("EV Simulation")
+@Description("One step of the simulation for every vehicle")
+@Threshold("0 ms")
+public class StepEvent extends jdk.jfr.Event
+{
+    /** The type of the event, to check if it is enabled without creating one. */
+    public static final EventType TYPE = EventType.getEventType(StepEvent.class);
+
+    @Label("Step")
+    public int step;
+
+    @Label("Engine")
+    public String engine;
+
+    @Label("Vehicles")
+    public int vehicles;
+
+    /**
+     * @return A new event, already begun, or null if no recording has the event enabled.
+     */
+    public static StepEvent start(int step)
+    {
+        if (!TYPE.isEnabled()){
+            return null;
+        }
+        StepEvent event = new StepEvent();
+        event.step = step;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends an event returned by {@link #start(int)} and commits it if it is over the threshold.
+     * @param event The event, or null.
+     * @param engine The engine that ran the step.
+     * @param vehicles The number of vehicles of the step.
+     */
+    public static void finish(StepEvent event, EngineType engine, int vehicles)
+    {
+        if (event != null){
+            event.end();
+            if (event.shouldCommit()){
+                event.engine = engine.name();
+                event.vehicles = vehicles;
+                event.commit();
+            }
+        }
+    }
+}
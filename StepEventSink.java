@@ -0,0 +1,29 @@
+/**
+ * Receives the step information of every {@link ElectricVehicle} while the simulation runs,
+ * in place of printing it in the step loop.
+ * The engines call {@link #vehicleStep(int, ElectricVehicle)} before the vehicle acts, in fleet
+ * order and always from the same thread, so a sink may assume a single producer. The sink must take
+ * what it needs from the vehicle during the call, since the vehicle goes on changing afterwards.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public interface StepEventSink
+{
+    /**
+     * Records the state of a vehicle at the start of its turn.
+     * @param step The current step of the simulation.
+     * @param vehicle The vehicle that is about to act.
+     */
+    void vehicleStep(int step, ElectricVehicle vehicle);
+
+    /**
+     * Waits until everything recorded so far has been written.
+     */
+    void flush();
+
+    /**
+     * Writes everything recorded so far and releases the resources of the sink.
+     * Nothing can be recorded afterwards.
+     */
+    void close();
+}
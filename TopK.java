@@ -0,0 +1,173 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps the first k elements offered to it, in the order of a comparator, without sorting all of them.
+ * The elements are kept in a binary heap whose root is the worst of the k best ones so far, so every
+ * offer takes O(log k) time and a ranking of n elements takes O(n log k) instead of O(n log n).
+ * Elements that compare as equal are ranked in the order in which they were offered.
+ * @author DP classes
+ * @version 2025.20.10
+ */
+public class TopK<T>
+{
+    private int k;
+    private Comparator<? super T> comparator;
+    /** The kept elements, as a heap whose root is the worst one. */
+    private Object[] heap;
+    /** Order in which every kept element was offered, used to break ties. */
+    private long[] order;
+    private int size;
+    private long offered;
+
+    /**
+     * Constructor for objects of class TopK.
+     * @param k The maximum number of elements kept. Must not be negative.
+     * @param comparator The order of the elements; the first ones in this order are kept.
+     * @throws IllegalArgumentException If k is negative.
+     */
+    public TopK(int k, Comparator<? super T> comparator)
+    {
+        if (k < 0){
+            throw new IllegalArgumentException("Negative k: " + k);
+        }
+        this.k = k;
+        this.comparator = comparator;
+        this.heap = new Object[Math.min(k, 16)];
+        this.order = new long[heap.length];
+        this.size = 0;
+        this.offered = 0;
+    }
+
+    /**
+     * Returns the first k elements of a collection, in the order of a comparator.
+     * @param elements The elements to rank.
+     * @param k The maximum number of elements returned.
+     * @param comparator The order of the elements.
+     * @return A new list with the first k elements, sorted.
+     */
+    public static <T> List<T> select(Iterable<? extends T> elements, int k, Comparator<? super T> comparator)
+    {
+        TopK<T> top = new TopK<T>(k, comparator);
+        for (T element : elements){
+            top.offer(element);
+        }
+        return top.toList();
+    }
+
+    /**
+     * Offers an element. It is kept if it is among the first k elements offered so far.
+     * @param element The element.
+     * @return Whether or not the element has been kept.
+     */
+    public boolean offer(T element)
+    {
+        long position = offered++;
+        if (size < k){
+            if (size == heap.length){
+                int capacity = Math.min(k, 2 * heap.length);
+                heap = Arrays.copyOf(heap, capacity);
+                order = Arrays.copyOf(order, capacity);
+            }
+            siftUp(size++, element, position);
+            return true;
+        }
+        if (k == 0 || compare(element, position, 0) >= 0){
+            return false;
+        }
+        siftDown(0, element, position);
+        return true;
+    }
+
+    /**
+     * @return The number of elements kept.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return A new list with the kept elements, from the first one to the last one.
+     */
+    public List<T> toList()
+    {
+        Integer[] rank = new Integer[size];
+        for (int i = 0; i < size; i++){
+            rank[i] = i;
+        }
+        Arrays.sort(rank, (a, b) -> compare(element(a), order[a], b));
+        List<T> list = new ArrayList<T>(size);
+        for (int i = 0; i < size; i++){
+            list.add(element(rank[i]));
+        }
+        return list;
+    }
+
+    /**
+     * Removes every kept element.
+     */
+    public void clear()
+    {
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+        offered = 0;
+    }
+
+    /**
+     * Places an element in the heap, moving it up from a hole.
+     */
+    private void siftUp(int hole, T element, long position)
+    {
+        while (hole > 0){
+            int parent = (hole - 1) >>> 1;
+            if (compare(element, position, parent) <= 0){
+                break;
+            }
+            heap[hole] = heap[parent];
+            order[hole] = order[parent];
+            hole = parent;
+        }
+        heap[hole] = element;
+        order[hole] = position;
+    }
+
+    /**
+     * Places an element in the heap, moving it down from a hole.
+     */
+    private void siftDown(int hole, T element, long position)
+    {
+        int child = 2 * hole + 1;
+        while (child < size){
+            if (child + 1 < size && compare(element(child + 1), order[child + 1], child) > 0){
+                child++;
+            }
+            if (compare(element, position, child) >= 0){
+                break;
+            }
+            heap[hole] = heap[child];
+            order[hole] = order[child];
+            hole = child;
+            child = 2 * hole + 1;
+        }
+        heap[hole] = element;
+        order[hole] = position;
+    }
+
+    /**
+     * Compares an element with the one kept at a position of the heap, breaking ties by the order of the offers.
+     */
+    private int compare(T element, long position, int i)
+    {
+        int result = comparator.compare(element, element(i));
+        return result != 0 ? result : Long.compare(position, order[i]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T element(int i)
+    {
+        return (T) heap[i];
+    }
+}